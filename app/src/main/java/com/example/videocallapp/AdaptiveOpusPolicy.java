@@ -0,0 +1,61 @@
+package com.example.videocallapp;
+
+import com.example.janus.core.EventLog;
+
+/**
+ * Default {@link AudioCodecPolicy}: starts from settings that suit a mobile
+ * link and moves them after each call.
+ *
+ * <ul>
+ *   <li>FEC stays on unless the last call was measurably clean.</li>
+ *   <li>Above 5% loss the bitrate goes up so FEC does not starve the primary
+ *       encoding; above 15% the link is congested, so bitrate drops and packets
+ *       get longer to cut packet overhead.</li>
+ *   <li>DTX turns on after a call where our microphone was mostly silent.</li>
+ * </ul>
+ */
+public class AdaptiveOpusPolicy implements AudioCodecPolicy {
+    private static final String TAG = "AdaptiveOpusPolicy";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+
+    static final OpusConfig DEFAULT = new OpusConfig(true, false, 32000, 20);
+
+    static final double CLEAN_LOSS_RATE = 0.005;
+    static final double LOSSY_LOSS_RATE = 0.05;
+    static final double CONGESTED_LOSS_RATE = 0.15;
+    /** RMS level below which a call counts as mostly silent; speech averages several times this. */
+    static final double SILENT_SOURCE_LEVEL = 0.01;
+    /** Fewer packets than this (about 10 s of audio) say nothing about the link. */
+    static final long MIN_PACKETS = 500;
+
+    private volatile OpusConfig config = DEFAULT;
+
+    @Override
+    public OpusConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public void onCallEnded(AudioStats stats) {
+        if (stats == null || stats.getPacketsReceived() + stats.getPacketsLost() < MIN_PACKETS) {
+            return;
+        }
+        config = next(stats);
+        LOG.debug("Next call: {}", config);
+    }
+
+    static OpusConfig next(AudioStats stats) {
+        double loss = stats.getPacketLossRate();
+        boolean fec = loss >= CLEAN_LOSS_RATE;
+        int bitrate = DEFAULT.getMaxAverageBitrate();
+        int ptime = DEFAULT.getPtimeMs();
+        if (loss >= CONGESTED_LOSS_RATE) {
+            bitrate = 24000;
+            ptime = 40;
+        } else if (loss >= LOSSY_LOSS_RATE) {
+            bitrate = 40000;
+        }
+        boolean dtx = stats.getSourceDurationSeconds() > 0 && stats.getMeanSourceLevel() < SILENT_SOURCE_LEVEL;
+        return new OpusConfig(fec, dtx, bitrate, ptime);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.videocallapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.janus.core.EventLog;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * The app's {@link EventLog}: logcat from VERBOSE in debug builds and from INFO
+ * in release, with the last {@value #RING_CAPACITY} DEBUG-and-up events kept in
+ * memory and written to {@value #CRASH_LOG_FILE} if the process crashes.
+ */
+final class AppLog {
+    /**
+     * Compile-time constant from the build type. Per-message logging goes in an
+     * {@code if (AppLog.VERBOSE)} block, which release builds compile out along
+     * with its arguments.
+     */
+    static final boolean VERBOSE = BuildConfig.VERBOSE_LOGGING;
+
+    private static final int RING_CAPACITY = 256;
+    private static final String CRASH_LOG_FILE = "crash-log.txt";
+
+    private static final EventLog LOG = new EventLog(AppLog::write,
+            VERBOSE ? EventLog.Level.VERBOSE : EventLog.Level.INFO, EventLog.Level.DEBUG, RING_CAPACITY);
+    private static boolean crashHandlerInstalled;
+
+    private AppLog() {}
+
+    /** The category for {@code tag}, logged under that logcat tag. */
+    static EventLog.Category category(String tag) {
+        return LOG.category(tag);
+    }
+
+    /**
+     * Dumps the recent events to the app's files directory before the previous
+     * default handler runs, so the next launch or a bug report can pick them up.
+     */
+    static synchronized void installCrashHandler(Context context) {
+        if (crashHandlerInstalled) {
+            return;
+        }
+        crashHandlerInstalled = true;
+        File file = new File(context.getApplicationContext().getFilesDir(), CRASH_LOG_FILE);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, error) -> {
+            try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+                for (String line : LOG.recent()) {
+                    out.println(line);
+                }
+                out.println("Uncaught on " + thread.getName() + ":");
+                error.printStackTrace(out);
+            } catch (IOException | RuntimeException e) {
+                Log.e("AppLog", "Could not write " + file, e);
+            }
+            if (previous != null) {
+                previous.uncaughtException(thread, error);
+            }
+        });
+    }
+
+    private static void write(EventLog.Level level, String tag, String message, Throwable error) {
+        int priority;
+        switch (level) {
+            case VERBOSE: priority = Log.VERBOSE; break;
+            case DEBUG: priority = Log.DEBUG; break;
+            case INFO: priority = Log.INFO; break;
+            case WARN: priority = Log.WARN; break;
+            default: priority = Log.ERROR; break;
+        }
+        Log.println(priority, tag, error != null ? message + '\n' + Log.getStackTraceString(error) : message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.videocallapp;
+
+/**
+ * Chooses the Opus settings for the next call and learns from the one that
+ * just ended. Lives longer than any single {@link PeerConnectionClient}.
+ */
+public interface AudioCodecPolicy {
+    OpusConfig getConfig();
+
+    /** Called once per call with its last stats snapshot. */
+    void onCallEnded(AudioStats stats);
+}
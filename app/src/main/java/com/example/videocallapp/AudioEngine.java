@@ -0,0 +1,264 @@
+package com.example.videocallapp;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.MediaRecorder;
+import android.os.SystemClock;
+
+import com.example.janus.core.EventLog;
+
+import org.webrtc.MediaConstraints;
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.audio.AudioDeviceModule;
+import org.webrtc.audio.JavaAudioDeviceModule;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the {@link JavaAudioDeviceModule} for calls and watches how it performs.
+ *
+ * <p>Uses the platform echo canceler and noise suppressor when the device has
+ * them, which lets WebRTC skip its software versions, and opens the low-latency
+ * voice-communication paths on both sides. While a call runs it samples the
+ * receiver's audio stats and counts record-side stalls so per-device buffer
+ * tuning can be checked against real numbers.
+ */
+public class AudioEngine {
+    private static final String TAG = "AudioEngine";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    private static final long STATS_INTERVAL_SECONDS = 5;
+    /** Audio records arrive every 10 ms; three missed buffers is a stall the far end will hear. */
+    private static final long RECORD_STALL_THRESHOLD_NS = TimeUnit.MILLISECONDS.toNanos(30);
+
+    private final Context context;
+    private final boolean lowLatency;
+    private final boolean hardwareEchoCanceler;
+    private final boolean hardwareNoiseSuppressor;
+
+    private final AtomicLong recordStalls = new AtomicLong();
+    private final AtomicLong maxRecordGapNs = new AtomicLong();
+    private final AtomicLong recordErrors = new AtomicLong();
+    private final AtomicLong playoutErrors = new AtomicLong();
+    private volatile long lastRecordNs;
+    private volatile JavaAudioDeviceModule.SamplesReadyCallback recordSamplesListener;
+
+    private ScheduledExecutorService statsExecutor;
+    private ScheduledFuture<?> statsTask;
+    private volatile AudioStats lastStats;
+
+    public static final class Builder {
+        private final Context context;
+        private boolean lowLatency = true;
+        private boolean hardwareEchoCanceler = true;
+        private boolean hardwareNoiseSuppressor = true;
+
+        private Builder(Context context) {
+            this.context = context.getApplicationContext();
+        }
+
+        public Builder setLowLatency(boolean lowLatency) {
+            this.lowLatency = lowLatency;
+            return this;
+        }
+
+        /** Prefer the platform AEC when the device has one; falls back to WebRTC's otherwise. */
+        public Builder setHardwareEchoCanceler(boolean hardwareEchoCanceler) {
+            this.hardwareEchoCanceler = hardwareEchoCanceler;
+            return this;
+        }
+
+        public Builder setHardwareNoiseSuppressor(boolean hardwareNoiseSuppressor) {
+            this.hardwareNoiseSuppressor = hardwareNoiseSuppressor;
+            return this;
+        }
+
+        public AudioEngine build() {
+            return new AudioEngine(this);
+        }
+    }
+
+    public static Builder builder(Context context) {
+        return new Builder(context);
+    }
+
+    private AudioEngine(Builder builder) {
+        this.context = builder.context;
+        this.lowLatency = builder.lowLatency;
+        this.hardwareEchoCanceler = builder.hardwareEchoCanceler
+                && JavaAudioDeviceModule.isBuiltInAcousticEchoCancelerSupported();
+        this.hardwareNoiseSuppressor = builder.hardwareNoiseSuppressor
+                && JavaAudioDeviceModule.isBuiltInNoiseSuppressorSupported();
+    }
+
+    public AudioDeviceModule createAudioDeviceModule() {
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        LOG.debug("Audio device: hardware AEC {}, hardware NS {}, low latency {}",
+                hardwareEchoCanceler, hardwareNoiseSuppressor, lowLatency);
+        LOG.debug("Audio device: native rate {}, frames per buffer {}",
+                audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE),
+                audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER));
+
+        return JavaAudioDeviceModule.builder(context)
+                .setAudioSource(MediaRecorder.AudioSource.VOICE_COMMUNICATION)
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_VOICE_COMMUNICATION)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .setUseHardwareAcousticEchoCanceler(hardwareEchoCanceler)
+                .setUseHardwareNoiseSuppressor(hardwareNoiseSuppressor)
+                .setUseLowLatency(lowLatency)
+                .setUseStereoInput(false)
+                .setUseStereoOutput(false)
+                .setSamplesReadyCallback(this::onRecordBuffer)
+                .setAudioRecordErrorCallback(new JavaAudioDeviceModule.AudioRecordErrorCallback() {
+                    @Override
+                    public void onWebRtcAudioRecordInitError(String errorMessage) {
+                        onRecordError(errorMessage);
+                    }
+
+                    @Override
+                    public void onWebRtcAudioRecordStartError(
+                            JavaAudioDeviceModule.AudioRecordStartErrorCode errorCode, String errorMessage) {
+                        onRecordError(errorCode + ": " + errorMessage);
+                    }
+
+                    @Override
+                    public void onWebRtcAudioRecordError(String errorMessage) {
+                        onRecordError(errorMessage);
+                    }
+                })
+                .setAudioTrackErrorCallback(new JavaAudioDeviceModule.AudioTrackErrorCallback() {
+                    @Override
+                    public void onWebRtcAudioTrackInitError(String errorMessage) {
+                        onPlayoutError(errorMessage);
+                    }
+
+                    @Override
+                    public void onWebRtcAudioTrackStartError(
+                            JavaAudioDeviceModule.AudioTrackStartErrorCode errorCode, String errorMessage) {
+                        onPlayoutError(errorCode + ": " + errorMessage);
+                    }
+
+                    @Override
+                    public void onWebRtcAudioTrackError(String errorMessage) {
+                        onPlayoutError(errorMessage);
+                    }
+                })
+                .setAudioRecordStateCallback(new JavaAudioDeviceModule.AudioRecordStateCallback() {
+                    @Override
+                    public void onWebRtcAudioRecordStart() {
+                        lastRecordNs = 0;
+                    }
+
+                    @Override
+                    public void onWebRtcAudioRecordStop() {
+                        lastRecordNs = 0;
+                    }
+                })
+                .createAudioDeviceModule();
+    }
+
+    /**
+     * Constraints for the local audio source. Software processing stays on as
+     * the fallback; WebRTC turns its AEC/NS off by itself where the device
+     * module reports the hardware ones in use.
+     */
+    public MediaConstraints createAudioConstraints() {
+        MediaConstraints constraints = new MediaConstraints();
+        constraints.mandatory.add(new MediaConstraints.KeyValuePair("googEchoCancellation", "true"));
+        constraints.mandatory.add(new MediaConstraints.KeyValuePair("googNoiseSuppression", "true"));
+        constraints.mandatory.add(new MediaConstraints.KeyValuePair("googAutoGainControl", "true"));
+        constraints.mandatory.add(new MediaConstraints.KeyValuePair("googHighpassFilter", "true"));
+        return constraints;
+    }
+
+    /**
+     * Samples {@code connection}'s audio stats every few seconds until
+     * {@link #stopMonitoring()}. Repeated calls (e.g. after an ICE reconnect) keep
+     * the running counters.
+     */
+    public synchronized void startMonitoring(PeerConnection connection) {
+        if (statsTask != null) {
+            return;
+        }
+        resetDeviceCounters();
+        statsExecutor = Executors.newSingleThreadScheduledExecutor();
+        statsTask = statsExecutor.scheduleWithFixedDelay(() -> connection.getStats(report -> {
+            AudioStats.Builder builder = new AudioStats.Builder();
+            for (RTCStats stats : report.getStatsMap().values()) {
+                builder.add(stats.getType(), stats.getMembers());
+            }
+            lastStats = builder.setDeviceCounters(recordStalls.get(),
+                    TimeUnit.NANOSECONDS.toMillis(maxRecordGapNs.get()),
+                    recordErrors.get(), playoutErrors.get()).build();
+            LOG.debug("{}", lastStats);
+        }), STATS_INTERVAL_SECONDS, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Stops sampling and returns the last snapshot taken, or null if none was. */
+    public synchronized AudioStats stopMonitoring() {
+        if (statsTask != null) {
+            statsTask.cancel(false);
+            statsTask = null;
+        }
+        if (statsExecutor != null) {
+            statsExecutor.shutdownNow();
+            statsExecutor = null;
+        }
+        return lastStats;
+    }
+
+    public AudioStats getLastStats() {
+        return lastStats;
+    }
+
+    private void resetDeviceCounters() {
+        lastStats = null;
+        recordStalls.set(0);
+        maxRecordGapNs.set(0);
+        recordErrors.set(0);
+        playoutErrors.set(0);
+    }
+
+    /** Also hands every 10 ms microphone buffer to {@code listener} (e.g. a recorder); null to stop. */
+    public void setRecordSamplesListener(JavaAudioDeviceModule.SamplesReadyCallback listener) {
+        recordSamplesListener = listener;
+    }
+
+    private void onRecordBuffer(JavaAudioDeviceModule.AudioSamples samples) {
+        JavaAudioDeviceModule.SamplesReadyCallback samplesListener = recordSamplesListener;
+        if (samplesListener != null) {
+            samplesListener.onWebRtcAudioRecordSamplesReady(samples);
+        }
+
+        long now = SystemClock.elapsedRealtimeNanos();
+        long last = lastRecordNs;
+        lastRecordNs = now;
+        if (last == 0) {
+            return;
+        }
+        long gap = now - last;
+        if (gap > RECORD_STALL_THRESHOLD_NS) {
+            recordStalls.incrementAndGet();
+        }
+        if (gap > maxRecordGapNs.get()) {
+            maxRecordGapNs.set(gap);
+        }
+    }
+
+    private void onRecordError(String message) {
+        recordErrors.incrementAndGet();
+        LOG.error("Audio record error: {}", message);
+    }
+
+    private void onPlayoutError(String message) {
+        playoutErrors.incrementAndGet();
+        LOG.error("Audio playout error: {}", message);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.videocallapp;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the audio path's health: playout underruns and delay from the
+ * receiver's stats, record stalls from the audio device callbacks. Built from
+ * plain stats maps so it can be tested without a PeerConnection.
+ */
+public final class AudioStats {
+    private long playoutUnderruns;
+    private double playoutUnderrunSeconds;
+    private double playoutDelayMs;
+    private double jitterBufferDelayMs;
+    private double roundTripTimeMs;
+    private long concealmentEvents;
+    private long packetsReceived;
+    private long packetsLost;
+    private double sourceAudioEnergy;
+    private double sourceDurationSeconds;
+    private long recordStalls;
+    private long maxRecordGapMs;
+    private long recordErrors;
+    private long playoutErrors;
+
+    public long getPlayoutUnderruns() {
+        return playoutUnderruns;
+    }
+
+    public double getPlayoutUnderrunSeconds() {
+        return playoutUnderrunSeconds;
+    }
+
+    /** Average time from the decoder handing out audio to the device playing it. */
+    public double getPlayoutDelayMs() {
+        return playoutDelayMs;
+    }
+
+    public double getJitterBufferDelayMs() {
+        return jitterBufferDelayMs;
+    }
+
+    public double getRoundTripTimeMs() {
+        return roundTripTimeMs;
+    }
+
+    public long getConcealmentEvents() {
+        return concealmentEvents;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getPacketsLost() {
+        return packetsLost;
+    }
+
+    public double getPacketLossRate() {
+        long expected = packetsReceived + packetsLost;
+        return expected > 0 ? (double) Math.max(packetsLost, 0) / expected : 0;
+    }
+
+    /**
+     * RMS level of what our microphone sent over the call, 0..1. Mostly-silent
+     * calls sit far below speech (around 0.05 and up).
+     */
+    public double getMeanSourceLevel() {
+        return sourceDurationSeconds > 0 ? Math.sqrt(sourceAudioEnergy / sourceDurationSeconds) : 0;
+    }
+
+    public double getSourceDurationSeconds() {
+        return sourceDurationSeconds;
+    }
+
+    public long getRecordStalls() {
+        return recordStalls;
+    }
+
+    public long getMaxRecordGapMs() {
+        return maxRecordGapMs;
+    }
+
+    public long getRecordErrors() {
+        return recordErrors;
+    }
+
+    public long getPlayoutErrors() {
+        return playoutErrors;
+    }
+
+    /**
+     * Receive half of mouth-to-ear latency: one-way network delay plus jitter
+     * buffer plus device playout. Capture and encode add a roughly constant
+     * 20-40 ms on top.
+     */
+    public double getEstimatedReceiveLatencyMs() {
+        return roundTripTimeMs / 2 + jitterBufferDelayMs + playoutDelayMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("audio: receive latency ~%.0f ms (rtt/2 %.0f, jitter buffer %.0f, playout %.0f), "
+                        + "underruns %d (%.2f s), concealments %d, loss %.1f%%, source level %.3f, "
+                        + "record stalls %d (max gap %d ms), "
+                        + "errors record %d / playout %d",
+                getEstimatedReceiveLatencyMs(), roundTripTimeMs / 2, jitterBufferDelayMs, playoutDelayMs,
+                playoutUnderruns, playoutUnderrunSeconds, concealmentEvents, getPacketLossRate() * 100,
+                getMeanSourceLevel(),
+                recordStalls, maxRecordGapMs, recordErrors, playoutErrors);
+    }
+
+    static final class Builder {
+        private final AudioStats stats = new AudioStats();
+
+        /** Folds in one stats object; non-audio entries are ignored. */
+        Builder add(String type, Map<String, Object> members) {
+            switch (type) {
+                case "media-playout":
+                    stats.playoutUnderruns += asLong(members.get("synthesizedSamplesEvents"));
+                    stats.playoutUnderrunSeconds += asDouble(members.get("synthesizedSamplesDuration"));
+                    long samples = asLong(members.get("totalSamplesCount"));
+                    if (samples > 0) {
+                        stats.playoutDelayMs = 1000 * asDouble(members.get("totalPlayoutDelay")) / samples;
+                    }
+                    break;
+                case "inbound-rtp":
+                    if (!"audio".equals(members.get("kind"))) break;
+                    long emitted = asLong(members.get("jitterBufferEmittedCount"));
+                    if (emitted > 0) {
+                        stats.jitterBufferDelayMs = 1000 * asDouble(members.get("jitterBufferDelay")) / emitted;
+                    }
+                    stats.concealmentEvents += asLong(members.get("concealmentEvents"));
+                    stats.packetsReceived += asLong(members.get("packetsReceived"));
+                    stats.packetsLost += asLong(members.get("packetsLost"));
+                    break;
+                case "media-source":
+                    if (!"audio".equals(members.get("kind"))) break;
+                    stats.sourceAudioEnergy += asDouble(members.get("totalAudioEnergy"));
+                    stats.sourceDurationSeconds += asDouble(members.get("totalSamplesDuration"));
+                    break;
+                case "remote-inbound-rtp":
+                    if (!"audio".equals(members.get("kind"))) break;
+                    stats.roundTripTimeMs = 1000 * asDouble(members.get("roundTripTime"));
+                    break;
+                default:
+                    break;
+            }
+            return this;
+        }
+
+        Builder setDeviceCounters(long recordStalls, long maxRecordGapMs, long recordErrors, long playoutErrors) {
+            stats.recordStalls = recordStalls;
+            stats.maxRecordGapMs = maxRecordGapMs;
+            stats.recordErrors = recordErrors;
+            stats.playoutErrors = playoutErrors;
+            return this;
+        }
+
+        AudioStats build() {
+            return stats;
+        }
+
+        private static long asLong(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+
+        private static double asDouble(Object value) {
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.videocallapp;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+
+import com.example.janus.core.EventLog;
+
+import org.webrtc.AudioTrackSink;
+import org.webrtc.EglBase;
+import org.webrtc.GlRectDrawer;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoFrameDrawer;
+import org.webrtc.VideoSink;
+import org.webrtc.audio.JavaAudioDeviceModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Records a call to MP4 without reading pixels back to the CPU.
+ *
+ * <p>Remote and local frames arrive as {@link VideoSink}s and are drawn, remote
+ * full-frame with the local picture inset, straight into a {@link MediaCodec}
+ * input surface on an EGL context shared with the renderers, so texture frames
+ * never leave the GPU. Microphone audio (mixed with the remote track where the
+ * sample rates match) goes to an AAC encoder. Encoded output is handed to a
+ * {@link RecordingMuxer} that does the disk I/O on its own thread.
+ *
+ * <p>Sinks only retain or copy and return: the latest frame from each side
+ * waits in a one-slot mailbox and older ones are released unseen, so a slow
+ * encoder costs recorded frames, never call frames. While the muxer is backed
+ * up on disk, frames are released from the mailbox instead of being encoded,
+ * so the encoded stream itself stays intact.
+ */
+public class CallRecorder implements VideoSink, AudioTrackSink, JavaAudioDeviceModule.SamplesReadyCallback {
+    private static final String TAG = "CallRecorder";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+
+    private static final int TRACK_VIDEO = 0;
+    private static final int TRACK_AUDIO = 1;
+
+    private static final String VIDEO_MIME = MediaFormat.MIMETYPE_VIDEO_AVC;
+    private static final int VIDEO_BITRATE = 2_000_000;
+    private static final int VIDEO_FPS = 30;
+    private static final int I_FRAME_INTERVAL_SECONDS = 2;
+    private static final String AUDIO_MIME = MediaFormat.MIMETYPE_AUDIO_AAC;
+    private static final int AUDIO_BITRATE = 64_000;
+    /** Ten 10 ms chunks; beyond this the remote side is ahead of the mic and the oldest is dropped. */
+    private static final int MAX_QUEUED_REMOTE_CHUNKS = 10;
+    /** Remote frames stop driving the composition after this long, e.g. while the peer's video is off. */
+    private static final long REMOTE_STALE_NS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    public interface Listener {
+        void onRecordingFinished(File file, boolean success);
+    }
+
+    private final File file;
+    private final int width;
+    private final int height;
+    private final EglBase.Context sharedContext;
+    private final HandlerThread thread = new HandlerThread("CallRecorder");
+    private Handler handler;
+
+    private final AtomicReference<VideoFrame> pendingRemote = new AtomicReference<>();
+    private final AtomicReference<VideoFrame> pendingLocal = new AtomicReference<>();
+    private final VideoSink localSink = frame -> offer(pendingLocal, frame);
+
+    // Recorder thread only.
+    private EglBase eglBase;
+    private GlRectDrawer drawer;
+    private VideoFrameDrawer frameDrawer;
+    private MediaCodec videoEncoder;
+    private MediaCodec audioEncoder;
+    private Surface inputSurface;
+    private RecordingMuxer muxer;
+    private VideoFrame lastLocal;
+    private long lastRemoteNs;
+    private final FrameRateLimiter limiter = new FrameRateLimiter(VIDEO_FPS);
+    private final ArrayDeque<short[]> micChunks = new ArrayDeque<>();
+    private final ArrayDeque<short[]> remoteChunks = new ArrayDeque<>();
+    private final ArrayDeque<Integer> freeAudioInputs = new ArrayDeque<>();
+    private int audioSampleRate;
+    private int remoteSampleRate;
+    private long startNs;
+    private long audioSamplesQueued;
+    private boolean videoDone;
+    private boolean audioDone;
+    private boolean audioEndQueued;
+    private boolean stopping;
+    private volatile boolean recording;
+    private final Listener listener;
+
+    /** {@code width} and {@code height} should be multiples of 16 for the widest encoder support. */
+    public CallRecorder(EglBase.Context sharedContext, File file, int width, int height, Listener listener) {
+        this.sharedContext = sharedContext;
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.listener = listener;
+    }
+
+    /** Sink for the local camera track; the recorder itself is the remote sink. */
+    public VideoSink getLocalSink() {
+        return localSink;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public void start() throws IOException {
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        muxer = new RecordingMuxer(file, 2, TRACK_VIDEO);
+        videoEncoder = MediaCodec.createEncoderByType(VIDEO_MIME);
+        audioEncoder = MediaCodec.createEncoderByType(AUDIO_MIME);
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        runAndWait(() -> {
+            try {
+                startVideoEncoder();
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        if (failure.get() != null) {
+            release();
+            throw new IOException("Failed to start video encoder", failure.get());
+        }
+        startNs = System.nanoTime();
+        recording = true;
+        LOG.debug("Recording {}x{} to {}", width, height, file);
+    }
+
+    /** Drains both encoders, finalizes the file and calls the listener from the writer thread. */
+    public void stop() {
+        if (!recording) return;
+        recording = false;
+        handler.post(() -> {
+            stopping = true;
+            releaseFrame(pendingRemote.getAndSet(null));
+            releaseFrame(pendingLocal.getAndSet(null));
+            releaseFrame(lastLocal);
+            lastLocal = null;
+            videoEncoder.signalEndOfInputStream();
+            if (audioSampleRate == 0) {
+                // No audio ever arrived; the muxer still expects the track, so give it a silent one.
+                startAudioEncoder(48000);
+                micChunks.add(new short[480]);
+            }
+            feedAudio();
+        });
+    }
+
+    @Override
+    public void onFrame(VideoFrame frame) {
+        offer(pendingRemote, frame);
+    }
+
+    private void offer(AtomicReference<VideoFrame> slot, VideoFrame frame) {
+        if (!recording) return;
+        frame.retain();
+        VideoFrame previous = slot.getAndSet(frame);
+        if (previous != null) {
+            previous.release();
+        } else {
+            handler.post(this::drawPending);
+        }
+    }
+
+    /** Microphone samples from the audio device module, every 10 ms on its record thread. */
+    @Override
+    public void onWebRtcAudioRecordSamplesReady(JavaAudioDeviceModule.AudioSamples samples) {
+        if (!recording) return;
+        short[] mono = toMono(ByteBuffer.wrap(samples.getData()), samples.getChannelCount(),
+                samples.getData().length / 2 / samples.getChannelCount());
+        int sampleRate = samples.getSampleRate();
+        handler.post(() -> {
+            if (stopping || audioEncoder == null) return;
+            if (audioSampleRate == 0) {
+                startAudioEncoder(sampleRate);
+            }
+            micChunks.add(mono);
+            feedAudio();
+        });
+    }
+
+    /** Decoded remote audio, every 10 ms on WebRTC's playout thread. */
+    @Override
+    public void onData(ByteBuffer audioData, int bitsPerSample, int sampleRate, int numberOfChannels,
+                       int numberOfFrames, long absoluteCaptureTimestampMs) {
+        if (!recording || bitsPerSample != 16) return;
+        short[] mono = toMono(audioData, numberOfChannels, numberOfFrames);
+        handler.post(() -> {
+            if (stopping) return;
+            remoteSampleRate = sampleRate;
+            remoteChunks.add(mono);
+            while (remoteChunks.size() > MAX_QUEUED_REMOTE_CHUNKS) {
+                remoteChunks.poll();
+            }
+        });
+    }
+
+    private static short[] toMono(ByteBuffer data, int channels, int frames) {
+        ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        short[] mono = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += buffer.getShort();
+            }
+            mono[i] = (short) (sum / channels);
+        }
+        return mono;
+    }
+
+    private void startVideoEncoder() {
+        MediaFormat format = MediaFormat.createVideoFormat(VIDEO_MIME, width, height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, VIDEO_BITRATE);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, VIDEO_FPS);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_SECONDS);
+        videoEncoder.setCallback(new EncoderCallback(TRACK_VIDEO), handler);
+        videoEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        inputSurface = videoEncoder.createInputSurface();
+
+        eglBase = EglBase.create(sharedContext, EglBase.CONFIG_RECORDABLE);
+        eglBase.createSurface(inputSurface);
+        eglBase.makeCurrent();
+        drawer = new GlRectDrawer();
+        frameDrawer = new VideoFrameDrawer();
+        videoEncoder.start();
+    }
+
+    private void startAudioEncoder(int sampleRate) {
+        audioSampleRate = sampleRate;
+        MediaFormat format = MediaFormat.createAudioFormat(AUDIO_MIME, sampleRate, 1);
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, AUDIO_BITRATE);
+        audioEncoder.setCallback(new EncoderCallback(TRACK_AUDIO), handler);
+        audioEncoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        audioEncoder.start();
+    }
+
+    private void drawPending() {
+        VideoFrame local = pendingLocal.getAndSet(null);
+        if (local != null) {
+            releaseFrame(lastLocal);
+            lastLocal = local;
+        }
+        VideoFrame remote = pendingRemote.getAndSet(null);
+        long now = System.nanoTime();
+        if (remote != null) {
+            lastRemoteNs = now;
+        } else if (local == null || now - lastRemoteNs < REMOTE_STALE_NS) {
+            // Only local frames drive the picture once the remote has gone quiet.
+            return;
+        }
+        if (stopping || muxer == null || muxer.isBackedUp() || !limiter.shouldRender(now)) {
+            releaseFrame(remote);
+            return;
+        }
+
+        GLES20.glClearColor(0, 0, 0, 1);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        if (remote != null) {
+            drawFitted(remote, 0, 0, width, height);
+            remote.release();
+        }
+        if (lastLocal != null) {
+            if (remote != null || now - lastRemoteNs < REMOTE_STALE_NS) {
+                int insetWidth = width / 4;
+                int insetHeight = height / 4;
+                drawFitted(lastLocal, width - insetWidth - 16, 16, insetWidth, insetHeight);
+            } else {
+                drawFitted(lastLocal, 0, 0, width, height);
+            }
+        }
+        eglBase.swapBuffers(now - startNs);
+    }
+
+    /** Draws {@code frame} letterboxed into the given viewport, keeping its aspect ratio. */
+    private void drawFitted(VideoFrame frame, int x, int y, int viewportWidth, int viewportHeight) {
+        float frameAspect = (float) frame.getRotatedWidth() / frame.getRotatedHeight();
+        int drawWidth = viewportWidth;
+        int drawHeight = Math.round(viewportWidth / frameAspect);
+        if (drawHeight > viewportHeight) {
+            drawHeight = viewportHeight;
+            drawWidth = Math.round(viewportHeight * frameAspect);
+        }
+        frameDrawer.drawFrame(frame, drawer, null,
+                x + (viewportWidth - drawWidth) / 2, y + (viewportHeight - drawHeight) / 2, drawWidth, drawHeight);
+    }
+
+    private void feedAudio() {
+        while (!audioEndQueued && !freeAudioInputs.isEmpty() && (!micChunks.isEmpty() || stopping)) {
+            int index = freeAudioInputs.poll();
+            long ptsUs = TimeUnit.NANOSECONDS.toMicros(
+                    TimeUnit.SECONDS.toNanos(audioSamplesQueued) / audioSampleRate);
+            short[] mic = micChunks.poll();
+            if (mic == null) {
+                audioEncoder.queueInputBuffer(index, 0, 0, ptsUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                audioEndQueued = true;
+                return;
+            }
+            short[] remote = remoteSampleRate == audioSampleRate ? remoteChunks.poll() : null;
+            ByteBuffer input = audioEncoder.getInputBuffer(index).order(ByteOrder.LITTLE_ENDIAN);
+            input.clear();
+            int samples = Math.min(mic.length, input.remaining() / 2);
+            for (int i = 0; i < samples; i++) {
+                int mixed = mic[i] + (remote != null && i < remote.length ? remote[i] : 0);
+                input.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixed)));
+            }
+            audioEncoder.queueInputBuffer(index, 0, samples * 2, ptsUs, 0);
+            audioSamplesQueued += samples;
+        }
+    }
+
+    private final class EncoderCallback extends MediaCodec.Callback {
+        private final int track;
+
+        EncoderCallback(int track) {
+            this.track = track;
+        }
+
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            if (muxer == null) return;
+            // Only the audio encoder has input buffers; video comes in through the surface.
+            freeAudioInputs.add(index);
+            feedAudio();
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            if (muxer == null) {
+                // The other encoder failed and the recording is over; this one is released next.
+                codec.releaseOutputBuffer(index, false);
+                return;
+            }
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0) {
+                muxer.writeSample(track, codec.getOutputBuffer(index), info);
+            }
+            codec.releaseOutputBuffer(index, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                if (track == TRACK_VIDEO) {
+                    videoDone = true;
+                } else {
+                    audioDone = true;
+                }
+                if (videoDone && audioDone) {
+                    finish(true);
+                }
+            }
+        }
+
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            LOG.error("{} encoder error", track == TRACK_VIDEO ? "Video" : "Audio", e);
+            recording = false;
+            finish(false);
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            if (muxer == null) return;
+            muxer.addTrack(track, format);
+        }
+    }
+
+    private void finish(boolean encodersDrained) {
+        if (muxer == null) return;
+        stopping = true;
+        RecordingMuxer finishing = muxer;
+        muxer = null;
+        finishing.finish((recordedFile, success) ->
+                listener.onRecordingFinished(recordedFile, success && encodersDrained));
+        handler.post(this::release);
+    }
+
+    private void release() {
+        releaseFrame(lastLocal);
+        lastLocal = null;
+        if (videoEncoder != null) {
+            videoEncoder.release();
+            videoEncoder = null;
+        }
+        if (audioEncoder != null) {
+            audioEncoder.release();
+            audioEncoder = null;
+        }
+        if (drawer != null) {
+            drawer.release();
+            drawer = null;
+        }
+        if (frameDrawer != null) {
+            frameDrawer.release();
+            frameDrawer = null;
+        }
+        if (eglBase != null) {
+            eglBase.release();
+            eglBase = null;
+        }
+        if (inputSurface != null) {
+            inputSurface.release();
+            inputSurface = null;
+        }
+        thread.quitSafely();
+    }
+
+    private static void releaseFrame(VideoFrame frame) {
+        if (frame != null) {
+            frame.release();
+        }
+    }
+
+    private void runAndWait(Runnable runnable) {
+        Object lock = new Object();
+        boolean[] done = new boolean[1];
+        handler.post(() -> {
+            runnable.run();
+            synchronized (lock) {
+                done[0] = true;
+                lock.notifyAll();
+            }
+        });
+        synchronized (lock) {
+            while (!done[0]) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,775 @@
+package com.example.videocallapp;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ServiceInfo;
+import android.net.ConnectivityManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+
+import com.example.janus.core.EventLog;
+import com.example.janus.core.PresenceCache;
+import com.example.janus.core.SimulcastLayer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaStream;
+import org.webrtc.PeerConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the call engine: the Janus connection, the PeerConnection with its
+ * camera and audio device, and the group call. Activities bind to it and only
+ * attach renderers, so rotation or the activity being recycled no longer tears
+ * the call down. While signed in the service runs in the foreground with the
+ * camera and microphone service types, which keeps capture alive with no
+ * activity on screen.
+ *
+ * <p>Everything here runs on the main thread; engine callbacks are posted to it.
+ */
+public class CallService extends Service implements JanusWebSocketClient.JanusListener,
+        PeerConnectionClient.PeerConnectionListener, GroupCallClient.GroupCallListener,
+        DataChannelMessenger.Listener {
+    private static final String TAG = "CallService";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    private static final String NOTIFICATION_CHANNEL_ID = "call";
+    private static final int NOTIFICATION_ID = 1;
+    private static final int SIGNALING_RECORDING_MAX_BYTES = 4 * 1024 * 1024;
+    private static final String SERVER_URI = "wss://janus.hobenaki.com/";
+    private static final int VIDEOCALL_ERROR_NO_SUCH_USERNAME = 478;
+
+    public static final int MESSAGE_TYPE_CHAT = 1;
+    public static final int MESSAGE_TYPE_REACTION = 2;
+
+    /** What the attached activity shows. Called on the main thread. */
+    public interface UiListener {
+        void onStatus(String status);
+        void onLocalVideo();
+        void onRemoteVideo();
+        void onCallEnded();
+    }
+
+    public class LocalBinder extends Binder {
+        public CallService getService() {
+            return CallService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final VideoSinkProxy localVideoSink = new VideoSinkProxy();
+    private final VideoSinkProxy remoteVideoSink = new VideoSinkProxy();
+    private final AudioCodecPolicy audioCodecPolicy = new AdaptiveOpusPolicy();
+
+    private JanusWebSocketClient webSocketClient;
+    private PeerConnectionClient peerConnectionClient;
+    private GroupCallClient groupCallClient;
+    private PresenceMonitor presenceMonitor;
+    private NetworkMonitor networkMonitor;
+    private String calledPeer;
+    private long displayedFeedId;
+    private UiListener uiListener;
+    private boolean uiFinished;
+    private String status = "";
+    private boolean inBackground;
+    private boolean audioOnly;
+    private boolean videoPaused;
+    private boolean foreground;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        AppLog.installCrashHandler(this);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Started as well as bound so the engine outlives an activity being recreated.
+        return START_NOT_STICKY;
+    }
+
+    public void setUiListener(UiListener uiListener) {
+        this.uiListener = uiListener;
+        if (uiListener != null) {
+            uiFinished = false;
+            if (!status.isEmpty()) {
+                uiListener.onStatus(status);
+            }
+        }
+    }
+
+    /**
+     * Tells the service the activity is finishing for good rather than being
+     * recreated (rotation, or destroyed in the background), so a call ending
+     * meanwhile leaves nothing to serve.
+     */
+    public void setUiFinished(boolean finished) {
+        uiFinished = finished;
+    }
+
+    public void attachRenderers(RenderController.Tile local, RenderController.Tile remote) {
+        localVideoSink.setTarget(local);
+        remoteVideoSink.setTarget(remote);
+    }
+
+    public void detachRenderers() {
+        localVideoSink.setTarget(null);
+        remoteVideoSink.setTarget(null);
+    }
+
+    public boolean isRegistered() {
+        return webSocketClient != null;
+    }
+
+    public boolean isInCall() {
+        return peerConnectionClient != null;
+    }
+
+    public boolean isRecording() {
+        return peerConnectionClient != null && peerConnectionClient.isRecording();
+    }
+
+    public void register(String username) {
+        if (!isNetworkAvailable()) {
+            setStatus("No network connection");
+            return;
+        }
+        // Entered now, while the user is in the app: from Android 12 a service
+        // can't move to the foreground once the app is in the background, which
+        // is exactly when incoming calls arrive.
+        enterForeground("Signed in as " + username);
+        startNetworkMonitor();
+
+        new Thread(() -> {
+            try {
+                URI serverUri = new URI(SERVER_URI);
+                Map<String, String> httpHeaders = new HashMap<>();
+                httpHeaders.put("Sec-WebSocket-Protocol", "janus-protocol");
+
+                postStatus("Connecting to Janus server...");
+
+                JanusWebSocketClient client = new JanusWebSocketClient(serverUri, this, httpHeaders);
+                client.setUsername(username);
+                if (isDebuggable()) {
+                    startSignalingRecording(client);
+                }
+                PresenceMonitor monitor = new PresenceMonitor(client);
+                mainHandler.post(() -> {
+                    webSocketClient = client;
+                    presenceMonitor = monitor;
+                    monitor.start();
+                });
+                client.connectWithTimeout();
+            } catch (Exception e) {
+                postStatus("Connection failed: " + e.getMessage());
+                LOG.error("WebSocket connection error", e);
+            }
+        }).start();
+    }
+
+    public void callPeer(String peerUsername) {
+        if (presenceMonitor != null
+                && presenceMonitor.lookup(peerUsername) == PresenceCache.Presence.OFFLINE) {
+            // Known offline: skip the camera start, the offer and Janus' error round trip.
+            setStatus(peerUsername + " is offline");
+            return;
+        }
+        calledPeer = peerUsername;
+        if (peerConnectionClient == null) {
+            peerConnectionClient = createPeerConnectionClient();
+            peerConnectionClient.createPeerConnection();
+            peerConnectionClient.startLocalVideo();
+            enterForeground("Calling " + peerUsername);
+        }
+
+        peerConnectionClient.createOffer(peerUsername);
+        setStatus("Calling " + peerUsername + "...");
+    }
+
+    /** Refreshes presence now if it is stale, e.g. when the user starts typing a peer name. */
+    public void prefetchPresence() {
+        if (presenceMonitor != null) {
+            presenceMonitor.prefetch();
+        }
+    }
+
+    /** Online users whose name starts with {@code prefix}, answered from the presence cache. */
+    public List<String> searchUsers(String prefix, int limit) {
+        return presenceMonitor != null ? presenceMonitor.search(prefix, limit) : Collections.emptyList();
+    }
+
+    public void joinRoom(long roomId, String display) {
+        if (webSocketClient == null) {
+            setStatus("Please register first");
+            return;
+        }
+        if (groupCallClient != null || peerConnectionClient != null) {
+            setStatus("Hang up first");
+            return;
+        }
+
+        peerConnectionClient = createPeerConnectionClient();
+        groupCallClient = new GroupCallClient(webSocketClient, peerConnectionClient, roomId, display, this);
+        groupCallClient.setVideoPaused(videoPaused);
+        groupCallClient.join();
+        enterForeground("In room " + roomId);
+        setStatus("Joining room " + roomId + "...");
+    }
+
+    public void hangup() {
+        if (groupCallClient != null) {
+            leaveRoom();
+        } else {
+            if (webSocketClient != null) {
+                webSocketClient.hangup();
+            }
+
+            if (peerConnectionClient != null) {
+                peerConnectionClient.close();
+                peerConnectionClient = null;
+            }
+        }
+        endCall("Call ended");
+    }
+
+    /** Returns false, changing nothing, outside a 1:1 call. */
+    public boolean startRecording(File file) throws IOException {
+        if (peerConnectionClient == null || groupCallClient != null) {
+            return false;
+        }
+        peerConnectionClient.startRecording(file, (recordedFile, success) -> postStatus(
+                success ? "Recording saved to " + recordedFile.getName() : "Recording failed"));
+        return true;
+    }
+
+    public void stopRecording() {
+        if (peerConnectionClient != null) {
+            peerConnectionClient.stopRecording();
+        }
+    }
+
+    /** Returns false if messaging is unavailable; throws if {@code text} is too long. */
+    public boolean sendChatMessage(String text) {
+        DataChannelMessenger messenger = getMessenger();
+        if (messenger == null) {
+            return false;
+        }
+        messenger.send(MESSAGE_TYPE_CHAT, text.getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    public void sendReaction() {
+        DataChannelMessenger messenger = getMessenger();
+        if (messenger != null) {
+            messenger.sendEphemeral(MESSAGE_TYPE_REACTION, new byte[] {1});
+        }
+    }
+
+    public void setAudioOnly(boolean audioOnly) {
+        this.audioOnly = audioOnly;
+        updateVideoMode();
+    }
+
+    /** Whether any activity of ours is visible; video stops while none is. */
+    public void setInBackground(boolean inBackground) {
+        this.inBackground = inBackground;
+        updateVideoMode();
+    }
+
+    /** Releases the engine and stops the service; used once the user leaves the app with no call up. */
+    public void shutdown() {
+        if (groupCallClient != null) {
+            leaveRoom();
+        } else if (peerConnectionClient != null) {
+            peerConnectionClient.close();
+            peerConnectionClient = null;
+        }
+        stopPresenceMonitor();
+        stopNetworkMonitor();
+        if (webSocketClient != null) {
+            webSocketClient.close();
+            webSocketClient = null;
+        }
+        exitForeground();
+        stopSelf();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (webSocketClient != null || peerConnectionClient != null) {
+            shutdown();
+        }
+    }
+
+    /**
+     * Drops the call to audio-only while no activity is visible or the user
+     * asked for it: camera, encoder and renderers stop, and Janus stops relaying
+     * our video. Coming back only restarts the camera; nothing is renegotiated.
+     */
+    private void updateVideoMode() {
+        boolean pause = inBackground || audioOnly;
+        if (pause == videoPaused) {
+            return;
+        }
+        videoPaused = pause;
+        if (peerConnectionClient != null) {
+            peerConnectionClient.setVideoPaused(pause);
+        }
+        if (groupCallClient != null) {
+            groupCallClient.setVideoPaused(pause);
+        } else if (peerConnectionClient != null && webSocketClient != null) {
+            webSocketClient.setMedia(true, !pause);
+        }
+    }
+
+    private PeerConnectionClient createPeerConnectionClient() {
+        PeerConnectionClient client = new PeerConnectionClient(
+                getApplicationContext(),
+                webSocketClient,
+                localVideoSink,
+                remoteVideoSink,
+                this
+        );
+        client.setVideoPaused(videoPaused);
+        client.setAudioCodecPolicy(audioCodecPolicy);
+        client.setMessageListener(this);
+        return client;
+    }
+
+    private DataChannelMessenger getMessenger() {
+        if (peerConnectionClient == null || groupCallClient != null) {
+            return null;
+        }
+        return peerConnectionClient.getMessenger();
+    }
+
+    /**
+     * Leaves the room and releases the camera once both PeerConnections are gone;
+     * the tracks must outlive the senders that reference them.
+     */
+    private void leaveRoom() {
+        PeerConnectionClient media = peerConnectionClient;
+        groupCallClient.leave(() -> mainHandler.post(() -> {
+            if (media != null) {
+                media.close();
+            }
+        }));
+        groupCallClient = null;
+        peerConnectionClient = null;
+        displayedFeedId = 0;
+    }
+
+    private void stopPresenceMonitor() {
+        if (presenceMonitor != null) {
+            presenceMonitor.stop();
+            presenceMonitor = null;
+        }
+    }
+
+    private void startNetworkMonitor() {
+        if (networkMonitor == null) {
+            networkMonitor = new NetworkMonitor(
+                    (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE),
+                    mainHandler, this::onNetworkHandover);
+            networkMonitor.start();
+        }
+    }
+
+    private void stopNetworkMonitor() {
+        if (networkMonitor != null) {
+            networkMonitor.stop();
+            networkMonitor = null;
+        }
+    }
+
+    /**
+     * Moves signaling and media to the new default network while the old one
+     * is, usually, still up. The Janus session is claimed on a second socket
+     * while the first keeps working, and a 1:1 call restarts ICE right away:
+     * its offer goes out on whichever socket carries the session at the time.
+     * Continual gathering already trickles candidates for the new network,
+     * which is all a group call gets.
+     */
+    private void onNetworkHandover(String description) {
+        JanusWebSocketClient client = webSocketClient;
+        if (client == null) {
+            return;
+        }
+        client.migrate(new JanusWebSocketClient.MigrationCallback() {
+            @Override
+            public void onMigrated() {
+                LOG.info("Signaling moved to the new network");
+            }
+
+            @Override
+            public void onError(String error) {
+                LOG.warn("Signaling not migrated: {}", error);
+            }
+        });
+        if (peerConnectionClient != null && groupCallClient == null) {
+            peerConnectionClient.measureHandover(description);
+            peerConnectionClient.restartIce();
+        }
+    }
+
+    private void endCall(String message) {
+        calledPeer = null;
+        setStatus(message);
+        remoteVideoSink.clearImage();
+        if (foreground && webSocketClient != null) {
+            enterForeground("Waiting for calls");
+        }
+        if (uiListener != null) {
+            uiListener.onCallEnded();
+        } else if (uiFinished) {
+            // The activity finished while the call was up; nothing is left to serve.
+            shutdown();
+        }
+    }
+
+    private boolean isNetworkAvailable() {
+        return NetworkMonitor.isConnected((ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE));
+    }
+
+    private boolean isDebuggable() {
+        return (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    private void startSignalingRecording(JanusWebSocketClient client) {
+        try {
+            client.startRecording(new File(getCacheDir(), "signaling.jsrl"), SIGNALING_RECORDING_MAX_BYTES);
+        } catch (IOException e) {
+            LOG.warn("Signaling recording disabled", e);
+        }
+    }
+
+    private void enterForeground(String text) {
+        Notification notification = buildNotification(text);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            startForeground(NOTIFICATION_ID, notification,
+                    ServiceInfo.FOREGROUND_SERVICE_TYPE_CAMERA | ServiceInfo.FOREGROUND_SERVICE_TYPE_MICROPHONE);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+        foreground = true;
+    }
+
+    private void exitForeground() {
+        if (foreground) {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            foreground = false;
+        }
+    }
+
+    private Notification buildNotification(String text) {
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        manager.createNotificationChannel(new NotificationChannel(NOTIFICATION_CHANNEL_ID,
+                "Ongoing call", NotificationManager.IMPORTANCE_LOW));
+
+        Intent openIntent = new Intent(this, MainActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, openIntent,
+                PendingIntent.FLAG_IMMUTABLE);
+        return new Notification.Builder(this, NOTIFICATION_CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(text)
+                .setContentIntent(contentIntent)
+                .setOngoing(true)
+                .build();
+    }
+
+    private void setStatus(String status) {
+        this.status = status;
+        if (uiListener != null) {
+            uiListener.onStatus(status);
+        }
+    }
+
+    private void postStatus(String status) {
+        mainHandler.post(() -> setStatus(status));
+    }
+
+    @Override
+    public void onJanusConnected() {
+        postStatus("Connected to Janus server");
+    }
+
+    @Override
+    public void onJanusDisconnected() {
+        mainHandler.post(() -> {
+            if (groupCallClient != null) {
+                leaveRoom();
+            } else if (peerConnectionClient != null) {
+                peerConnectionClient.close();
+                peerConnectionClient = null;
+            }
+            webSocketClient = null;
+            stopPresenceMonitor();
+            stopNetworkMonitor();
+            exitForeground();
+            endCall("Disconnected from Janus server");
+        });
+    }
+
+    @Override
+    public void onJanusError(String error) {
+        postStatus("Error: " + error);
+    }
+
+    @Override
+    public void onJanusEvent(JSONObject event) {
+        try {
+            if (event.has("janus")) {
+                String janus = event.getString("janus");
+
+                if (janus.equals("event")) {
+                    if (event.has("plugindata")) {
+                        JSONObject plugindata = event.getJSONObject("plugindata");
+                        JSONObject data = plugindata.getJSONObject("data");
+
+                        if (data.optInt("error_code") == VIDEOCALL_ERROR_NO_SUCH_USERNAME) {
+                            handleUnknownPeer();
+                        } else if (data.has("result")) {
+                            JSONObject result = data.getJSONObject("result");
+
+                            if (result.has("event")) {
+                                handlePluginEvent(event, result.getString("event"), result);
+                            }
+                        }
+                    }
+                } else if (janus.equals("webrtcup")) {
+                    postStatus("Call established");
+                } else if (janus.equals("hangup")) {
+                    long sender = event.optLong("sender");
+                    mainHandler.post(() -> {
+                        // A videoroom handle's hangup can arrive after its detach and
+                        // land here; only the videocall handle's ends a 1:1 call.
+                        if (webSocketClient == null || sender != webSocketClient.getHandleId()) {
+                            return;
+                        }
+                        hangup();
+                        setStatus("Call ended by remote peer");
+                    });
+                } else if (janus.equals("trickle")) {
+                    handleTrickleEvent(event);
+                }
+            }
+        } catch (JSONException e) {
+            LOG.error("Error parsing Janus event", e);
+        }
+    }
+
+    private void handlePluginEvent(JSONObject event, String eventType, JSONObject result) throws JSONException {
+        switch (eventType) {
+            case "incomingcall":
+                handleIncomingCall(event, result);
+                break;
+            case "accepted":
+                handleCallAccepted(event);
+                break;
+            case "update":
+                handleUpdate(event);
+                break;
+            default:
+                LOG.debug("Unhandled event type: {}", eventType);
+        }
+    }
+
+    private void handleIncomingCall(JSONObject event, JSONObject result) throws JSONException {
+        String caller = result.getString("username");
+        mainHandler.post(() -> {
+            if (presenceMonitor != null) {
+                presenceMonitor.observe(caller, true);
+            }
+            setStatus("Incoming call from " + caller);
+            if (peerConnectionClient == null) {
+                peerConnectionClient = createPeerConnectionClient();
+                peerConnectionClient.createPeerConnection();
+                peerConnectionClient.startLocalVideo();
+                enterForeground("In call with " + caller);
+            }
+
+            if (event.has("jsep")) {
+                try {
+                    JSONObject jsep = event.getJSONObject("jsep");
+                    peerConnectionClient.setRemoteDescription(jsep);
+                } catch (JSONException e) {
+                    LOG.error("Error parsing JSEP", e);
+                    setStatus("Error parsing call data");
+                }
+            }
+        });
+    }
+
+    /** The peer we called is not registered: remember that and release the camera we started. */
+    private void handleUnknownPeer() {
+        mainHandler.post(() -> {
+            String peer = calledPeer;
+            if (peer == null) return;
+            if (presenceMonitor != null) {
+                presenceMonitor.observe(peer, false);
+            }
+            hangup();
+            setStatus(peer + " is offline");
+        });
+    }
+
+    private void handleCallAccepted(JSONObject event) throws JSONException {
+        postStatus("Call accepted");
+        if (event.has("jsep")) {
+            JSONObject jsep = event.getJSONObject("jsep");
+            mainHandler.post(() -> {
+                if (peerConnectionClient != null) {
+                    peerConnectionClient.setRemoteDescription(jsep);
+                }
+            });
+        }
+    }
+
+    /** The peer renegotiated, e.g. restarted ICE after its own handover, or answered our restart. */
+    private void handleUpdate(JSONObject event) throws JSONException {
+        if (event.has("jsep")) {
+            JSONObject jsep = event.getJSONObject("jsep");
+            mainHandler.post(() -> {
+                if (peerConnectionClient != null && groupCallClient == null) {
+                    peerConnectionClient.setRemoteDescription(jsep);
+                }
+            });
+        }
+    }
+
+    private void handleTrickleEvent(JSONObject event) throws JSONException {
+        if (event.has("candidate")) {
+            JSONObject candidate = event.getJSONObject("candidate");
+            mainHandler.post(() -> {
+                if (peerConnectionClient != null) {
+                    peerConnectionClient.addIceCandidate(candidate);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onJoined(long roomId, long publisherId) {
+        postStatus("Joined room " + roomId);
+    }
+
+    /**
+     * The layout has a single remote tile: the first participant is shown at the
+     * top simulcast layer and the rest stay audio-only until it frees up.
+     */
+    @Override
+    public void onParticipantJoined(long feedId, String display) {
+        mainHandler.post(() -> {
+            if (groupCallClient == null || displayedFeedId != 0) return;
+            displayedFeedId = feedId;
+            groupCallClient.setVisible(feedId, remoteVideoSink, SimulcastLayer.HIGH);
+            if (uiListener != null) {
+                uiListener.onRemoteVideo();
+            }
+            setStatus("Watching " + display);
+        });
+    }
+
+    @Override
+    public void onParticipantLeft(long feedId) {
+        mainHandler.post(() -> {
+            if (feedId != displayedFeedId) return;
+            displayedFeedId = 0;
+            remoteVideoSink.clearImage();
+            setStatus("Participant left");
+        });
+    }
+
+    @Override
+    public void onLocalStream(MediaStream stream) {
+        mainHandler.post(() -> {
+            LOG.debug("Local stream added");
+            if (uiListener != null) {
+                uiListener.onLocalVideo();
+            }
+        });
+    }
+
+    @Override
+    public void onRemoteStream(MediaStream stream) {
+        mainHandler.post(() -> {
+            LOG.debug("Remote stream added");
+            if (uiListener != null) {
+                uiListener.onRemoteVideo();
+            }
+        });
+    }
+
+    @Override
+    public void onIceCandidate(IceCandidate candidate) {
+        // Handled by PeerConnectionClient
+    }
+
+    @Override
+    public void onConnectionChange(PeerConnection.PeerConnectionState state) {
+        mainHandler.post(() -> {
+            switch (state) {
+                case CONNECTED:
+                    setStatus("Connected");
+                    break;
+                case DISCONNECTED:
+                    setStatus("Disconnected");
+                    break;
+                case FAILED:
+                    hangup();
+                    setStatus("Connection failed");
+                    break;
+                case CLOSED:
+                    setStatus("Connection closed");
+                    break;
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(int type, byte[] payload) {
+        if (type == MESSAGE_TYPE_CHAT) {
+            postStatus("Peer: " + new String(payload, StandardCharsets.UTF_8));
+        } else if (type == MESSAGE_TYPE_REACTION) {
+            postStatus("Peer reacted +1");
+        }
+    }
+
+    @Override
+    public void onMessageDelivered(long seq, int type, long roundTripMs) {
+        if (AppLog.VERBOSE) {
+            LOG.verbose("Message {} delivered, round trip {} ms", seq, roundTripMs);
+        }
+    }
+
+    @Override
+    public void onError(String error) {
+        postStatus("Error: " + error);
+    }
+}
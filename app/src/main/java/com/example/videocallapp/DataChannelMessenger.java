@@ -0,0 +1,294 @@
+package com.example.videocallapp;
+
+import com.example.janus.core.EventLog;
+import com.example.janus.core.LongObjectMap;
+
+import org.webrtc.DataChannel;
+import org.webrtc.PeerConnection;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-call messaging over WebRTC data channels, relayed by the videocall plugin
+ * alongside the media instead of sharing the signaling WebSocket.
+ *
+ * <p>Two channels are opened before the offer so they are part of the SDP:
+ * {@value #RELIABLE_LABEL} (ordered, reliable) for chat, control and acks, and
+ * {@value #EPHEMERAL_LABEL} (unordered, no retransmits) for reactions and
+ * pointer moves, where a late message is worse than a lost one. Messages are
+ * framed with {@link DataFrameCodec} and batched for up to
+ * {@value #BATCH_DELAY_MS} ms into one SCTP-packet-sized send.
+ *
+ * <p>Every reliable message is acked by the receiver over the reliable channel,
+ * so each one is eventually reported as delivered; the time from
+ * {@link #send} to the ack is reported per message as its round trip. All state
+ * lives on one executor thread.
+ */
+public class DataChannelMessenger {
+    private static final String TAG = "DataChannelMessenger";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+
+    public static final String RELIABLE_LABEL = "messages";
+    public static final String EPHEMERAL_LABEL = "events";
+
+    /** Keeps a batch inside one SCTP packet on a typical 1280+ byte path MTU. */
+    private static final int MAX_BATCH_BYTES = 1200;
+    private static final long BATCH_DELAY_MS = 5;
+    /** Reliable data waits in our queue instead of SCTP's once this much is unsent. */
+    private static final long MAX_RELIABLE_BUFFERED = 256 * 1024;
+    /** Ephemeral data is dropped rather than queued behind this much. */
+    private static final long MAX_EPHEMERAL_BUFFERED = 16 * 1024;
+
+    public interface Listener {
+        void onMessage(int type, byte[] payload);
+
+        /** A reliable message was acked {@code roundTripMs} after it was handed to {@link #send}. */
+        void onMessageDelivered(long seq, int type, long roundTripMs);
+    }
+
+    private static final class Outgoing {
+        final long seq;
+        final int type;
+        final byte[] payload;
+        final long queuedNs;
+
+        Outgoing(long seq, int type, byte[] payload, long queuedNs) {
+            this.seq = seq;
+            this.type = type;
+            this.payload = payload;
+            this.queuedNs = queuedNs;
+        }
+    }
+
+    private final Listener listener;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            r -> new Thread(r, "DataChannelMessenger"));
+    private final DataChannel reliable;
+    private final DataChannel ephemeral;
+    private final AtomicLong nextSeq = new AtomicLong(1);
+
+    // Executor thread only.
+    private final ArrayDeque<Outgoing> reliableQueue = new ArrayDeque<>();
+    private final ArrayDeque<Outgoing> ephemeralQueue = new ArrayDeque<>();
+    private final ArrayDeque<Long> acksToSend = new ArrayDeque<>();
+    private final List<DataChannel> remoteChannels = new ArrayList<>();
+    private final LongObjectMap<Outgoing> awaitingAck = new LongObjectMap<>();
+    private final DataFrameCodec.BatchWriter writer = new DataFrameCodec.BatchWriter(MAX_BATCH_BYTES);
+    private ScheduledFuture<?> flushTask;
+    private long delivered;
+    private long totalRoundTripMs;
+    private long maxRoundTripMs;
+    private long ephemeralDropped;
+    private boolean closed;
+
+    /** Opens both channels on {@code connection}; call before creating the offer or answer. */
+    public DataChannelMessenger(PeerConnection connection, Listener listener) {
+        this.listener = listener;
+
+        DataChannel.Init reliableInit = new DataChannel.Init();
+        reliableInit.ordered = true;
+        reliable = connection.createDataChannel(RELIABLE_LABEL, reliableInit);
+
+        DataChannel.Init ephemeralInit = new DataChannel.Init();
+        ephemeralInit.ordered = false;
+        ephemeralInit.maxRetransmits = 0;
+        ephemeral = connection.createDataChannel(EPHEMERAL_LABEL, ephemeralInit);
+
+        observe(reliable);
+        observe(ephemeral);
+    }
+
+    /** Channels opened by the far side (Janus relays by label) are read like our own. */
+    public void onRemoteDataChannel(DataChannel channel) {
+        observe(channel);
+        boolean queued = execute(() -> {
+            if (closed) {
+                release(channel);
+            } else {
+                remoteChannels.add(channel);
+            }
+        });
+        if (!queued) {
+            // Already closed, so nothing else will release it.
+            release(channel);
+        }
+    }
+
+    /** Queues a reliable, ordered message and returns its sequence number. */
+    public long send(int type, byte[] payload) {
+        return enqueue(type, payload, true);
+    }
+
+    /** Queues a message that may be dropped or reordered; never acked. */
+    public void sendEphemeral(int type, byte[] payload) {
+        enqueue(type, payload, false);
+    }
+
+    private long enqueue(int type, byte[] payload, boolean reliableDelivery) {
+        if (payload.length > writer.maxPayload()) {
+            throw new IllegalArgumentException("Message of " + payload.length + " bytes exceeds "
+                    + writer.maxPayload());
+        }
+        Outgoing message = new Outgoing(nextSeq.getAndIncrement(), type, payload, System.nanoTime());
+        execute(() -> {
+            (reliableDelivery ? reliableQueue : ephemeralQueue).add(message);
+            scheduleFlush();
+        });
+        return message.seq;
+    }
+
+    public void close() {
+        execute(() -> {
+            closed = true;
+            if (delivered > 0) {
+                LOG.debug("Delivered {} messages, average round trip {} ms, max {} ms",
+                        delivered, totalRoundTripMs / delivered, maxRoundTripMs);
+                LOG.debug("{} ephemeral messages dropped", ephemeralDropped);
+            }
+            release(reliable);
+            release(ephemeral);
+            for (DataChannel channel : remoteChannels) {
+                release(channel);
+            }
+            remoteChannels.clear();
+        });
+        executor.shutdown();
+    }
+
+    private static void release(DataChannel channel) {
+        channel.unregisterObserver();
+        channel.close();
+        channel.dispose();
+    }
+
+    private void observe(DataChannel channel) {
+        channel.registerObserver(new DataChannel.Observer() {
+            @Override
+            public void onBufferedAmountChange(long previousAmount) {
+                execute(() -> scheduleFlush());
+            }
+
+            @Override
+            public void onStateChange() {
+                LOG.debug("Data channel {}: {}", channel.label(), channel.state());
+                execute(() -> scheduleFlush());
+            }
+
+            @Override
+            public void onMessage(DataChannel.Buffer buffer) {
+                if (!buffer.binary) {
+                    LOG.warn("Ignoring text message on {}", channel.label());
+                    return;
+                }
+                ByteBuffer copy = ByteBuffer.allocate(buffer.data.remaining());
+                copy.put(buffer.data);
+                copy.flip();
+                execute(() -> receive(copy));
+            }
+        });
+    }
+
+    private void receive(ByteBuffer batch) {
+        boolean valid = DataFrameCodec.decode(batch, new DataFrameCodec.Handler() {
+            @Override
+            public void onData(long seq, int type, byte[] payload, boolean ackRequested) {
+                if (ackRequested) {
+                    acksToSend.add(seq);
+                }
+                listener.onMessage(type, payload);
+            }
+
+            @Override
+            public void onAck(long seq) {
+                Outgoing message = awaitingAck.remove(seq);
+                if (message == null) return;
+                long roundTripMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - message.queuedNs);
+                delivered++;
+                totalRoundTripMs += roundTripMs;
+                maxRoundTripMs = Math.max(maxRoundTripMs, roundTripMs);
+                listener.onMessageDelivered(seq, message.type, roundTripMs);
+            }
+        });
+        if (!valid) {
+            LOG.warn("Dropped malformed data channel batch");
+        }
+        if (!acksToSend.isEmpty()) {
+            // Acks go out without the batching delay so they don't inflate the measured latency.
+            flush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushTask != null || closed) return;
+        flushTask = executor.schedule(() -> {
+            flushTask = null;
+            flush();
+        }, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        if (closed) return;
+
+        if (ephemeral.state() == DataChannel.State.OPEN) {
+            if (ephemeral.bufferedAmount() > MAX_EPHEMERAL_BUFFERED) {
+                ephemeralDropped += ephemeralQueue.size();
+                ephemeralQueue.clear();
+            }
+            while (!ephemeralQueue.isEmpty()) {
+                while (!ephemeralQueue.isEmpty()) {
+                    Outgoing message = ephemeralQueue.peek();
+                    if (!writer.addData(message.seq, message.type, message.payload, false)) break;
+                    ephemeralQueue.poll();
+                }
+                sendBatch(ephemeral);
+            }
+        }
+
+        if (reliable.state() == DataChannel.State.OPEN) {
+            // Acks go first and ignore the buffer limit: they are tiny, and a held-back
+            // ack leaves the sender's message undelivered.
+            while (!acksToSend.isEmpty()
+                    || (!reliableQueue.isEmpty() && reliable.bufferedAmount() < MAX_RELIABLE_BUFFERED)) {
+                while (!acksToSend.isEmpty() && writer.addAck(acksToSend.peek())) {
+                    acksToSend.poll();
+                }
+                while (!reliableQueue.isEmpty() && reliable.bufferedAmount() < MAX_RELIABLE_BUFFERED) {
+                    Outgoing message = reliableQueue.peek();
+                    if (!writer.addData(message.seq, message.type, message.payload, true)) break;
+                    reliableQueue.poll();
+                    awaitingAck.put(message.seq, message);
+                }
+                sendBatch(reliable);
+            }
+        }
+        // Anything left waits for the channel to open or drain; both call back into scheduleFlush().
+    }
+
+    private void sendBatch(DataChannel channel) {
+        if (writer.isEmpty()) return;
+        if (!channel.send(new DataChannel.Buffer(writer.drain(), true))) {
+            LOG.warn("Send failed on {}", channel.label());
+        }
+    }
+
+    /** Returns false if the messenger was closed and {@code task} will not run. */
+    private boolean execute(Runnable task) {
+        if (executor.isShutdown()) return false;
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Shut down between the check and the submit.
+            return false;
+        }
+    }
+}
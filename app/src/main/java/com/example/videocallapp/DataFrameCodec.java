@@ -0,0 +1,149 @@
+package com.example.videocallapp;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary framing for data-channel messages. One channel message carries a batch:
+ *
+ * <pre>
+ * batch := VERSION entry*
+ * entry := KIND_DATA seq type length payload      (receiver acks seq)
+ *        | KIND_DATA_NO_ACK seq type length payload
+ *        | KIND_ACK seq
+ * </pre>
+ *
+ * where {@code seq}, {@code type} and {@code length} are unsigned LEB128
+ * varints, so a short chat message costs five bytes of framing instead of a JSON
+ * envelope.
+ */
+final class DataFrameCodec {
+    static final byte VERSION = 1;
+    static final byte KIND_DATA = 0;
+    static final byte KIND_DATA_NO_ACK = 1;
+    static final byte KIND_ACK = 2;
+
+    interface Handler {
+        void onData(long seq, int type, byte[] payload, boolean ackRequested);
+
+        void onAck(long seq);
+    }
+
+    /** Accumulates entries into one batch of at most {@code maxBytes}. Not thread-safe. */
+    static final class BatchWriter {
+        private final ByteBuffer buffer;
+        private int entries;
+
+        BatchWriter(int maxBytes) {
+            buffer = ByteBuffer.allocate(maxBytes);
+            buffer.put(VERSION);
+        }
+
+        /** Returns false, writing nothing, if the entry does not fit in what is left. */
+        boolean addData(long seq, int type, byte[] payload, boolean ackRequested) {
+            int size = 1 + varintSize(seq) + varintSize(type) + varintSize(payload.length) + payload.length;
+            if (size > buffer.remaining()) {
+                return false;
+            }
+            buffer.put(ackRequested ? KIND_DATA : KIND_DATA_NO_ACK);
+            putVarint(buffer, seq);
+            putVarint(buffer, type);
+            putVarint(buffer, payload.length);
+            buffer.put(payload);
+            entries++;
+            return true;
+        }
+
+        boolean addAck(long seq) {
+            if (1 + varintSize(seq) > buffer.remaining()) {
+                return false;
+            }
+            buffer.put(KIND_ACK);
+            putVarint(buffer, seq);
+            entries++;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return entries == 0;
+        }
+
+        /** Largest payload a single empty batch can carry. */
+        int maxPayload() {
+            return buffer.capacity() - 1 - 1 - 3 * 10;
+        }
+
+        /** Returns the finished batch and resets the writer for the next one. */
+        ByteBuffer drain() {
+            buffer.flip();
+            ByteBuffer batch = ByteBuffer.allocate(buffer.remaining());
+            batch.put(buffer);
+            batch.flip();
+            buffer.clear();
+            buffer.put(VERSION);
+            entries = 0;
+            return batch;
+        }
+    }
+
+    private DataFrameCodec() {}
+
+    /** Decodes one batch; returns false if it was malformed (entries before the error are delivered). */
+    static boolean decode(ByteBuffer batch, Handler handler) {
+        try {
+            if (batch.get() != VERSION) {
+                return false;
+            }
+            while (batch.hasRemaining()) {
+                byte kind = batch.get();
+                long seq = getVarint(batch);
+                if (kind == KIND_ACK) {
+                    handler.onAck(seq);
+                    continue;
+                }
+                if (kind != KIND_DATA && kind != KIND_DATA_NO_ACK) {
+                    return false;
+                }
+                int type = (int) getVarint(batch);
+                int length = (int) getVarint(batch);
+                if (length < 0 || length > batch.remaining()) {
+                    return false;
+                }
+                byte[] payload = new byte[length];
+                batch.get(payload);
+                handler.onData(seq, type, payload, kind == KIND_DATA);
+            }
+            return true;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+}
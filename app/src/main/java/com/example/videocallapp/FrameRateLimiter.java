@@ -0,0 +1,35 @@
+package com.example.videocallapp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which frames to keep so a stream is rendered at no more than a given
+ * rate. Works on frame timestamps rather than wall time, and accepts frames that
+ * arrive up to an eighth of an interval early so a 30 fps source capped at 15
+ * keeps every other frame instead of beating down to 10.
+ */
+final class FrameRateLimiter {
+    private final long intervalNs;
+    private final long toleranceNs;
+    private long nextFrameNs = Long.MIN_VALUE;
+
+    FrameRateLimiter(float maxFps) {
+        intervalNs = maxFps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxFps) : 0;
+        toleranceNs = intervalNs / 8;
+    }
+
+    boolean shouldRender(long timestampNs) {
+        if (intervalNs == 0) {
+            return true;
+        }
+        if (nextFrameNs != Long.MIN_VALUE && timestampNs < nextFrameNs - toleranceNs) {
+            return false;
+        }
+        nextFrameNs = Math.max(nextFrameNs, timestampNs - toleranceNs) + intervalNs;
+        return true;
+    }
+
+    void reset() {
+        nextFrameNs = Long.MIN_VALUE;
+    }
+}
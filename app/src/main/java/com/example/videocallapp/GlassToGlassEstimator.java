@@ -0,0 +1,211 @@
+package com.example.videocallapp;
+
+import java.util.Map;
+
+/**
+ * Estimates capture-to-render latency of the video we receive from stats
+ * deltas, one interval at a time. Each side measures its own half:
+ *
+ * <ul>
+ *   <li>send half: camera to WebRTC (from frame timestamps at the capturer),
+ *       encode, pacer, and the uplink to the server as half our round trip;
+ *   <li>receive half: the downlink from the server as half our round trip,
+ *       then jitter buffer and decode.
+ * </ul>
+ *
+ * The peer reports its send half over the data channel; ours plus theirs is
+ * the path through the relaying server. Display scanout after the renderer is
+ * not included. Built from plain stats maps so it can be tested without a
+ * PeerConnection.
+ */
+final class GlassToGlassEstimator {
+    /** Capture delays beyond this mean the frame timestamp is on another clock. */
+    static final long MAX_CAPTURE_DELAY_NS = 1_000_000_000L;
+    /** A peer report older than this no longer describes the frames being decoded. */
+    static final long PEER_REPORT_MAX_AGE_MS = 5_000;
+
+    /** Cumulative video counters from one stats report. */
+    static final class Counters {
+        private double jitterBufferDelay;
+        private long jitterBufferEmittedCount;
+        private double totalDecodeTime;
+        private long framesDecoded;
+        private double totalEncodeTime;
+        private long framesEncoded;
+        private double totalPacketSendDelay;
+        private long packetsSent;
+        private double roundTripTime;
+
+        /** Folds in one stats object; non-video entries are ignored. */
+        Counters add(String type, Map<String, Object> members) {
+            switch (type) {
+                case "inbound-rtp":
+                    if (!"video".equals(members.get("kind"))) break;
+                    jitterBufferDelay += asDouble(members.get("jitterBufferDelay"));
+                    jitterBufferEmittedCount += asLong(members.get("jitterBufferEmittedCount"));
+                    totalDecodeTime += asDouble(members.get("totalDecodeTime"));
+                    framesDecoded += asLong(members.get("framesDecoded"));
+                    break;
+                case "outbound-rtp":
+                    if (!"video".equals(members.get("kind"))) break;
+                    totalEncodeTime += asDouble(members.get("totalEncodeTime"));
+                    framesEncoded += asLong(members.get("framesEncoded"));
+                    totalPacketSendDelay += asDouble(members.get("totalPacketSendDelay"));
+                    packetsSent += asLong(members.get("packetsSent"));
+                    break;
+                case "candidate-pair":
+                    if (Boolean.TRUE.equals(members.get("nominated"))
+                            && "succeeded".equals(members.get("state"))) {
+                        roundTripTime = asDouble(members.get("currentRoundTripTime"));
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return this;
+        }
+
+        private static long asLong(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+
+        private static double asDouble(Object value) {
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+    }
+
+    /** One interval's averages; -1 where nothing was measured. */
+    static final class Sample {
+        final double captureMs;
+        final double encodeMs;
+        final double pacerMs;
+        final double oneWayMs;
+        final double jitterBufferMs;
+        final double decodeMs;
+        final double peerSendMs;
+        final long framesDecoded;
+
+        Sample(double captureMs, double encodeMs, double pacerMs, double oneWayMs,
+               double jitterBufferMs, double decodeMs, double peerSendMs, long framesDecoded) {
+            this.captureMs = captureMs;
+            this.encodeMs = encodeMs;
+            this.pacerMs = pacerMs;
+            this.oneWayMs = oneWayMs;
+            this.jitterBufferMs = jitterBufferMs;
+            this.decodeMs = decodeMs;
+            this.peerSendMs = peerSendMs;
+            this.framesDecoded = framesDecoded;
+        }
+
+        /** Our send half, for the peer; -1 if we encoded nothing this interval. */
+        double sendMs() {
+            if (encodeMs < 0) return -1;
+            return Math.max(captureMs, 0) + encodeMs + Math.max(pacerMs, 0) + oneWayMs;
+        }
+
+        /** Our receive half; -1 if we decoded nothing this interval. */
+        double receiveMs() {
+            if (decodeMs < 0) return -1;
+            return oneWayMs + Math.max(jitterBufferMs, 0) + decodeMs;
+        }
+
+        /** -1 unless both halves are known. */
+        double glassToGlassMs() {
+            double receive = receiveMs();
+            return receive < 0 || peerSendMs < 0 ? -1 : peerSendMs + receive;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("glass-to-glass ~%.0f ms = peer send %.0f + receive %.0f "
+                            + "(one-way %.0f, jitter buffer %.0f, decode %.0f) over %d frames; "
+                            + "send %.0f (capture %.0f, encode %.0f, pacer %.0f)",
+                    glassToGlassMs(), peerSendMs, receiveMs(), oneWayMs, jitterBufferMs, decodeMs,
+                    framesDecoded, sendMs(), captureMs, encodeMs, pacerMs);
+        }
+    }
+
+    private final LatencyHistogram glassToGlass = new LatencyHistogram();
+    private final LatencyHistogram receive = new LatencyHistogram();
+    private Counters previous;
+    private long captureDelayNsSum;
+    private long captureDelayCount;
+    private double peerSendMs = -1;
+    private long peerReportAtMs;
+
+    /**
+     * Camera-to-WebRTC delay of one frame. Camera timestamps are on
+     * CLOCK_MONOTONIC or CLOCK_BOOTTIME depending on the device, so whichever
+     * gives a plausible delay is used; -1 if neither does.
+     */
+    static long captureDelayNs(long frameTimestampNs, long monotonicNowNs, long boottimeNowNs) {
+        long delay = monotonicNowNs - frameTimestampNs;
+        if (delay >= 0 && delay <= MAX_CAPTURE_DELAY_NS) {
+            return delay;
+        }
+        delay = boottimeNowNs - frameTimestampNs;
+        return delay >= 0 && delay <= MAX_CAPTURE_DELAY_NS ? delay : -1;
+    }
+
+    synchronized void onCaptureDelay(long delayNs) {
+        if (delayNs < 0) {
+            return;
+        }
+        captureDelayNsSum += delayNs;
+        captureDelayCount++;
+    }
+
+    synchronized void onPeerSendDelay(double sendMs, long nowMs) {
+        peerSendMs = sendMs;
+        peerReportAtMs = nowMs;
+    }
+
+    /**
+     * Closes the interval since the previous report and records its frames.
+     * Returns null for the first report, which only takes the baseline.
+     */
+    synchronized Sample onStats(Counters current, long nowMs) {
+        Counters last = previous;
+        previous = current;
+        double captureMs = captureDelayCount > 0 ? captureDelayNsSum / 1e6 / captureDelayCount : -1;
+        captureDelayNsSum = 0;
+        captureDelayCount = 0;
+        if (last == null) {
+            return null;
+        }
+        long framesDecoded = current.framesDecoded - last.framesDecoded;
+        double peerSend = peerSendMs >= 0 && nowMs - peerReportAtMs <= PEER_REPORT_MAX_AGE_MS ? peerSendMs : -1;
+        Sample sample = new Sample(
+                captureMs,
+                perItemMs(current.totalEncodeTime - last.totalEncodeTime,
+                        current.framesEncoded - last.framesEncoded),
+                perItemMs(current.totalPacketSendDelay - last.totalPacketSendDelay,
+                        current.packetsSent - last.packetsSent),
+                1000 * current.roundTripTime / 2,
+                perItemMs(current.jitterBufferDelay - last.jitterBufferDelay,
+                        current.jitterBufferEmittedCount - last.jitterBufferEmittedCount),
+                perItemMs(current.totalDecodeTime - last.totalDecodeTime, framesDecoded),
+                peerSend,
+                Math.max(framesDecoded, 0));
+        // Weighted by frames so percentiles are over frames, not intervals.
+        if (sample.receiveMs() >= 0) {
+            receive.record(Math.round(sample.receiveMs()), sample.framesDecoded);
+        }
+        if (sample.glassToGlassMs() >= 0) {
+            glassToGlass.record(Math.round(sample.glassToGlassMs()), sample.framesDecoded);
+        }
+        return sample;
+    }
+
+    LatencyHistogram getGlassToGlass() {
+        return glassToGlass;
+    }
+
+    LatencyHistogram getReceive() {
+        return receive;
+    }
+
+    private static double perItemMs(double deltaSeconds, long deltaCount) {
+        return deltaCount > 0 ? 1000 * deltaSeconds / deltaCount : -1;
+    }
+}
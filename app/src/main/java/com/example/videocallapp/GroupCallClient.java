@@ -0,0 +1,508 @@
+package com.example.videocallapp;
+
+import com.example.janus.core.EventLog;
+import com.example.janus.core.JanusHandle;
+import com.example.janus.core.JanusMessage;
+import com.example.janus.core.JanusMessages;
+import com.example.janus.core.SimulcastLayer;
+import com.example.janus.core.SubscriptionPlanner;
+import com.example.janus.core.VideoRoomMessages;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaConstraints;
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.PeerConnection;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpTransceiver;
+import org.webrtc.SessionDescription;
+import org.webrtc.VideoSink;
+import org.webrtc.VideoTrack;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Group call over {@code janus.plugin.videoroom}: publishes the local tracks
+ * once (video as three simulcast layers) and receives remote publishers on a
+ * single multistream subscriber handle.
+ *
+ * <p>Only feeds with a bound renderer are subscribed for video, at the layer the
+ * renderer asked for; every publisher's audio is always received. All state
+ * lives on one executor thread, the same pattern WebRTC's own samples use to
+ * keep signaling and PeerConnection callbacks ordered without locks.
+ */
+public class GroupCallClient {
+    private static final String TAG = "GroupCallClient";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    private static final List<String> STREAM_IDS = Collections.singletonList("ARDAMS");
+
+    public interface GroupCallListener {
+        void onJoined(long roomId, long publisherId);
+        void onParticipantJoined(long feedId, String display);
+        void onParticipantLeft(long feedId);
+        void onError(String error);
+    }
+
+    private final JanusWebSocketClient webSocketClient;
+    private final PeerConnectionClient media;
+    private final long roomId;
+    private final String display;
+    private final GroupCallListener listener;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "GroupCallClient"));
+    private final SubscriptionPlanner planner = new SubscriptionPlanner();
+
+    private final Map<Long, VideoSink> sinksByFeed = new HashMap<>();
+    private final Map<Long, SimulcastLayer> layersByFeed = new HashMap<>();
+    private final Map<String, VideoTrack> remoteVideoByMid = new HashMap<>();
+    private final Map<String, VideoSink> boundSinksByMid = new HashMap<>();
+
+    private JanusHandle publisherHandle;
+    private JanusHandle subscriberHandle;
+    private PeerConnection publisherConnection;
+    private PeerConnection subscriberConnection;
+    private long publisherId;
+    private long privateId;
+    private boolean subscriberAttaching;
+    private boolean subscriberJoined;
+    private boolean updatePending;
+    private boolean videoPaused;
+    private boolean left;
+
+    public GroupCallClient(JanusWebSocketClient webSocketClient, PeerConnectionClient media,
+                           long roomId, String display, GroupCallListener listener) {
+        this.webSocketClient = webSocketClient;
+        this.media = media;
+        this.roomId = roomId;
+        this.display = display;
+        this.listener = listener;
+    }
+
+    public void join() {
+        webSocketClient.attach(VideoRoomMessages.PLUGIN_VIDEOROOM, new JanusHandle.Listener() {
+            @Override
+            public void onAttached(JanusHandle handle) {
+                execute(() -> {
+                    publisherHandle = handle;
+                    sendMessage(handle, () -> VideoRoomMessages.joinPublisher(roomId, display), null);
+                });
+            }
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                execute(() -> handlePublisherEvent(message));
+            }
+
+            @Override
+            public void onDetached() {
+                execute(() -> publisherHandle = null);
+            }
+        });
+    }
+
+    /**
+     * Shows {@code feedId} in {@code sink} at {@code layer}, or stops receiving its
+     * video when {@code sink} is null. Call whenever a participant's view scrolls
+     * on or off screen or changes size.
+     */
+    public void setVisible(long feedId, VideoSink sink, SimulcastLayer layer) {
+        execute(() -> {
+            if (sink == null) {
+                sinksByFeed.remove(feedId);
+                layersByFeed.remove(feedId);
+            } else {
+                sinksByFeed.put(feedId, sink);
+                layersByFeed.put(feedId, layer);
+            }
+            planner.setVisible(feedId, sink == null || videoPaused ? null : layer);
+            bindSinks();
+            updateSubscriptions();
+        });
+    }
+
+    /**
+     * Audio-only mode: stops our simulcast encoders, asks the room to stop
+     * relaying our video and unsubscribes every remote video stream, keeping the
+     * renderer bindings so resuming restores the same layout.
+     */
+    public void setVideoPaused(boolean paused) {
+        execute(() -> {
+            if (paused == videoPaused || left) return;
+            videoPaused = paused;
+            PeerConnectionClient.setVideoSendersActive(publisherConnection, !paused);
+            if (publisherConnection != null) {
+                sendMessage(publisherHandle, () -> VideoRoomMessages.configurePublisher(true, !paused), null);
+            }
+            for (Map.Entry<Long, SimulcastLayer> entry : layersByFeed.entrySet()) {
+                planner.setVisible(entry.getKey(), paused ? null : entry.getValue());
+            }
+            bindSinks();
+            updateSubscriptions();
+        });
+    }
+
+    /**
+     * Detaches both handles and disposes the PeerConnections, then runs
+     * {@code onLeft} so the caller can release the local tracks they were sending.
+     */
+    public void leave(Runnable onLeft) {
+        execute(() -> {
+            left = true;
+            unbindAllSinks();
+            if (subscriberHandle != null) {
+                subscriberHandle.detach();
+            }
+            if (publisherHandle != null) {
+                publisherHandle.detach();
+            }
+            if (subscriberConnection != null) {
+                subscriberConnection.dispose();
+                subscriberConnection = null;
+            }
+            if (publisherConnection != null) {
+                publisherConnection.dispose();
+                publisherConnection = null;
+            }
+            planner.clear();
+            sinksByFeed.clear();
+            layersByFeed.clear();
+            remoteVideoByMid.clear();
+            if (onLeft != null) {
+                onLeft.run();
+            }
+            // Last: the detaches above queue their onDetached callbacks, dropped below.
+            executor.shutdown();
+        });
+    }
+
+    private void handlePublisherEvent(JanusMessage message) {
+        if (left) return;
+        JSONObject data = message.getPluginData();
+        if (data == null) return;
+        if (data.has("error")) {
+            listener.onError("Videoroom error (" + data.optInt("error_code") + "): " + data.optString("error"));
+            return;
+        }
+
+        String event = data.optString("videoroom");
+        if ("joined".equals(event)) {
+            publisherId = data.optLong("id");
+            privateId = data.optLong("private_id");
+            LOG.debug("Joined room {} as publisher {}", roomId, publisherId);
+            listener.onJoined(roomId, publisherId);
+            addPublishers(data.optJSONArray("publishers"));
+            startPublishing();
+        } else if ("event".equals(event)) {
+            addPublishers(data.optJSONArray("publishers"));
+            removePublisher(data.optLong("unpublished"));
+            removePublisher(data.optLong("leaving"));
+        }
+
+        JSONObject jsep = message.getJsep();
+        if (jsep != null && publisherConnection != null) {
+            setRemoteDescription(publisherConnection, jsep, null);
+        }
+        updateSubscriptions();
+    }
+
+    private void addPublishers(JSONArray publishers) {
+        if (publishers == null) return;
+        List<Long> added = VideoRoomMessages.addPublishers(publishers, planner);
+        for (int i = 0; i < publishers.length(); i++) {
+            JSONObject publisher = publishers.optJSONObject(i);
+            if (publisher != null && added.contains(publisher.optLong("id"))) {
+                listener.onParticipantJoined(publisher.optLong("id"), publisher.optString("display"));
+            }
+        }
+    }
+
+    private void removePublisher(long feedId) {
+        if (feedId == 0 || feedId == publisherId || !planner.hasPublisher(feedId)) return;
+        planner.removePublisher(feedId);
+        planner.setVisible(feedId, null);
+        sinksByFeed.remove(feedId);
+        layersByFeed.remove(feedId);
+        bindSinks();
+        listener.onParticipantLeft(feedId);
+    }
+
+    private void startPublishing() {
+        if (!media.startLocalMedia()) return;
+
+        publisherConnection = media.getFactory().createPeerConnection(
+                PeerConnectionClient.createRtcConfiguration(), new LoggingPeerConnectionObserver(TAG) {
+                    @Override
+                    public void onIceCandidate(IceCandidate iceCandidate) {
+                        execute(() -> trickle(publisherHandle, iceCandidate));
+                    }
+                });
+        if (publisherConnection == null) {
+            listener.onError("Failed to create publisher PeerConnection");
+            return;
+        }
+
+        publisherConnection.addTransceiver(media.getLocalAudioTrack(),
+                new RtpTransceiver.RtpTransceiverInit(RtpTransceiver.RtpTransceiverDirection.SEND_ONLY, STREAM_IDS));
+        List<RtpParameters.Encoding> simulcast = Arrays.asList(
+                new RtpParameters.Encoding("h", !videoPaused, 1.0),
+                new RtpParameters.Encoding("m", !videoPaused, 2.0),
+                new RtpParameters.Encoding("l", !videoPaused, 4.0));
+        publisherConnection.addTransceiver(media.getLocalVideoTrack(),
+                new RtpTransceiver.RtpTransceiverInit(RtpTransceiver.RtpTransceiverDirection.SEND_ONLY,
+                        STREAM_IDS, simulcast));
+
+        PeerConnection connection = publisherConnection;
+        connection.createOffer(new SimpleSdpObserver(TAG) {
+            @Override
+            public void onCreateSuccess(SessionDescription created) {
+                SessionDescription offer = media.applyAudioPolicy(created);
+                connection.setLocalDescription(new SimpleSdpObserver(TAG) {
+                    @Override
+                    public void onSetSuccess() {
+                        execute(() -> sendMessage(publisherHandle,
+                                () -> VideoRoomMessages.publish(true, !videoPaused), offer));
+                    }
+                }, offer);
+            }
+        }, new MediaConstraints());
+    }
+
+    private void updateSubscriptions() {
+        if (left || privateId == 0 || updatePending) return;
+
+        SubscriptionPlanner.Plan plan = planner.plan();
+        if (plan.isEmpty()) return;
+
+        if (subscriberHandle == null) {
+            if (!subscriberAttaching && !plan.getSubscribe().isEmpty()) {
+                subscriberAttaching = true;
+                attachSubscriber();
+            }
+            return;
+        }
+
+        if (!subscriberJoined) {
+            if (plan.getSubscribe().isEmpty()) return;
+            subscriberJoined = true;
+            updatePending = true;
+            sendMessage(subscriberHandle,
+                    () -> VideoRoomMessages.joinSubscriber(roomId, privateId, plan.getSubscribe()), null);
+        } else if (plan.hasStreamChanges()) {
+            updatePending = true;
+            sendMessage(subscriberHandle, () -> VideoRoomMessages.update(plan), null);
+        } else {
+            sendMessage(subscriberHandle, () -> VideoRoomMessages.configureLayers(plan.getLayerChanges()), null);
+            planner.markLayersApplied(plan);
+        }
+    }
+
+    private void attachSubscriber() {
+        webSocketClient.attach(VideoRoomMessages.PLUGIN_VIDEOROOM, new JanusHandle.Listener() {
+            @Override
+            public void onAttached(JanusHandle handle) {
+                execute(() -> {
+                    subscriberHandle = handle;
+                    subscriberAttaching = false;
+                    updateSubscriptions();
+                });
+            }
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                execute(() -> handleSubscriberEvent(message));
+            }
+
+            @Override
+            public void onDetached() {
+                execute(() -> {
+                    subscriberHandle = null;
+                    subscriberJoined = false;
+                    updatePending = false;
+                });
+            }
+        });
+    }
+
+    private void handleSubscriberEvent(JanusMessage message) {
+        if (left) return;
+        JSONObject data = message.getPluginData();
+        if (data == null) return;
+        if (data.has("error")) {
+            updatePending = false;
+            listener.onError("Videoroom subscriber error (" + data.optInt("error_code") + "): "
+                    + data.optString("error"));
+            return;
+        }
+
+        String event = data.optString("videoroom");
+        if (!"attached".equals(event) && !"updated".equals(event)) return;
+
+        if (data.has("streams")) {
+            planner.onSubscriberStreams(VideoRoomMessages.parseSubscriberStreams(data.optJSONArray("streams")));
+        }
+        JSONObject jsep = message.getJsep();
+        if (jsep == null) {
+            updatePending = false;
+            bindSinks();
+            updateSubscriptions();
+            return;
+        }
+
+        if (subscriberConnection == null) {
+            subscriberConnection = media.getFactory().createPeerConnection(
+                    PeerConnectionClient.createRtcConfiguration(), new LoggingPeerConnectionObserver(TAG) {
+                        @Override
+                        public void onIceCandidate(IceCandidate iceCandidate) {
+                            execute(() -> trickle(subscriberHandle, iceCandidate));
+                        }
+
+                        @Override
+                        public void onTrack(RtpTransceiver transceiver) {
+                            execute(() -> onRemoteTrack(transceiver));
+                        }
+                    });
+            if (subscriberConnection == null) {
+                updatePending = false;
+                listener.onError("Failed to create subscriber PeerConnection");
+                return;
+            }
+        }
+        PeerConnection connection = subscriberConnection;
+        setRemoteDescription(connection, jsep, () -> connection.createAnswer(new SimpleSdpObserver(TAG) {
+            @Override
+            public void onCreateSuccess(SessionDescription created) {
+                SessionDescription answer = media.applyAudioPolicy(created);
+                connection.setLocalDescription(new SimpleSdpObserver(TAG) {
+                    @Override
+                    public void onSetSuccess() {
+                        execute(() -> {
+                            sendMessage(subscriberHandle, () -> JanusMessages.requestBody("start"), answer);
+                            updatePending = false;
+                            bindSinks();
+                            updateSubscriptions();
+                        });
+                    }
+                }, answer);
+            }
+        }, new MediaConstraints()));
+    }
+
+    private void onRemoteTrack(RtpTransceiver transceiver) {
+        MediaStreamTrack track = transceiver.getReceiver().track();
+        if (track instanceof VideoTrack && transceiver.getMid() != null) {
+            remoteVideoByMid.put(transceiver.getMid(), (VideoTrack) track);
+            bindSinks();
+        }
+    }
+
+    /** Attaches each remote video track to the renderer of the feed it currently carries. */
+    private void bindSinks() {
+        Iterator<Map.Entry<String, VideoSink>> bound = boundSinksByMid.entrySet().iterator();
+        while (bound.hasNext()) {
+            Map.Entry<String, VideoSink> entry = bound.next();
+            SubscriptionPlanner.SubscribedStream stream = planner.getSubscribedStream(entry.getKey());
+            VideoTrack track = remoteVideoByMid.get(entry.getKey());
+            if (stream == null || track == null || videoPaused
+                    || sinksByFeed.get(stream.getFeedId()) != entry.getValue()) {
+                if (track != null) {
+                    track.removeSink(entry.getValue());
+                }
+                bound.remove();
+            }
+        }
+        for (Map.Entry<String, VideoTrack> entry : remoteVideoByMid.entrySet()) {
+            if (boundSinksByMid.containsKey(entry.getKey())) continue;
+            SubscriptionPlanner.SubscribedStream stream = planner.getSubscribedStream(entry.getKey());
+            VideoSink sink = stream != null && stream.isVideo() && !videoPaused
+                    ? sinksByFeed.get(stream.getFeedId()) : null;
+            if (sink != null) {
+                entry.getValue().addSink(sink);
+                boundSinksByMid.put(entry.getKey(), sink);
+            }
+        }
+    }
+
+    private void unbindAllSinks() {
+        for (Map.Entry<String, VideoSink> entry : boundSinksByMid.entrySet()) {
+            VideoTrack track = remoteVideoByMid.get(entry.getKey());
+            if (track != null) {
+                track.removeSink(entry.getValue());
+            }
+        }
+        boundSinksByMid.clear();
+    }
+
+    private void setRemoteDescription(PeerConnection connection, JSONObject jsep, Runnable onSet) {
+        try {
+            SessionDescription description = media.applyAudioPolicy(new SessionDescription(
+                    SessionDescription.Type.fromCanonicalForm(jsep.getString("type")), jsep.getString("sdp")));
+            connection.setRemoteDescription(new SimpleSdpObserver(TAG) {
+                @Override
+                public void onSetSuccess() {
+                    if (onSet != null) {
+                        onSet.run();
+                    }
+                }
+            }, description);
+        } catch (JSONException e) {
+            LOG.error("Error parsing JSEP", e);
+        }
+    }
+
+    private void trickle(JanusHandle handle, IceCandidate iceCandidate) {
+        if (handle == null) return;
+        try {
+            handle.trickle(PeerConnectionClient.candidateToJson(iceCandidate));
+        } catch (JSONException e) {
+            LOG.error("Error creating candidate JSON", e);
+        }
+    }
+
+    /**
+     * Runs {@code task} on the executor unless the room has been left. Handle and
+     * PeerConnection callbacks keep arriving during and after leave(); they are
+     * dropped instead of touching released state or a shut-down executor.
+     */
+    private void execute(Runnable task) {
+        if (executor.isShutdown()) return;
+        try {
+            executor.execute(() -> {
+                if (!left) {
+                    task.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down between the check and the submit.
+        }
+    }
+
+    private interface BodyFactory {
+        JSONObject create() throws JSONException;
+    }
+
+    private void sendMessage(JanusHandle handle, BodyFactory body, SessionDescription description) {
+        if (handle == null) return;
+        try {
+            JSONObject jsep = null;
+            if (description != null) {
+                jsep = new JSONObject();
+                jsep.put("type", description.type.canonicalForm());
+                jsep.put("sdp", description.description);
+            }
+            handle.sendMessage(body.create(), jsep);
+        } catch (JSONException e) {
+            LOG.error("Error creating videoroom request", e);
+            listener.onError("Error sending videoroom request: " + e.getMessage());
+        }
+    }
+}
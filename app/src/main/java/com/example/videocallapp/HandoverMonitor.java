@@ -0,0 +1,119 @@
+package com.example.videocallapp;
+
+import android.os.SystemClock;
+
+import com.example.janus.core.EventLog;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the media gap of each network handover during a call with a
+ * {@link MediaGapMeter}: inbound packet counts are polled every
+ * {@value #POLL_INTERVAL_MS} ms for {@value #WINDOW_MS} ms after the new
+ * network came up.
+ */
+final class HandoverMonitor {
+    private static final String TAG = "HandoverMonitor";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long WINDOW_MS = 10_000;
+    private static final long STOP_TIMEOUT_MS = 1000;
+
+    private final List<String> results = new ArrayList<>();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> poll;
+    private String description;
+    private MediaGapMeter meter;
+    private boolean stopped;
+
+    /**
+     * Starts measuring a handover; one still being measured is cut short and
+     * recorded. Ignored once {@link #stop()} has been called, so a caller racing
+     * the call's close can't poll a connection being disposed.
+     */
+    synchronized void start(PeerConnection connection, String description) {
+        if (stopped) {
+            return;
+        }
+        finish();
+        MediaGapMeter gapMeter = new MediaGapMeter();
+        long startMs = SystemClock.elapsedRealtime();
+        this.description = description;
+        this.meter = gapMeter;
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "HandoverMonitor"));
+        }
+        poll = executor.scheduleWithFixedDelay(() -> {
+            if (SystemClock.elapsedRealtime() - startMs >= WINDOW_MS) {
+                onWindowEnded(gapMeter);
+                return;
+            }
+            connection.getStats(report -> {
+                long packets = 0;
+                for (RTCStats stats : report.getStatsMap().values()) {
+                    if ("inbound-rtp".equals(stats.getType())) {
+                        Object received = stats.getMembers().get("packetsReceived");
+                        if (received instanceof Number) {
+                            packets += ((Number) received).longValue();
+                        }
+                    }
+                }
+                gapMeter.onSample(packets, SystemClock.elapsedRealtime());
+            });
+        }, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops measuring for good and waits for a poll in progress, so the
+     * connection can be disposed once this returns. Returns one line per handover.
+     */
+    List<String> stop() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            stopped = true;
+            finish();
+            running = executor;
+            executor = null;
+        }
+        if (running != null) {
+            running.shutdownNow();
+            // Outside the lock: a poll ending its window takes it.
+            try {
+                if (!running.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Handover poll still running after {} ms", STOP_TIMEOUT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            return new ArrayList<>(results);
+        }
+    }
+
+    private synchronized void onWindowEnded(MediaGapMeter gapMeter) {
+        if (meter == gapMeter) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (poll == null) {
+            return;
+        }
+        poll.cancel(false);
+        poll = null;
+        String result = description + ": " + meter;
+        LOG.info("Handover {}", result);
+        results.add(result);
+        meter = null;
+    }
+}
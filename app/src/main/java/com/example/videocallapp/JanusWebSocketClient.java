@@ -1,21 +1,48 @@
 package com.example.videocallapp;
 
-import android.util.Log;
+import com.example.janus.core.EventLog;
+import com.example.janus.core.JanusHandle;
+import com.example.janus.core.JanusMessage;
+import com.example.janus.core.JanusMessages;
+import com.example.janus.core.JanusSession;
+import com.example.janus.core.SignalingRecorder;
+import com.example.janus.core.TransactionCallback;
 
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.handshake.ServerHandshake;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URI;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
-public class JanusWebSocketClient extends WebSocketClient {
+/**
+ * Janus over WebSocket: a {@link JanusSession} with the videocall plugin
+ * attached, carried by a connection that can be replaced without losing the
+ * session; see {@link #migrate}.
+ */
+public class JanusWebSocketClient {
     private static final String TAG = "JanusWebSocketClient";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
     private static final int CONNECTION_TIMEOUT = 10000; // 10 seconds timeout
+    // How long a replaced connection stays open for frames already in flight on it.
+    // The client stops reading as soon as it starts a close, so it can't just close.
+    private static final long REPLACED_CONNECTION_GRACE_MS = 2000;
+    private static final ScheduledExecutorService CLOSER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "JanusConnectionCloser");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public interface JanusListener {
         void onJanusConnected();
@@ -24,224 +51,517 @@ public class JanusWebSocketClient extends WebSocketClient {
         void onJanusEvent(JSONObject event);
     }
 
-    private JanusListener listener;
-    private long sessionId;
-    private long handleId;
-    private String pendingUsername;
-    private boolean isSessionCreated = false;
-    private boolean isPluginAttached = false;
+    /** Result of {@link #listUsers}, called on the socket thread. */
+    public interface UserListCallback {
+        void onUserList(List<String> usernames);
+        void onError(String error);
+    }
+
+    /** Result of {@link #migrate}, called on the socket thread. */
+    public interface MigrationCallback {
+        void onMigrated();
+        void onError(String error);
+    }
+
+    private enum Migration { NONE, CONNECTING, CLAIMING }
+
+    private final URI serverUri;
+    private final Map<String, String> httpHeaders;
+    private final JanusListener listener;
+    private final JanusSession session;
+    private volatile JanusHandle videoCallHandle;
+    private volatile String username;
+
+    // Guarded by lock. While a migration dials, frames keep going out on the
+    // current connection; from the claim until its answer, or once the current
+    // connection is lost, they are held for whichever connection ends up
+    // carrying the session.
+    private final Object lock = new Object();
+    private final List<String> heldFrames = new ArrayList<>();
+    private Connection connection;
+    private Connection incoming;
+    private Connection claimingOn;
+    private Migration migration = Migration.NONE;
+    private MigrationCallback migrationCallback;
+    private boolean holding;
+    private boolean currentLost;
+
+    /** One WebSocket; callbacks carry it so those of a replaced connection can be told apart. */
+    private final class Connection extends WebSocketClient {
+        Connection() {
+            super(serverUri, new Draft_6455(), httpHeaders, CONNECTION_TIMEOUT);
+            setConnectionLostTimeout(30);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+            onConnectionOpen(this, handshakedata);
+        }
+
+        @Override
+        public void onMessage(String message) {
+            onConnectionMessage(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            onConnectionClosed(this, code, reason);
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            onConnectionError(this, ex);
+        }
+    }
 
     public JanusWebSocketClient(URI serverUri, JanusListener listener, Map<String, String> httpHeaders) {
-        super(serverUri, httpHeaders);
+        this.serverUri = serverUri;
+        this.httpHeaders = httpHeaders;
         this.listener = listener;
-        setConnectionLostTimeout(30);
+        this.session = new JanusSession(this::sendFrame, new JanusSession.Listener() {
+            @Override
+            public void onSessionCreated(long sessionId) {}
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                listener.onJanusEvent(message.getJson());
+            }
+
+            @Override
+            public void onError(String error) {
+                listener.onJanusError(error);
+            }
+        }, LOG.asJanusLogger());
+        this.connection = new Connection();
     }
 
-    @Override
-    public void onOpen(ServerHandshake handshakedata) {
-        Log.d(TAG, "WebSocket connected, handshake: " + handshakedata.getHttpStatus());
-        listener.onJanusConnected();
-        createSession();
+    /** Username to register automatically once the videocall plugin is attached. */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Attaches an additional plugin handle on this connection. Its events are
+     * routed to {@code handleListener} only, not to the {@link JanusListener}.
+     */
+    public void attach(String plugin, JanusHandle.Listener handleListener) {
+        session.attach(plugin, handleListener);
     }
 
-    @Override
-    public void onMessage(String message) {
-        Log.d(TAG, "Received: " + message);
+    /**
+     * Records every frame of this connection into a bounded binary log that can be
+     * fed back through {@link com.example.janus.core.SignalingReplayer}.
+     */
+    public void startRecording(File file, int maxBytes) throws IOException {
+        stopRecording();
+        session.setRecorder(SignalingRecorder.open(file, maxBytes));
+        LOG.debug("Recording signaling to {}", file);
+    }
+
+    public void stopRecording() {
+        SignalingRecorder recorder = session.getRecorder();
+        if (recorder == null) return;
+        session.setRecorder(null);
         try {
-            JSONObject json = new JSONObject(message);
-            processJanusMessage(json);
-            listener.onJanusEvent(json);
-        } catch (JSONException e) {
-            listener.onJanusError("JSON parsing error: " + e.getMessage());
+            recorder.close();
+            LOG.debug("Signaling recording closed: {} frames, {} dropped",
+                    recorder.getFrameCount(), recorder.getDroppedCount());
+        } catch (IOException e) {
+            LOG.error("Error closing signaling recording", e);
         }
     }
 
-    private void processJanusMessage(JSONObject json) throws JSONException {
-        if (!json.has("janus")) return;
+    public void connectWithTimeout() throws Exception {
+        currentConnection().connectBlocking(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isOpen() {
+        return currentConnection().isOpen();
+    }
+
+    /** Closes the connection, and one being migrated to; the listener sees a disconnect. */
+    public void close() {
+        Connection pending = abandonIncoming();
+        if (pending != null) {
+            pending.close();
+        }
+        currentConnection().close();
+    }
 
-        String janus = json.getString("janus");
-        switch (janus) {
-            case "success":
-                handleSuccessResponse(json);
-                break;
-            case "error":
-                handleErrorResponse(json);
-                break;
-            case "event":
-                break;
+    public void closeBlocking() throws InterruptedException {
+        Connection pending = abandonIncoming();
+        if (pending != null) {
+            pending.close();
         }
+        currentConnection().closeBlocking();
     }
 
-    private void handleSuccessResponse(JSONObject json) throws JSONException {
-        if (json.has("data") && json.getJSONObject("data").has("id")) {
-            if (!json.has("session_id")) {
-                sessionId = json.getJSONObject("data").getLong("id");
-                isSessionCreated = true;
-                Log.d(TAG, "Session created: " + sessionId);
-                attachPlugin();
+    /**
+     * Moves the session to a new connection, e.g. after the default network
+     * changed. A second socket is dialed, which goes out over the new network,
+     * while the current one keeps carrying signaling; once it is open the
+     * session is claimed there, and only when the claim is answered does the
+     * new socket take over and the old one close. The {@link JanusListener}
+     * sees none of it. If the new socket or the claim fails the session stays
+     * where it was, unless that connection was lost meanwhile, which is
+     * reported as a disconnect.
+     */
+    public void migrate(MigrationCallback callback) {
+        Connection dialing;
+        synchronized (lock) {
+            if (migration == Migration.NONE && connection.isOpen() && session.isCreated()) {
+                dialing = new Connection();
+                incoming = dialing;
+                migration = Migration.CONNECTING;
+                migrationCallback = callback;
             } else {
-                handleId = json.getJSONObject("data").getLong("id");
-                isPluginAttached = true;
-                Log.d(TAG, "Plugin attached, handle ID: " + handleId);
-                if (MainActivity.currentUsername != null) {
-                    register(MainActivity.currentUsername);
+                dialing = null;
+            }
+        }
+        if (dialing == null) {
+            callback.onError("No session to migrate");
+            return;
+        }
+        LOG.info("Migrating session {} to a new connection", session.getSessionId());
+        dialing.connect();
+        // The connect timeout only covers the TCP connect, not the handshake after it.
+        CLOSER.schedule(() -> abandonDial(dialing), CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    private void abandonDial(Connection conn) {
+        synchronized (lock) {
+            if (migration != Migration.CONNECTING || conn != incoming) {
+                return;
+            }
+        }
+        abandonMigration(conn, "New connection timed out");
+    }
+
+    private Connection currentConnection() {
+        synchronized (lock) {
+            return connection;
+        }
+    }
+
+    private void onConnectionOpen(Connection conn, ServerHandshake handshakedata) {
+        LOG.info("WebSocket connected, handshake: {}", handshakedata.getHttpStatus());
+        synchronized (lock) {
+            if (conn == incoming) {
+                migration = Migration.CLAIMING;
+                holding = true;
+                // The claim itself goes out on the new connection; everything after it waits for the answer.
+                claimingOn = conn;
+                session.claim(new TransactionCallback() {
+                    @Override
+                    public void onResponse(JanusMessage response) {
+                        onClaimed(conn);
+                    }
+
+                    @Override
+                    public void onError(int code, String reason) {
+                        abandonMigration(conn, "Claim failed (" + code + "): " + reason);
+                    }
+                });
+                claimingOn = null;
+                return;
+            }
+            if (conn != connection) {
+                return;
+            }
+        }
+        listener.onJanusConnected();
+        session.start();
+        session.attach(JanusMessages.PLUGIN_VIDEOCALL, new JanusHandle.Listener() {
+            @Override
+            public void onAttached(JanusHandle handle) {
+                videoCallHandle = handle;
+                String pendingUsername = username;
+                if (pendingUsername != null) {
+                    register(pendingUsername);
                 }
             }
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                listener.onJanusEvent(message.getJson());
+            }
+
+            @Override
+            public void onDetached() {
+                videoCallHandle = null;
+            }
+        });
+    }
+
+    private void onConnectionMessage(String message) {
+        // Frames still in flight on a replaced connection belong to the same session.
+        if (AppLog.VERBOSE) {
+            LOG.verbose("Received: {}", message);
         }
+        session.onMessage(message);
     }
 
-    private void handleErrorResponse(JSONObject json) throws JSONException {
-        String error = json.optString("error", "Unknown error");
-        String reason = json.getJSONObject("error").optString("reason", "No reason provided");
-        String errorMsg = "Janus error (" + error + "): " + reason;
-        Log.e(TAG, errorMsg);
+    private void onConnectionClosed(Connection conn, int code, String reason) {
+        LOG.info("WebSocket closed. Code: {}, Reason: {}", code, reason);
+        boolean wasIncoming;
+        synchronized (lock) {
+            wasIncoming = conn == incoming;
+            if (!wasIncoming) {
+                if (conn != connection) {
+                    return;
+                }
+                if (migration != Migration.NONE) {
+                    // The old path went first; the session lives on if the claim succeeds.
+                    LOG.warn("Connection lost while migrating, holding frames for the new one");
+                    currentLost = true;
+                    holding = true;
+                    return;
+                }
+            }
+        }
+        if (wasIncoming) {
+            abandonMigration(conn, "New connection closed: " + reason);
+            return;
+        }
+        onDisconnected();
+    }
+
+    private void onConnectionError(Connection conn, Exception ex) {
+        String errorMsg = "WebSocket error: " + ex.getMessage();
+        if (conn != currentConnection()) {
+            LOG.warn(errorMsg, ex);
+            return;
+        }
+        LOG.error(errorMsg, ex);
         listener.onJanusError(errorMsg);
     }
 
-    @Override
-    public void onClose(int code, String reason, boolean remote) {
-        Log.d(TAG, "WebSocket closed. Code: " + code + ", Reason: " + reason);
-        resetState();
+    private void onDisconnected() {
+        session.reset();
+        stopRecording();
         listener.onJanusDisconnected();
     }
 
-    @Override
-    public void onError(Exception ex) {
-        String errorMsg = "WebSocket error: " + ex.getMessage();
-        Log.e(TAG, errorMsg, ex);
-        listener.onJanusError(errorMsg);
+    private void onClaimed(Connection conn) {
+        Connection old;
+        MigrationCallback callback;
+        int held;
+        synchronized (lock) {
+            if (migration != Migration.CLAIMING || conn != incoming) {
+                return;
+            }
+            old = connection;
+            connection = conn;
+            incoming = null;
+            held = heldFrames.size();
+            for (String frame : heldFrames) {
+                conn.send(frame);
+            }
+            heldFrames.clear();
+            holding = false;
+            currentLost = false;
+            migration = Migration.NONE;
+            callback = migrationCallback;
+            migrationCallback = null;
+        }
+        LOG.info("Session {} claimed on the new connection, {} held frames sent", session.getSessionId(), held);
+        CLOSER.schedule(() -> old.close(CloseFrame.GOING_AWAY, "Migrated"),
+                REPLACED_CONNECTION_GRACE_MS, TimeUnit.MILLISECONDS);
+        callback.onMigrated();
     }
 
-    public void connectWithTimeout() throws Exception {
-        super.connectBlocking(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+    /** Gives up on {@code conn}; the session stays on the current connection if it is still up. */
+    private void abandonMigration(Connection conn, String error) {
+        MigrationCallback callback;
+        boolean lost;
+        synchronized (lock) {
+            if (migration == Migration.NONE || conn != incoming) {
+                return;
+            }
+            lost = currentLost;
+            if (!lost) {
+                for (String frame : heldFrames) {
+                    connection.send(frame);
+                }
+            }
+            clearMigration();
+            callback = migrationCallback;
+            migrationCallback = null;
+        }
+        LOG.warn("Migration failed: {}", error);
+        conn.close();
+        callback.onError(error);
+        if (lost) {
+            onDisconnected();
+        }
+    }
+
+    /** Takes the connection being migrated to out of the picture, for close(). */
+    private Connection abandonIncoming() {
+        synchronized (lock) {
+            Connection pending = incoming;
+            if (pending != null) {
+                clearMigration();
+                migrationCallback = null;
+            }
+            return pending;
+        }
     }
 
-    private void resetState() {
-        sessionId = 0;
-        handleId = 0;
-        isSessionCreated = false;
-        isPluginAttached = false;
-        pendingUsername = null;
+    private void clearMigration() {
+        heldFrames.clear();
+        holding = false;
+        currentLost = false;
+        incoming = null;
+        migration = Migration.NONE;
+    }
+
+    private void sendFrame(String frame) {
+        synchronized (lock) {
+            if (claimingOn != null) {
+                claimingOn.send(frame);
+            } else if (holding) {
+                heldFrames.add(frame);
+            } else {
+                connection.send(frame);
+            }
+        }
     }
 
     public String generateTransactionId() {
-        return "txn-" + UUID.randomUUID().toString().substring(0, 8);
+        return session.nextTransactionId();
     }
 
     public long getSessionId() {
-        return sessionId;
+        return session.getSessionId();
     }
 
     public long getHandleId() {
-        return handleId;
+        JanusHandle handle = videoCallHandle;
+        return handle != null ? handle.getId() : 0;
     }
 
-    private void createSession() {
+    public void register(String username) {
         try {
-            JSONObject create = new JSONObject();
-            create.put("janus", "create");
-            create.put("transaction", generateTransactionId());
-            send(create.toString());
-            Log.d(TAG, "Sent create session request");
+            sendVideoCallMessage(JanusMessages.registerBody(username), null);
+            LOG.debug("Sent register request for username: {}", username);
         } catch (JSONException e) {
-            Log.e(TAG, "Error creating session request", e);
-            listener.onJanusError("Error creating session: " + e.getMessage());
+            LOG.error("Error creating register request", e);
+            listener.onJanusError("Error registering: " + e.getMessage());
         }
     }
 
-    private void attachPlugin() {
+    public void call(String peerUsername, JSONObject jsep) {
         try {
-            JSONObject attach = new JSONObject();
-            attach.put("janus", "attach");
-            attach.put("plugin", "janus.plugin.videocall");
-            attach.put("session_id", sessionId);
-            attach.put("transaction", generateTransactionId());
-            send(attach.toString());
-            Log.d(TAG, "Sent attach plugin request");
+            sendVideoCallMessage(JanusMessages.callBody(peerUsername), jsep);
+            LOG.debug("Sent call request to: {}", peerUsername);
         } catch (JSONException e) {
-            Log.e(TAG, "Error creating attach request", e);
-            listener.onJanusError("Error attaching plugin: " + e.getMessage());
+            LOG.error("Error creating call request", e);
+            listener.onJanusError("Error calling: " + e.getMessage());
         }
     }
 
-    public void register(String username) {
+    public void accept(JSONObject jsep) {
         try {
-            JSONObject register = new JSONObject();
-            register.put("janus", "message");
-            register.put("session_id", sessionId);
-            register.put("handle_id", handleId);
-            register.put("transaction", generateTransactionId());
-
-            JSONObject body = new JSONObject();
-            body.put("request", "register");
-            body.put("username", username);
-
-            register.put("body", body);
-            send(register.toString());
-            Log.d(TAG, "Sent register request for username: " + username);
+            sendVideoCallMessage(JanusMessages.requestBody("accept"), jsep);
+            LOG.debug("Sent accept request");
         } catch (JSONException e) {
-            Log.e(TAG, "Error creating register request", e);
-            listener.onJanusError("Error registering: " + e.getMessage());
+            LOG.error("Error creating accept request", e);
+            listener.onJanusError("Error accepting: " + e.getMessage());
         }
     }
 
-    public void call(String peerUsername, JSONObject jsep) {
+    public void hangup() {
         try {
-            JSONObject call = new JSONObject();
-            call.put("janus", "message");
-            call.put("session_id", sessionId);
-            call.put("handle_id", handleId);
-            call.put("transaction", generateTransactionId());
-
-            JSONObject body = new JSONObject();
-            body.put("request", "call");
-            body.put("username", peerUsername);
-
-            call.put("body", body);
-            if (jsep != null) {
-                call.put("jsep", jsep);
-            }
-            send(call.toString());
-            Log.d(TAG, "Sent call request to: " + peerUsername);
+            sendVideoCallMessage(JanusMessages.requestBody("hangup"), null);
+            LOG.debug("Sent hangup request");
         } catch (JSONException e) {
-            Log.e(TAG, "Error creating call request", e);
-            listener.onJanusError("Error calling: " + e.getMessage());
+            LOG.error("Error creating hangup request", e);
+            listener.onJanusError("Error hanging up: " + e.getMessage());
         }
     }
 
-    public void hangup() {
+    /**
+     * Tells the videocall plugin which of our media to relay to the peer, without
+     * renegotiating. Used to drop to audio-only and back.
+     */
+    public void setMedia(boolean audio, boolean video) {
         try {
-            JSONObject hangup = new JSONObject();
-            hangup.put("janus", "message");
-            hangup.put("session_id", sessionId);
-            hangup.put("handle_id", handleId);
-            hangup.put("transaction", generateTransactionId());
-
-            JSONObject body = new JSONObject();
-            body.put("request", "hangup");
-
-            hangup.put("body", body);
-            send(hangup.toString());
-            Log.d(TAG, "Sent hangup request");
+            sendVideoCallMessage(JanusMessages.setMediaBody(audio, video), null);
+            LOG.debug("Sent set request: audio={}, video={}", audio, video);
         } catch (JSONException e) {
-            Log.e(TAG, "Error creating hangup request", e);
-            listener.onJanusError("Error hanging up: " + e.getMessage());
+            LOG.error("Error creating set request", e);
+            listener.onJanusError("Error updating media: " + e.getMessage());
         }
     }
 
-    public void trickle(JSONObject candidate) {
+    /**
+     * Sends a new offer or answer for the running call, e.g. for an ICE
+     * restart; the plugin relays it to the peer as an {@code update} event.
+     */
+    public void renegotiate(JSONObject jsep) {
         try {
-            JSONObject trickle = new JSONObject();
-            trickle.put("janus", "trickle");
-            trickle.put("session_id", sessionId);
-            trickle.put("handle_id", handleId);
-            trickle.put("transaction", generateTransactionId());
-            trickle.put("candidate", candidate);
-            send(trickle.toString());
-            Log.d(TAG, "Sent trickle candidate");
+            sendVideoCallMessage(JanusMessages.requestBody("set"), jsep);
+            LOG.debug("Sent set request with {}", jsep.optString("type"));
         } catch (JSONException e) {
-            Log.e(TAG, "Error creating trickle request", e);
-            listener.onJanusError("Error sending ICE candidate: " + e.getMessage());
+            LOG.error("Error creating set request", e);
+            listener.onJanusError("Error renegotiating: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Asks the videocall plugin who is registered. The {@link JanusListener}
+     * also sees the response, as a plugin event with no {@code event} name.
+     */
+    public void listUsers(UserListCallback callback) {
+        JanusHandle handle = videoCallHandle;
+        if (handle == null) {
+            callback.onError("Videocall plugin not attached");
+            return;
+        }
+        try {
+            handle.sendMessage(JanusMessages.requestBody("list"), null, new TransactionCallback() {
+                @Override
+                public void onResponse(JanusMessage response) {
+                    JSONObject result = response.getPluginResult();
+                    JSONArray list = result != null ? result.optJSONArray("list") : null;
+                    if (list == null) {
+                        callback.onError("Malformed list response");
+                        return;
+                    }
+                    List<String> usernames = new ArrayList<>(list.length());
+                    for (int i = 0; i < list.length(); i++) {
+                        usernames.add(list.optString(i));
+                    }
+                    callback.onUserList(usernames);
+                }
+
+                @Override
+                public void onError(int code, String reason) {
+                    callback.onError("Error listing users (" + code + "): " + reason);
+                }
+            });
+        } catch (JSONException e) {
+            LOG.error("Error creating list request", e);
+            callback.onError("Error listing users: " + e.getMessage());
+        }
+    }
+
+    public void trickle(JSONObject candidate) {
+        JanusHandle handle = videoCallHandle;
+        if (handle == null) {
+            listener.onJanusError("Error sending ICE candidate: videocall plugin not attached");
+            return;
+        }
+        handle.trickle(candidate);
+    }
+
+    private void sendVideoCallMessage(JSONObject body, JSONObject jsep) {
+        JanusHandle handle = videoCallHandle;
+        if (handle == null) {
+            listener.onJanusError("Videocall plugin not attached");
+            return;
         }
+        handle.sendMessage(body, jsep);
     }
-}
\ No newline at end of file
+}
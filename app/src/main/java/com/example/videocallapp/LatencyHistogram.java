@@ -0,0 +1,51 @@
+package com.example.videocallapp;
+
+/**
+ * Latency distribution at 1 ms resolution up to {@value #MAX_MS} ms; longer
+ * values count as {@value #MAX_MS}. Fixed buckets keep recording allocation-free
+ * and make percentiles exact at that resolution however long the call runs.
+ */
+final class LatencyHistogram {
+    static final int MAX_MS = 2000;
+
+    private final long[] counts = new long[MAX_MS + 1];
+    private long total;
+
+    /** Records {@code count} observations of {@code ms}. */
+    synchronized void record(long ms, long count) {
+        if (count <= 0) {
+            return;
+        }
+        counts[(int) Math.max(0, Math.min(ms, MAX_MS))] += count;
+        total += count;
+    }
+
+    synchronized long count() {
+        return total;
+    }
+
+    /** The smallest value at or above fraction {@code q} of observations, or -1 if there are none. */
+    synchronized long percentile(double q) {
+        if (total == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int ms = 0; ms < counts.length; ms++) {
+            seen += counts[ms];
+            if (seen >= rank) {
+                return ms;
+            }
+        }
+        return MAX_MS;
+    }
+
+    @Override
+    public String toString() {
+        if (count() == 0) {
+            return "no samples";
+        }
+        return String.format("p50 %d ms, p90 %d ms, p99 %d ms over %d frames",
+                percentile(0.5), percentile(0.9), percentile(0.99), count());
+    }
+}
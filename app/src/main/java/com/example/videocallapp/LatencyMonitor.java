@@ -0,0 +1,147 @@
+package com.example.videocallapp;
+
+import android.os.SystemClock;
+
+import com.example.janus.core.EventLog;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoProcessor;
+import org.webrtc.VideoSink;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call glass-to-glass latency, estimated by {@link GlassToGlassEstimator}.
+ * Installed as the video source's processor to read each camera frame's sensor
+ * timestamp before WebRTC re-stamps it; polls stats once a second and sends our
+ * send half to the peer as an ephemeral {@value #MESSAGE_TYPE} message.
+ */
+final class LatencyMonitor implements VideoProcessor {
+    private static final String TAG = "LatencyMonitor";
+    // One line every ten seconds in logcat; the crash ring keeps every sample.
+    private static final EventLog.Category LOG = AppLog.category(TAG).setSampleEvery(10);
+    /** Reserved for the media layer; application message types stay below it. */
+    static final int MESSAGE_TYPE = 127;
+    private static final long STATS_INTERVAL_MS = 1000;
+    private static final long STOP_TIMEOUT_MS = 1000;
+
+    private final GlassToGlassEstimator estimator = new GlassToGlassEstimator();
+    private volatile VideoSink sink;
+    private ScheduledExecutorService executor;
+    private boolean stopped;
+
+    /**
+     * Starts polling; repeated calls (e.g. after an ICE reconnect) keep the
+     * running poll, and calls after {@link #stop()} are ignored.
+     */
+    synchronized void start(PeerConnection connection, DataChannelMessenger messenger) {
+        if (executor != null || stopped) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "LatencyMonitor"));
+        executor.scheduleWithFixedDelay(() -> connection.getStats(report -> {
+            GlassToGlassEstimator.Counters counters = new GlassToGlassEstimator.Counters();
+            for (RTCStats stats : report.getStatsMap().values()) {
+                counters.add(stats.getType(), stats.getMembers());
+            }
+            GlassToGlassEstimator.Sample sample = estimator.onStats(counters, SystemClock.elapsedRealtime());
+            if (sample == null) {
+                return;
+            }
+            LOG.debug("{}", sample);
+            if (messenger != null && sample.sendMs() >= 0) {
+                ByteBuffer payload = ByteBuffer.allocate(DataFrameCodec.varintSize(Long.MAX_VALUE));
+                DataFrameCodec.putVarint(payload, Math.round(sample.sendMs()));
+                byte[] bytes = new byte[payload.position()];
+                payload.flip();
+                payload.get(bytes);
+                messenger.sendEphemeral(MESSAGE_TYPE, bytes);
+            }
+        }), 0, STATS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling for good, waiting for a poll in progress so the connection
+     * can be disposed once this returns, and returns the call's glass-to-glass
+     * distribution.
+     */
+    synchronized LatencyHistogram stop() {
+        stopped = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Stats poll still running after {} ms", STOP_TIMEOUT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        return estimator.getGlassToGlass();
+    }
+
+    LatencyHistogram getReceiveLatency() {
+        return estimator.getReceive();
+    }
+
+    /** Takes the peer's latency reports out of the stream before it reaches {@code listener}. */
+    DataChannelMessenger.Listener filter(DataChannelMessenger.Listener listener) {
+        return new DataChannelMessenger.Listener() {
+            @Override
+            public void onMessage(int type, byte[] payload) {
+                if (type == MESSAGE_TYPE) {
+                    onPeerReport(payload);
+                } else {
+                    listener.onMessage(type, payload);
+                }
+            }
+
+            @Override
+            public void onMessageDelivered(long seq, int type, long roundTripMs) {
+                listener.onMessageDelivered(seq, type, roundTripMs);
+            }
+        };
+    }
+
+    private void onPeerReport(byte[] payload) {
+        try {
+            estimator.onPeerSendDelay(DataFrameCodec.getVarint(ByteBuffer.wrap(payload)),
+                    SystemClock.elapsedRealtime());
+        } catch (RuntimeException e) {
+            LOG.warn("Malformed latency report", e);
+        }
+    }
+
+    @Override
+    public void setSink(VideoSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void onCapturerStarted(boolean success) {}
+
+    @Override
+    public void onCapturerStopped() {}
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame, FrameAdaptationParameters parameters) {
+        // The adapted frame carries WebRTC's aligned timestamp; the sensor's is only here.
+        estimator.onCaptureDelay(GlassToGlassEstimator.captureDelayNs(
+                frame.getTimestampNs(), System.nanoTime(), SystemClock.elapsedRealtimeNanos()));
+        VideoProcessor.super.onFrameCaptured(frame, parameters);
+    }
+
+    @Override
+    public void onFrameCaptured(VideoFrame frame) {
+        VideoSink target = sink;
+        if (target != null) {
+            target.onFrame(frame);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.videocallapp;
+
+import com.example.janus.core.EventLog;
+
+import org.webrtc.DataChannel;
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaStream;
+import org.webrtc.PeerConnection;
+
+/**
+ * {@link PeerConnection.Observer} that logs every callback; subclasses override
+ * the ones they act on.
+ */
+abstract class LoggingPeerConnectionObserver implements PeerConnection.Observer {
+    private final EventLog.Category log;
+
+    LoggingPeerConnectionObserver(String tag) {
+        this.log = AppLog.category(tag);
+    }
+
+    @Override
+    public void onSignalingChange(PeerConnection.SignalingState signalingState) {
+        log.debug("onSignalingChange: {}", signalingState);
+    }
+
+    @Override
+    public void onIceConnectionChange(PeerConnection.IceConnectionState iceConnectionState) {
+        log.debug("onIceConnectionChange: {}", iceConnectionState);
+    }
+
+    @Override
+    public void onIceConnectionReceivingChange(boolean b) {
+        log.debug("onIceConnectionReceivingChange: {}", b);
+    }
+
+    @Override
+    public void onIceGatheringChange(PeerConnection.IceGatheringState iceGatheringState) {
+        log.debug("onIceGatheringChange: {}", iceGatheringState);
+    }
+
+    @Override
+    public void onIceCandidate(IceCandidate iceCandidate) {
+        log.debug("onIceCandidate: {}", iceCandidate);
+    }
+
+    @Override
+    public void onIceCandidatesRemoved(IceCandidate[] iceCandidates) {
+        log.debug("onIceCandidatesRemoved");
+    }
+
+    @Override
+    public void onAddStream(MediaStream mediaStream) {
+        log.debug("onAddStream (deprecated): {}", mediaStream.getId());
+    }
+
+    @Override
+    public void onRemoveStream(MediaStream mediaStream) {
+        log.debug("onRemoveStream: {}", mediaStream.getId());
+    }
+
+    @Override
+    public void onDataChannel(DataChannel dataChannel) {
+        log.debug("onDataChannel: {}", dataChannel.label());
+    }
+
+    @Override
+    public void onRenegotiationNeeded() {
+        log.debug("onRenegotiationNeeded");
+    }
+
+    @Override
+    public void onConnectionChange(PeerConnection.PeerConnectionState newState) {
+        log.debug("onConnectionChange: {}", newState);
+    }
+}
@@ -1,12 +1,19 @@
 package com.example.videocallapp;
 
+import android.content.ComponentName;
 import android.content.Context;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Environment;
+import android.os.IBinder;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -19,35 +26,62 @@ import androidx.core.content.ContextCompat;
 import android.Manifest;
 import android.content.pm.PackageManager;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.webrtc.IceCandidate;
-import org.webrtc.MediaStream;
-import org.webrtc.PeerConnection;
+import com.example.janus.core.EventLog;
+
 import org.webrtc.SurfaceViewRenderer;
 
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
 
-public class MainActivity extends AppCompatActivity implements JanusWebSocketClient.JanusListener, PeerConnectionClient.PeerConnectionListener {
+public class MainActivity extends AppCompatActivity implements CallService.UiListener {
     private static final String TAG = "MainActivity";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
     private static final int PERMISSION_REQUEST_CODE = 1;
+    private static final int MAX_PEER_SUGGESTIONS = 20;
 
-    private JanusWebSocketClient webSocketClient;
-    private PeerConnectionClient peerConnectionClient;
+    private CallService callService;
+    private boolean started;
 
     private EditText usernameEditText;
-    private EditText peerEditText;
+    private AutoCompleteTextView peerEditText;
+    private ArrayAdapter<String> peerSuggestions;
+    private EditText roomEditText;
+    private EditText chatEditText;
     private Button registerButton;
     private Button callButton;
     private Button hangupButton;
+    private Button recordButton;
+    private Button joinRoomButton;
+    private Button sendMessageButton;
+    private Button reactButton;
+    private CheckBox audioOnlyCheckBox;
     private TextView statusTextView;
     private SurfaceViewRenderer localVideoView;
     private SurfaceViewRenderer remoteVideoView;
+    private RenderController renderController;
+    private RenderController.Tile localVideoTile;
+    private RenderController.Tile remoteVideoTile;
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            callService = ((CallService.LocalBinder) binder).getService();
+            callService.attachRenderers(localVideoTile, remoteVideoTile);
+            callService.setUiListener(MainActivity.this);
+            callService.setAudioOnly(audioOnlyCheckBox.isChecked());
+            callService.setInBackground(!started);
+            if (callService.isInCall()) {
+                localVideoView.setVisibility(View.VISIBLE);
+                remoteVideoView.setVisibility(View.VISIBLE);
+            }
+            recordButton.setText(callService.isRecording() ? "Stop recording" : "Record");
+        }
 
-    public static String currentUsername;
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            callService = null;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,6 +90,11 @@ public class MainActivity extends AppCompatActivity implements JanusWebSocketCli
 
         initializeViews();
         requestPermissions();
+
+        // Started as well as bound: the call must survive this activity being recreated.
+        Intent serviceIntent = new Intent(this, CallService.class);
+        startService(serviceIntent);
+        bindService(serviceIntent, serviceConnection, Context.BIND_AUTO_CREATE);
     }
 
     private void initializeViews() {
@@ -64,6 +103,13 @@ public class MainActivity extends AppCompatActivity implements JanusWebSocketCli
         registerButton = findViewById(R.id.registerButton);
         callButton = findViewById(R.id.callButton);
         hangupButton = findViewById(R.id.hangupButton);
+        recordButton = findViewById(R.id.recordButton);
+        roomEditText = findViewById(R.id.roomEditText);
+        joinRoomButton = findViewById(R.id.joinRoomButton);
+        chatEditText = findViewById(R.id.chatEditText);
+        sendMessageButton = findViewById(R.id.sendMessageButton);
+        reactButton = findViewById(R.id.reactButton);
+        audioOnlyCheckBox = findViewById(R.id.audioOnlyCheckBox);
         statusTextView = findViewById(R.id.statusTextView);
         localVideoView = findViewById(R.id.localVideoView);
         remoteVideoView = findViewById(R.id.remoteVideoView);
@@ -71,18 +117,54 @@ public class MainActivity extends AppCompatActivity implements JanusWebSocketCli
         registerButton.setOnClickListener(v -> registerUser());
         callButton.setOnClickListener(v -> callPeer());
         hangupButton.setOnClickListener(v -> hangupCall());
+        recordButton.setOnClickListener(v -> toggleRecording());
+        joinRoomButton.setOnClickListener(v -> joinRoom());
+        sendMessageButton.setOnClickListener(v -> sendChatMessage());
+        reactButton.setOnClickListener(v -> sendReaction());
+        audioOnlyCheckBox.setOnCheckedChangeListener((button, checked) -> {
+            if (callService != null) {
+                callService.setAudioOnly(checked);
+            }
+        });
+
+        peerSuggestions = new ArrayAdapter<>(this, android.R.layout.simple_dropdown_item_1line);
+        peerEditText.setAdapter(peerSuggestions);
+        peerEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                updatePeerSuggestions(s.toString().trim());
+            }
+        });
 
         // Initialize WebRTC video views
-        localVideoView.init(PeerConnectionClient.getEglBase().getEglBaseContext(), null);
-        remoteVideoView.init(PeerConnectionClient.getEglBase().getEglBaseContext(), null);
-        localVideoView.setMirror(true);
+        renderController = new RenderController();
+        localVideoTile = renderController.attach(localVideoView, RenderController.Role.LOCAL_PREVIEW);
+        remoteVideoTile = renderController.attach(remoteVideoView, RenderController.Role.REMOTE_MAIN);
         remoteVideoView.setZOrderMediaOverlay(true);
     }
 
-    private boolean isNetworkAvailable() {
-        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+    @Override
+    protected void onStart() {
+        super.onStart();
+        started = true;
+        if (callService != null) {
+            callService.setInBackground(false);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        started = false;
+        if (callService != null && !isChangingConfigurations()) {
+            callService.setInBackground(true);
+        }
     }
 
     private void requestPermissions() {
@@ -122,33 +204,23 @@ public class MainActivity extends AppCompatActivity implements JanusWebSocketCli
     }
 
     private void registerUser() {
-        if (!isNetworkAvailable()) {
-            statusTextView.setText("No network connection");
-            return;
-        }
-
         String username = usernameEditText.getText().toString().trim();
         if (username.isEmpty()) {
             statusTextView.setText("Please enter a username");
             return;
         }
+        if (callService != null) {
+            callService.register(username);
+        }
+    }
 
-        currentUsername = username;
-        new Thread(() -> {
-            try {
-                URI serverUri = new URI("wss://janus.hobenaki.com/");
-                Map<String, String> httpHeaders = new HashMap<>();
-                httpHeaders.put("Sec-WebSocket-Protocol", "janus-protocol");
-
-                runOnUiThread(() -> statusTextView.setText("Connecting to Janus server..."));
-
-                webSocketClient = new JanusWebSocketClient(serverUri, MainActivity.this, httpHeaders);
-                webSocketClient.connectWithTimeout();
-            } catch (Exception e) {
-                runOnUiThread(() -> statusTextView.setText("Connection failed: " + e.getMessage()));
-                Log.e(TAG, "WebSocket connection error", e);
-            }
-        }).start();
+    private void updatePeerSuggestions(String prefix) {
+        if (callService == null || prefix.isEmpty()) {
+            return;
+        }
+        callService.prefetchPresence();
+        peerSuggestions.clear();
+        peerSuggestions.addAll(callService.searchUsers(prefix, MAX_PEER_SUGGESTIONS));
     }
 
     private void callPeer() {
@@ -157,214 +229,109 @@ public class MainActivity extends AppCompatActivity implements JanusWebSocketCli
             statusTextView.setText("Please enter a peer username");
             return;
         }
-
-        if (peerConnectionClient == null) {
-            peerConnectionClient = new PeerConnectionClient(
-                    this,
-                    webSocketClient,
-                    localVideoView,
-                    remoteVideoView,
-                    this
-            );
-            peerConnectionClient.createPeerConnection();
-            peerConnectionClient.startLocalVideo();
+        if (callService != null) {
+            callService.callPeer(peerUsername);
         }
-
-        peerConnectionClient.createOffer(peerUsername);
-        statusTextView.setText("Calling " + peerUsername + "...");
     }
 
-    private void hangupCall() {
-        if (webSocketClient != null) {
-            webSocketClient.hangup();
+    private void joinRoom() {
+        long roomId;
+        try {
+            roomId = Long.parseLong(roomEditText.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            statusTextView.setText("Please enter a room number");
+            return;
         }
-
-        if (peerConnectionClient != null) {
-            peerConnectionClient.close();
-            peerConnectionClient = null;
+        if (callService != null) {
+            callService.joinRoom(roomId, usernameEditText.getText().toString().trim());
         }
-
-        runOnUiThread(() -> {
-            statusTextView.setText("Call ended");
-            remoteVideoView.clearImage();
-        });
     }
 
-    @Override
-    public void onJanusConnected() {
-        runOnUiThread(() -> statusTextView.setText("Connected to Janus server"));
-    }
-
-    @Override
-    public void onJanusDisconnected() {
-        runOnUiThread(() -> {
-            statusTextView.setText("Disconnected from Janus server");
-            if (peerConnectionClient != null) {
-                peerConnectionClient.close();
-                peerConnectionClient = null;
-            }
-        });
-    }
-
-    @Override
-    public void onJanusError(String error) {
-        runOnUiThread(() -> statusTextView.setText("Error: " + error));
-    }
+    private void toggleRecording() {
+        if (callService == null) {
+            return;
+        }
+        if (callService.isRecording()) {
+            callService.stopRecording();
+            recordButton.setText("Record");
+            return;
+        }
 
-    @Override
-    public void onJanusEvent(JSONObject event) {
+        File file = new File(getExternalFilesDir(Environment.DIRECTORY_MOVIES),
+                "call-" + System.currentTimeMillis() + ".mp4");
         try {
-            if (event.has("janus")) {
-                String janus = event.getString("janus");
-
-                if (janus.equals("event")) {
-                    if (event.has("plugindata")) {
-                        JSONObject plugindata = event.getJSONObject("plugindata");
-                        JSONObject data = plugindata.getJSONObject("data");
-
-                        if (data.has("result")) {
-                            JSONObject result = data.getJSONObject("result");
-
-                            if (result.has("event")) {
-                                handlePluginEvent(event, result.getString("event"), result);
-                            }
-                        }
-                    }
-                } else if (janus.equals("webrtcup")) {
-                    runOnUiThread(() -> statusTextView.setText("Call established"));
-                } else if (janus.equals("hangup")) {
-                    handleHangup();
-                } else if (janus.equals("trickle")) {
-                    handleTrickleEvent(event);
-                }
+            if (callService.startRecording(file)) {
+                recordButton.setText("Stop recording");
+            } else {
+                statusTextView.setText("Recording is available during 1:1 calls");
             }
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing Janus event", e);
+        } catch (IOException e) {
+            LOG.error("Failed to start recording", e);
+            statusTextView.setText("Recording failed: " + e.getMessage());
         }
     }
 
-    private void handlePluginEvent(JSONObject event, String eventType, JSONObject result) throws JSONException {
-        switch (eventType) {
-            case "incomingcall":
-                handleIncomingCall(event, result);
-                break;
-            case "accepted":
-                handleCallAccepted(event);
-                break;
-            default:
-                Log.d(TAG, "Unhandled event type: " + eventType);
+    private void sendChatMessage() {
+        String text = chatEditText.getText().toString().trim();
+        if (callService == null || text.isEmpty()) {
+            return;
         }
-    }
-
-    private void handleIncomingCall(JSONObject event, JSONObject result) throws JSONException {
-        String caller = result.getString("username");
-        runOnUiThread(() -> {
-            statusTextView.setText("Incoming call from " + caller);
-            if (peerConnectionClient == null) {
-                peerConnectionClient = new PeerConnectionClient(
-                        MainActivity.this,
-                        webSocketClient,
-                        localVideoView,
-                        remoteVideoView,
-                        MainActivity.this
-                );
-                peerConnectionClient.createPeerConnection();
-                peerConnectionClient.startLocalVideo();
-            }
-
-            if (event.has("jsep")) {
-                try {
-                    JSONObject jsep = event.getJSONObject("jsep");
-                    peerConnectionClient.setRemoteDescription(jsep);
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error parsing JSEP", e);
-                    runOnUiThread(() -> statusTextView.setText("Error parsing call data"));
-                }
+        try {
+            if (callService.sendChatMessage(text)) {
+                chatEditText.setText("");
+            } else {
+                statusTextView.setText("Messages are available during 1:1 calls");
             }
-        });
-    }
-
-    private void handleCallAccepted(JSONObject event) throws JSONException {
-        runOnUiThread(() -> statusTextView.setText("Call accepted"));
-        if (event.has("jsep")) {
-            JSONObject jsep = event.getJSONObject("jsep");
-            peerConnectionClient.setRemoteDescription(jsep);
+        } catch (IllegalArgumentException e) {
+            statusTextView.setText("Message too long");
         }
     }
 
-    private void handleHangup() {
-        runOnUiThread(() -> {
-            statusTextView.setText("Call ended by remote peer");
-            hangupCall();
-        });
-    }
-
-    private void handleTrickleEvent(JSONObject event) throws JSONException {
-        if (event.has("candidate")) {
-            JSONObject candidate = event.getJSONObject("candidate");
-            if (peerConnectionClient != null) {
-                peerConnectionClient.addIceCandidate(candidate);
-            }
+    private void sendReaction() {
+        if (callService != null) {
+            callService.sendReaction();
         }
     }
 
-    @Override
-    public void onLocalStream(MediaStream stream) {
-        runOnUiThread(() -> {
-            Log.d(TAG, "Local stream added");
-            localVideoView.setVisibility(View.VISIBLE);
-        });
+    private void hangupCall() {
+        if (callService != null) {
+            callService.hangup();
+        }
     }
 
     @Override
-    public void onRemoteStream(MediaStream stream) {
-        runOnUiThread(() -> {
-            Log.d(TAG, "Remote stream added");
-            remoteVideoView.setVisibility(View.VISIBLE);
-        });
+    public void onStatus(String status) {
+        statusTextView.setText(status);
     }
 
     @Override
-    public void onIceCandidate(IceCandidate candidate) {
-        // Handled by PeerConnectionClient
+    public void onLocalVideo() {
+        localVideoView.setVisibility(View.VISIBLE);
     }
 
     @Override
-    public void onConnectionChange(PeerConnection.PeerConnectionState state) {
-        runOnUiThread(() -> {
-            switch (state) {
-                case CONNECTED:
-                    statusTextView.setText("Connected");
-                    break;
-                case DISCONNECTED:
-                    statusTextView.setText("Disconnected");
-                    break;
-                case FAILED:
-                    statusTextView.setText("Connection failed");
-                    hangupCall();
-                    break;
-                case CLOSED:
-                    statusTextView.setText("Connection closed");
-                    break;
-            }
-        });
+    public void onRemoteVideo() {
+        remoteVideoView.setVisibility(View.VISIBLE);
     }
 
     @Override
-    public void onError(String error) {
-        runOnUiThread(() -> statusTextView.setText("Error: " + error));
+    public void onCallEnded() {
+        recordButton.setText("Record");
+        renderController.logStatistics();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (webSocketClient != null) {
-            webSocketClient.close();
-        }
-        if (peerConnectionClient != null) {
-            peerConnectionClient.close();
+        if (callService != null) {
+            callService.setUiListener(null);
+            callService.setUiFinished(isFinishing());
+            callService.detachRenderers();
+            if (isFinishing() && !callService.isInCall()) {
+                callService.shutdown();
+            }
         }
-        localVideoView.release();
-        remoteVideoView.release();
+        unbindService(serviceConnection);
+        renderController.release();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package com.example.videocallapp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One background thread for media work that blocks: camera start and stop,
+ * and releasing a finished call. Tasks run in submission order, so a new call's
+ * camera start queues behind the previous call's release instead of racing it,
+ * while the rest of the new call (signaling, PeerConnection, tracks) proceeds.
+ */
+final class MediaExecutor {
+    private static final ExecutorService EXECUTOR =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "MediaExecutor"));
+
+    private MediaExecutor() {}
+
+    static void execute(Runnable task) {
+        EXECUTOR.execute(task);
+    }
+}
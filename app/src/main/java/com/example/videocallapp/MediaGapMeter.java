@@ -0,0 +1,46 @@
+package com.example.videocallapp;
+
+/**
+ * Longest stretch without inbound media over a window of samples, from the
+ * cumulative received-packet count. A gap is measured between samples, so it
+ * is an upper bound accurate to one sampling interval; with media flowing
+ * normally it reads as the interval itself.
+ */
+final class MediaGapMeter {
+    private long packets = -1;
+    private long lastProgressMs;
+    private long longestGapMs;
+    private int samples;
+    private boolean stalled;
+
+    synchronized void onSample(long packetsReceived, long nowMs) {
+        samples++;
+        if (packets < 0 || packetsReceived < packets) {
+            // First sample, or the counters restarted: a new baseline.
+            packets = packetsReceived;
+            lastProgressMs = nowMs;
+            return;
+        }
+        longestGapMs = Math.max(longestGapMs, nowMs - lastProgressMs);
+        stalled = packetsReceived == packets;
+        if (!stalled) {
+            packets = packetsReceived;
+            lastProgressMs = nowMs;
+        }
+    }
+
+    synchronized long getLongestGapMs() {
+        return longestGapMs;
+    }
+
+    /** Whether nothing arrived between the last two samples. */
+    synchronized boolean isStalled() {
+        return stalled;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "longest media gap " + longestGapMs + " ms over " + samples + " samples"
+                + (stalled ? ", media still stopped" : "");
+    }
+}
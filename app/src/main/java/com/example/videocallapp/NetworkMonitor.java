@@ -0,0 +1,110 @@
+package com.example.videocallapp;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+
+import com.example.janus.core.EventLog;
+
+/**
+ * Follows the default network and reports when it moves to another one, e.g.
+ * Wi-Fi to cellular. The system switches the default as soon as the new network
+ * is validated, usually while the old one is still up, so the call gets to move
+ * over before the old path dies instead of after its sockets time out.
+ */
+final class NetworkMonitor {
+    private static final String TAG = "NetworkMonitor";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+
+    /** Called on the handler's thread. */
+    interface Listener {
+        void onHandover(String description);
+    }
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler;
+    private final Listener listener;
+    private Network current;
+    private String currentTransport;
+    private boolean registered;
+
+    private final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            Network previous = current;
+            String previousTransport = currentTransport;
+            current = network;
+            currentTransport = describe(connectivityManager.getNetworkCapabilities(network));
+            if (previous != null && !previous.equals(network)) {
+                String description = previousTransport + " -> " + currentTransport;
+                LOG.info("Default network changed: {}", description);
+                listener.onHandover(description);
+            }
+        }
+
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            if (network.equals(current)) {
+                currentTransport = describe(capabilities);
+            }
+        }
+
+        @Override
+        public void onLost(Network network) {
+            // The next onAvailable, if any, is still a handover from this network.
+            LOG.info("Default network lost: {}", currentTransport);
+        }
+    };
+
+    NetworkMonitor(ConnectivityManager connectivityManager, Handler handler, Listener listener) {
+        this.connectivityManager = connectivityManager;
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    void start() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        connectivityManager.registerDefaultNetworkCallback(callback, handler);
+    }
+
+    void stop() {
+        if (!registered) {
+            return;
+        }
+        registered = false;
+        connectivityManager.unregisterNetworkCallback(callback);
+        current = null;
+        currentTransport = null;
+    }
+
+    /** Whether the default network can reach the internet. */
+    static boolean isConnected(ConnectivityManager connectivityManager) {
+        Network network = connectivityManager.getActiveNetwork();
+        NetworkCapabilities capabilities = network != null
+                ? connectivityManager.getNetworkCapabilities(network) : null;
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    private static String describe(NetworkCapabilities capabilities) {
+        if (capabilities == null) {
+            return "unknown";
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return "wifi";
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return "cellular";
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return "ethernet";
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+            return "vpn";
+        }
+        return "other";
+    }
+}
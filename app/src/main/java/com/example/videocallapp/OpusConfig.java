@@ -0,0 +1,61 @@
+package com.example.videocallapp;
+
+/**
+ * The Opus fmtp/ptime values we negotiate. A zero bitrate or ptime leaves the
+ * codec default in place.
+ */
+public final class OpusConfig {
+    private final boolean inbandFec;
+    private final boolean dtx;
+    private final int maxAverageBitrate;
+    private final int ptimeMs;
+
+    public OpusConfig(boolean inbandFec, boolean dtx, int maxAverageBitrate, int ptimeMs) {
+        this.inbandFec = inbandFec;
+        this.dtx = dtx;
+        this.maxAverageBitrate = maxAverageBitrate;
+        this.ptimeMs = ptimeMs;
+    }
+
+    public boolean isInbandFec() {
+        return inbandFec;
+    }
+
+    public boolean isDtx() {
+        return dtx;
+    }
+
+    /** Bits per second, or 0 for the codec default. */
+    public int getMaxAverageBitrate() {
+        return maxAverageBitrate;
+    }
+
+    /** Packet duration in milliseconds, or 0 for the codec default. */
+    public int getPtimeMs() {
+        return ptimeMs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OpusConfig)) return false;
+        OpusConfig other = (OpusConfig) o;
+        return inbandFec == other.inbandFec && dtx == other.dtx
+                && maxAverageBitrate == other.maxAverageBitrate && ptimeMs == other.ptimeMs;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = inbandFec ? 1 : 0;
+        result = 31 * result + (dtx ? 1 : 0);
+        result = 31 * result + maxAverageBitrate;
+        result = 31 * result + ptimeMs;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "opus fec=" + inbandFec + " dtx=" + dtx + " maxaveragebitrate=" + maxAverageBitrate
+                + " ptime=" + ptimeMs;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.videocallapp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the Opus parameters in the audio sections of an SDP.
+ *
+ * <p>Opus fmtp describes what the side sending the SDP wants to receive, so the
+ * same config is applied to our local description (what the peer encodes for
+ * us) and to the remote one before it is set (what our encoder is configured
+ * from). Other codecs and sections are left byte-for-byte alone.
+ */
+final class OpusSdpMunger {
+    private static final Pattern OPUS_RTPMAP = Pattern.compile("^a=rtpmap:(\\d+) opus/48000(/\\d+)?$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern FMTP = Pattern.compile("^a=fmtp:(\\d+) ?(.*)$");
+
+    private OpusSdpMunger() {}
+
+    static String apply(String sdp, OpusConfig config) {
+        String lineSeparator = sdp.contains("\r\n") ? "\r\n" : "\n";
+        String[] lines = sdp.split("\r?\n");
+        List<String> out = new ArrayList<>(lines.length + 4);
+
+        int sectionStart = 0;
+        for (int i = 0; i <= lines.length; i++) {
+            if (i == lines.length || (i > 0 && lines[i].startsWith("m="))) {
+                appendSection(out, lines, sectionStart, i, config);
+                sectionStart = i;
+            }
+        }
+
+        StringBuilder result = new StringBuilder(sdp.length() + 64);
+        for (String line : out) {
+            result.append(line).append(lineSeparator);
+        }
+        return result.toString();
+    }
+
+    private static void appendSection(List<String> out, String[] lines, int start, int end, OpusConfig config) {
+        if (!lines[start].startsWith("m=audio")) {
+            for (int i = start; i < end; i++) {
+                out.add(lines[i]);
+            }
+            return;
+        }
+
+        Set<String> opusPayloadTypes = new HashSet<>();
+        Set<String> withFmtp = new HashSet<>();
+        for (int i = start; i < end; i++) {
+            Matcher rtpmap = OPUS_RTPMAP.matcher(lines[i]);
+            if (rtpmap.matches()) {
+                opusPayloadTypes.add(rtpmap.group(1));
+            }
+            Matcher fmtp = FMTP.matcher(lines[i]);
+            if (fmtp.matches()) {
+                withFmtp.add(fmtp.group(1));
+            }
+        }
+        if (opusPayloadTypes.isEmpty()) {
+            for (int i = start; i < end; i++) {
+                out.add(lines[i]);
+            }
+            return;
+        }
+
+        boolean ptimeWritten = false;
+        int lastOpusLine = -1;
+        for (int i = start; i < end; i++) {
+            String line = lines[i];
+            if (line.startsWith("a=ptime:")) {
+                if (config.getPtimeMs() > 0) {
+                    out.add("a=ptime:" + config.getPtimeMs());
+                    ptimeWritten = true;
+                } else {
+                    out.add(line);
+                }
+                continue;
+            }
+
+            Matcher fmtp = FMTP.matcher(line);
+            if (fmtp.matches() && opusPayloadTypes.contains(fmtp.group(1))) {
+                out.add("a=fmtp:" + fmtp.group(1) + " " + rewriteParameters(fmtp.group(2), config));
+                lastOpusLine = out.size() - 1;
+                continue;
+            }
+
+            out.add(line);
+            Matcher rtpmap = OPUS_RTPMAP.matcher(line);
+            if (rtpmap.matches()) {
+                lastOpusLine = out.size() - 1;
+                if (!withFmtp.contains(rtpmap.group(1))) {
+                    out.add("a=fmtp:" + rtpmap.group(1) + " " + rewriteParameters("", config));
+                    lastOpusLine = out.size() - 1;
+                }
+            }
+        }
+        if (!ptimeWritten && config.getPtimeMs() > 0) {
+            out.add(lastOpusLine + 1, "a=ptime:" + config.getPtimeMs());
+        }
+    }
+
+    static String rewriteParameters(String parameters, OpusConfig config) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.isEmpty()) continue;
+            int eq = trimmed.indexOf('=');
+            if (eq < 0) {
+                values.put(trimmed, null);
+            } else {
+                values.put(trimmed.substring(0, eq).trim(), trimmed.substring(eq + 1).trim());
+            }
+        }
+
+        values.put("useinbandfec", config.isInbandFec() ? "1" : "0");
+        values.put("usedtx", config.isDtx() ? "1" : "0");
+        if (config.getMaxAverageBitrate() > 0) {
+            values.put("maxaveragebitrate", Integer.toString(config.getMaxAverageBitrate()));
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (result.length() > 0) {
+                result.append(';');
+            }
+            result.append(entry.getKey());
+            if (entry.getValue() != null) {
+                result.append('=').append(entry.getValue());
+            }
+        }
+        return result.toString();
+    }
+}
@@ -1,7 +1,8 @@
 package com.example.videocallapp;
 
 import android.content.Context;
-import android.util.Log;
+
+import com.example.janus.core.EventLog;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -16,36 +17,69 @@ import org.webrtc.EglBase;
 import org.webrtc.IceCandidate;
 import org.webrtc.MediaConstraints;
 import org.webrtc.MediaStream;
+import org.webrtc.MediaStreamTrack;
 import org.webrtc.PeerConnection;
 import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RtpParameters;
 import org.webrtc.RtpReceiver;
 import org.webrtc.RtpSender;
 import org.webrtc.SdpObserver;
 import org.webrtc.SessionDescription;
 import org.webrtc.SurfaceTextureHelper;
-import org.webrtc.SurfaceViewRenderer;
 import org.webrtc.VideoCapturer;
 import org.webrtc.VideoSource;
 import org.webrtc.VideoTrack;
+import org.webrtc.audio.AudioDeviceModule;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class PeerConnectionClient {
     private static final String TAG = "PeerConnectionClient";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    private static final int CAPTURE_WIDTH = 640;
+    private static final int CAPTURE_HEIGHT = 480;
+    private static final int CAPTURE_FPS = 30;
+    private static final int RECORDING_WIDTH = 1280;
+    private static final int RECORDING_HEIGHT = 720;
     private static EglBase eglBase;
+    // Shared by every call in the process; building them costs more than the call setup itself.
+    private static PeerConnectionFactory sharedFactory;
+    private static AudioEngine sharedAudioEngine;
 
-    private PeerConnectionFactory factory;
+    private final PeerConnectionFactory factory;
     private PeerConnection peerConnection;
     private VideoCapturer videoCapturer;
+    private volatile VideoSource videoSource;
+    private AudioSource audioSource;
     private SurfaceTextureHelper surfaceTextureHelper;
     private MediaStream localStream;
+    private VideoTrack localVideoTrack;
+    private AudioTrack localAudioTrack;
+    private volatile VideoTrack remoteVideoTrack;
+    private volatile AudioTrack remoteAudioTrack;
+    private CallRecorder callRecorder;
+    private volatile boolean videoPaused;
     private final Context context;
     private final JanusWebSocketClient webSocketClient;
-    private final SurfaceViewRenderer localVideoView;
-    private final SurfaceViewRenderer remoteVideoView;
+    private final VideoSinkProxy localVideoSink;
+    private final VideoSinkProxy remoteVideoSink;
     private final PeerConnectionListener listener;
+    private final AudioEngine audioEngine;
+    private final QualityController qualityController;
+    private final LatencyMonitor latencyMonitor = new LatencyMonitor();
+    private final HandoverMonitor handoverMonitor = new HandoverMonitor();
+    private AudioCodecPolicy audioCodecPolicy = new AdaptiveOpusPolicy();
+    private DataChannelMessenger.Listener messageListener;
+    private DataChannelMessenger messenger;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Set once the first offer/answer exchange is done; later ones go out as renegotiations.
+    private volatile boolean negotiated;
 
     public interface PeerConnectionListener {
         void onLocalStream(MediaStream stream);
@@ -64,18 +98,26 @@ public class PeerConnectionClient {
     }
 
     public PeerConnectionClient(Context context, JanusWebSocketClient webSocketClient,
-                                SurfaceViewRenderer localVideoView, SurfaceViewRenderer remoteVideoView,
+                                VideoSinkProxy localVideoSink, VideoSinkProxy remoteVideoSink,
                                 PeerConnectionListener listener) {
         this.context = context;
         this.webSocketClient = webSocketClient;
-        this.localVideoView = localVideoView;
-        this.remoteVideoView = remoteVideoView;
+        this.localVideoSink = localVideoSink;
+        this.remoteVideoSink = remoteVideoSink;
         this.listener = listener;
+        this.qualityController = new QualityController(context, this::applyVideoQuality);
 
-        initializePeerConnectionFactory();
+        synchronized (PeerConnectionClient.class) {
+            if (sharedFactory == null) {
+                sharedAudioEngine = AudioEngine.builder(context).build();
+                sharedFactory = createPeerConnectionFactory(context.getApplicationContext(), sharedAudioEngine);
+            }
+            this.factory = sharedFactory;
+            this.audioEngine = sharedAudioEngine;
+        }
     }
 
-    private void initializePeerConnectionFactory() {
+    private static PeerConnectionFactory createPeerConnectionFactory(Context context, AudioEngine audioEngine) {
         PeerConnectionFactory.initialize(
                 PeerConnectionFactory.InitializationOptions.builder(context)
                         .setEnableInternalTracer(true)
@@ -89,87 +131,124 @@ public class PeerConnectionClient {
         DefaultVideoDecoderFactory decoderFactory = new DefaultVideoDecoderFactory(
                 eglBase.getEglBaseContext());
 
-        factory = PeerConnectionFactory.builder()
+        AudioDeviceModule audioDeviceModule = audioEngine.createAudioDeviceModule();
+        PeerConnectionFactory factory = PeerConnectionFactory.builder()
                 .setOptions(options)
+                .setAudioDeviceModule(audioDeviceModule)
                 .setVideoEncoderFactory(encoderFactory)
                 .setVideoDecoderFactory(decoderFactory)
                 .createPeerConnectionFactory();
+        // The factory holds its own reference.
+        audioDeviceModule.release();
+        return factory;
     }
 
-    public void createPeerConnection() {
+    static PeerConnection.RTCConfiguration createRtcConfiguration() {
         List<PeerConnection.IceServer> iceServers = new ArrayList<>();
         iceServers.add(PeerConnection.IceServer.builder("stun:stun.l.google.com:19302").createIceServer());
 
         PeerConnection.RTCConfiguration rtcConfig = new PeerConnection.RTCConfiguration(iceServers);
         rtcConfig.sdpSemantics = PeerConnection.SdpSemantics.UNIFIED_PLAN;
         rtcConfig.continualGatheringPolicy = PeerConnection.ContinualGatheringPolicy.GATHER_CONTINUALLY;
+        return rtcConfig;
+    }
+
+    static JSONObject candidateToJson(IceCandidate iceCandidate) throws JSONException {
+        JSONObject candidateJson = new JSONObject();
+        candidateJson.put("sdpMid", iceCandidate.sdpMid);
+        candidateJson.put("sdpMLineIndex", iceCandidate.sdpMLineIndex);
+        candidateJson.put("candidate", iceCandidate.sdp);
+        return candidateJson;
+    }
+
+    public PeerConnectionFactory getFactory() {
+        return factory;
+    }
 
-        peerConnection = factory.createPeerConnection(rtcConfig, new PeerConnection.Observer() {
+    public AudioEngine getAudioEngine() {
+        return audioEngine;
+    }
+
+    public VideoTrack getLocalVideoTrack() {
+        return localVideoTrack;
+    }
+
+    public AudioTrack getLocalAudioTrack() {
+        return localAudioTrack;
+    }
+
+    public void createPeerConnection() {
+        peerConnection = factory.createPeerConnection(createRtcConfiguration(), new PeerConnection.Observer() {
             @Override
             public void onSignalingChange(PeerConnection.SignalingState signalingState) {
-                Log.d(TAG, "onSignalingChange: " + signalingState);
+                LOG.debug("onSignalingChange: {}", signalingState);
             }
 
             @Override
             public void onIceConnectionChange(PeerConnection.IceConnectionState iceConnectionState) {
-                Log.d(TAG, "onIceConnectionChange: " + iceConnectionState);
+                LOG.debug("onIceConnectionChange: {}", iceConnectionState);
             }
 
             @Override
             public void onIceConnectionReceivingChange(boolean b) {
-                Log.d(TAG, "onIceConnectionReceivingChange: " + b);
+                LOG.debug("onIceConnectionReceivingChange: {}", b);
             }
 
             @Override
             public void onIceGatheringChange(PeerConnection.IceGatheringState iceGatheringState) {
-                Log.d(TAG, "onIceGatheringChange: " + iceGatheringState);
+                LOG.debug("onIceGatheringChange: {}", iceGatheringState);
             }
 
             @Override
             public void onIceCandidate(IceCandidate iceCandidate) {
-                Log.d(TAG, "onIceCandidate: " + iceCandidate);
+                LOG.debug("onIceCandidate: {}", iceCandidate);
                 try {
-                    JSONObject candidateJson = new JSONObject();
-                    candidateJson.put("sdpMid", iceCandidate.sdpMid);
-                    candidateJson.put("sdpMLineIndex", iceCandidate.sdpMLineIndex);
-                    candidateJson.put("candidate", iceCandidate.sdp);
-                    webSocketClient.trickle(candidateJson);
+                    webSocketClient.trickle(candidateToJson(iceCandidate));
                 } catch (JSONException e) {
-                    Log.e(TAG, "Error creating candidate JSON", e);
+                    LOG.error("Error creating candidate JSON", e);
                 }
             }
 
             @Override
             public void onIceCandidatesRemoved(IceCandidate[] iceCandidates) {
-                Log.d(TAG, "onIceCandidatesRemoved");
+                LOG.debug("onIceCandidatesRemoved");
             }
 
             @Override
             public void onAddStream(MediaStream mediaStream) {
-                Log.d(TAG, "onAddStream (deprecated): " + mediaStream.getId());
+                LOG.debug("onAddStream (deprecated): {}", mediaStream.getId());
             }
 
             @Override
             public void onRemoveStream(MediaStream mediaStream) {
-                Log.d(TAG, "onRemoveStream: " + mediaStream.getId());
+                LOG.debug("onRemoveStream: {}", mediaStream.getId());
             }
 
             @Override
             public void onDataChannel(DataChannel dataChannel) {
-                Log.d(TAG, "onDataChannel: " + dataChannel.label());
+                LOG.debug("onDataChannel: {}", dataChannel.label());
+                if (messenger != null) {
+                    messenger.onRemoteDataChannel(dataChannel);
+                }
             }
 
             @Override
             public void onRenegotiationNeeded() {
-                Log.d(TAG, "onRenegotiationNeeded");
+                LOG.debug("onRenegotiationNeeded");
             }
 
             @Override
             public void onAddTrack(RtpReceiver rtpReceiver, MediaStream[] mediaStreams) {
-                Log.d(TAG, "onAddTrack");
-                if (rtpReceiver.track() instanceof VideoTrack) {
-                    VideoTrack remoteVideoTrack = (VideoTrack) rtpReceiver.track();
-                    remoteVideoTrack.addSink(remoteVideoView);
+                LOG.debug("onAddTrack");
+                if (rtpReceiver.track() instanceof AudioTrack) {
+                    remoteAudioTrack = (AudioTrack) rtpReceiver.track();
+                } else if (rtpReceiver.track() instanceof VideoTrack) {
+                    remoteVideoTrack = (VideoTrack) rtpReceiver.track();
+                    if (videoPaused) {
+                        remoteVideoTrack.setEnabled(false);
+                    } else {
+                        remoteVideoTrack.addSink(remoteVideoSink);
+                    }
                     if (mediaStreams != null && mediaStreams.length > 0) {
                         listener.onRemoteStream(mediaStreams[0]);
                     }
@@ -178,39 +257,200 @@ public class PeerConnectionClient {
 
             @Override
             public void onConnectionChange(PeerConnection.PeerConnectionState newState) {
-                Log.d(TAG, "onConnectionChange: " + newState);
+                LOG.debug("onConnectionChange: {}", newState);
+                PeerConnection connection = peerConnection;
+                if (newState == PeerConnection.PeerConnectionState.CONNECTED && connection != null) {
+                    audioEngine.startMonitoring(connection);
+                    latencyMonitor.start(connection, messenger);
+                }
                 listener.onConnectionChange(newState);
             }
         });
+        if (messageListener != null) {
+            // Before any offer or answer, so the application m-line is negotiated.
+            messenger = new DataChannelMessenger(peerConnection, latencyMonitor.filter(messageListener));
+        }
+    }
+
+    /** Enables in-call messaging; must be set before {@link #createPeerConnection()}. */
+    public void setMessageListener(DataChannelMessenger.Listener messageListener) {
+        this.messageListener = messageListener;
+    }
+
+    /** Null unless a message listener was set before the connection was created. */
+    public DataChannelMessenger getMessenger() {
+        return messenger;
     }
 
     public void startLocalVideo() {
+        if (!startLocalMedia()) {
+            return;
+        }
+
+        List<String> streamIds = Collections.singletonList("ARDAMS");
+        peerConnection.addTrack(localVideoTrack, streamIds);
+        peerConnection.addTrack(localAudioTrack, streamIds);
+        if (videoPaused) {
+            setVideoSendersActive(peerConnection, false);
+        }
+    }
+
+    /**
+     * Starts the camera and creates the local tracks without adding them to a
+     * PeerConnection, so a group call can publish them on its own connection.
+     */
+    public boolean startLocalMedia() {
+        if (localStream != null) {
+            return true;
+        }
         videoCapturer = createCameraCapturer();
         if (videoCapturer == null) {
             listener.onError("Failed to create camera capturer");
-            return;
+            return false;
         }
 
         surfaceTextureHelper = SurfaceTextureHelper.create("CaptureThread", eglBase.getEglBaseContext());
 
-        VideoSource videoSource = factory.createVideoSource(videoCapturer.isScreencast());
+        videoSource = factory.createVideoSource(videoCapturer.isScreencast());
+        videoSource.setVideoProcessor(latencyMonitor);
         videoCapturer.initialize(surfaceTextureHelper, context, videoSource.getCapturerObserver());
-        videoCapturer.startCapture(640, 480, 30);
+        if (!videoPaused) {
+            startCapture(videoCapturer);
+        }
 
-        VideoTrack videoTrack = factory.createVideoTrack("ARDAMSv0", videoSource);
-        AudioSource audioSource = factory.createAudioSource(new MediaConstraints());
-        AudioTrack audioTrack = factory.createAudioTrack("ARDAMSa0", audioSource);
+        localVideoTrack = factory.createVideoTrack("ARDAMSv0", videoSource);
+        audioSource = factory.createAudioSource(audioEngine.createAudioConstraints());
+        localAudioTrack = factory.createAudioTrack("ARDAMSa0", audioSource);
 
         localStream = factory.createLocalMediaStream("ARDAMS");
-        localStream.addTrack(videoTrack);
-        localStream.addTrack(audioTrack);
+        localStream.addTrack(localVideoTrack);
+        localStream.addTrack(localAudioTrack);
 
-        List<String> streamIds = Collections.singletonList("ARDAMS");
-        peerConnection.addTrack(videoTrack, streamIds);
-        peerConnection.addTrack(audioTrack, streamIds);
-
-        videoTrack.addSink(localVideoView);
+        if (videoPaused) {
+            localVideoTrack.setEnabled(false);
+        } else {
+            localVideoTrack.addSink(localVideoSink);
+        }
+        qualityController.start();
         listener.onLocalStream(localStream);
+        return true;
+    }
+
+    /**
+     * Stops the camera, our video encoder and both renderers, or brings them back.
+     * The capturer, tracks and transceivers stay allocated, so resuming needs no
+     * renegotiation; only the first keyframe is waited for.
+     */
+    public void setVideoPaused(boolean paused) {
+        if (paused == videoPaused) {
+            return;
+        }
+        videoPaused = paused;
+        LOG.debug(paused ? "Pausing video" : "Resuming video");
+
+        if (videoCapturer != null) {
+            if (paused) {
+                stopCapture(videoCapturer);
+            } else {
+                startCapture(videoCapturer);
+            }
+        }
+        if (localVideoTrack != null) {
+            localVideoTrack.setEnabled(!paused);
+            if (paused) {
+                localVideoTrack.removeSink(localVideoSink);
+            } else {
+                localVideoTrack.addSink(localVideoSink);
+            }
+        }
+        setVideoSendersActive(peerConnection, !paused);
+
+        VideoTrack remoteTrack = remoteVideoTrack;
+        if (remoteTrack != null) {
+            remoteTrack.setEnabled(!paused);
+            if (paused) {
+                remoteTrack.removeSink(remoteVideoSink);
+            } else {
+                remoteTrack.addSink(remoteVideoSink);
+            }
+        }
+        if (paused) {
+            localVideoSink.clearImage();
+            remoteVideoSink.clearImage();
+        }
+    }
+
+    public boolean isVideoPaused() {
+        return videoPaused;
+    }
+
+    // Camera start and stop go through MediaExecutor: stopping blocks until the
+    // camera is closed, and a start must not overtake the previous call's stop.
+    private static void startCapture(VideoCapturer capturer) {
+        MediaExecutor.execute(() -> capturer.startCapture(CAPTURE_WIDTH, CAPTURE_HEIGHT, CAPTURE_FPS));
+    }
+
+    private static void stopCapture(VideoCapturer capturer) {
+        MediaExecutor.execute(() -> {
+            try {
+                capturer.stopCapture();
+            } catch (InterruptedException e) {
+                LOG.error("Error stopping video capture", e);
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Turns every video encoding of {@code connection} on or off. An inactive
+     * encoding stops the encoder outright instead of sending black frames.
+     */
+    static void setVideoSendersActive(PeerConnection connection, boolean active) {
+        if (connection == null) {
+            return;
+        }
+        for (RtpSender sender : connection.getSenders()) {
+            MediaStreamTrack track = sender.track();
+            if (track == null || !MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind())) {
+                continue;
+            }
+            RtpParameters parameters = sender.getParameters();
+            for (RtpParameters.Encoding encoding : parameters.encodings) {
+                encoding.active = active;
+            }
+            sender.setParameters(parameters);
+        }
+    }
+
+    /**
+     * Scales what the camera feeds the encoder and caps what a single-encoding
+     * sender may spend. The camera keeps running at its capture format, so
+     * moving between levels never restarts it.
+     */
+    void applyVideoQuality(QualityGovernor.Level level) {
+        VideoSource source = videoSource;
+        if (source != null) {
+            source.adaptOutputFormat(level.width, level.height, level.fps);
+        }
+        PeerConnection connection = peerConnection;
+        if (connection == null) {
+            return;
+        }
+        for (RtpSender sender : connection.getSenders()) {
+            MediaStreamTrack track = sender.track();
+            if (track == null || !MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind())) {
+                continue;
+            }
+            RtpParameters parameters = sender.getParameters();
+            if (parameters.encodings.size() != 1) {
+                // Simulcast layers have their own bitrates; the smaller source already scales them.
+                continue;
+            }
+            RtpParameters.Encoding encoding = parameters.encodings.get(0);
+            encoding.maxBitrateBps = level.maxBitrateBps;
+            encoding.maxFramerate = level.fps;
+            sender.setParameters(parameters);
+        }
     }
 
     private VideoCapturer createCameraCapturer() {
@@ -238,14 +478,62 @@ public class PeerConnectionClient {
         return null;
     }
 
+    public void setAudioCodecPolicy(AudioCodecPolicy audioCodecPolicy) {
+        this.audioCodecPolicy = audioCodecPolicy;
+    }
+
+    /**
+     * Applies the current Opus policy to a description we are about to set,
+     * local or remote; see {@link OpusSdpMunger} for why both.
+     */
+    SessionDescription applyAudioPolicy(SessionDescription description) {
+        return new SessionDescription(description.type,
+                OpusSdpMunger.apply(description.description, audioCodecPolicy.getConfig()));
+    }
+
     public void createOffer(String peerUsername) {
+        createOffer(receiveConstraints(), jsep -> webSocketClient.call(peerUsername, jsep));
+    }
+
+    /**
+     * Restarts ICE after a network change: new credentials make both sides
+     * gather and check candidates on the networks they have now. The old pair
+     * keeps carrying media until a new one is selected, so nothing stops while
+     * the old network is still up. No-op before the call is negotiated.
+     */
+    public void restartIce() {
+        if (peerConnection == null || !negotiated) {
+            return;
+        }
+        LOG.info("Restarting ICE");
+        MediaConstraints sdpConstraints = receiveConstraints();
+        sdpConstraints.mandatory.add(new MediaConstraints.KeyValuePair("IceRestart", "true"));
+        createOffer(sdpConstraints, webSocketClient::renegotiate);
+    }
+
+    /**
+     * Records the media gap around a network handover, logged with the call's
+     * summary. Once {@link #close()} has stopped the monitor this does nothing.
+     */
+    public void measureHandover(String description) {
+        PeerConnection connection = peerConnection;
+        if (connection != null) {
+            handoverMonitor.start(connection, description);
+        }
+    }
+
+    private static MediaConstraints receiveConstraints() {
         MediaConstraints sdpConstraints = new MediaConstraints();
         sdpConstraints.mandatory.add(new MediaConstraints.KeyValuePair("OfferToReceiveAudio", "true"));
         sdpConstraints.mandatory.add(new MediaConstraints.KeyValuePair("OfferToReceiveVideo", "true"));
+        return sdpConstraints;
+    }
 
+    private void createOffer(MediaConstraints sdpConstraints, Consumer<JSONObject> send) {
         peerConnection.createOffer(new SdpObserver() {
             @Override
-            public void onCreateSuccess(SessionDescription sessionDescription) {
+            public void onCreateSuccess(SessionDescription created) {
+                SessionDescription sessionDescription = applyAudioPolicy(created);
                 peerConnection.setLocalDescription(new SdpObserver() {
                     @Override
                     public void onCreateSuccess(SessionDescription sessionDescription) {}
@@ -256,20 +544,20 @@ public class PeerConnectionClient {
                             JSONObject jsep = new JSONObject();
                             jsep.put("type", sessionDescription.type.canonicalForm());
                             jsep.put("sdp", sessionDescription.description);
-                            webSocketClient.call(peerUsername, jsep);
+                            send.accept(jsep);
                         } catch (JSONException e) {
-                            Log.e(TAG, "Error creating JSEP JSON", e);
+                            LOG.error("Error creating JSEP JSON", e);
                         }
                     }
 
                     @Override
                     public void onCreateFailure(String s) {
-                        Log.e(TAG, "onCreateFailure: " + s);
+                        LOG.error("onCreateFailure: {}", s);
                     }
 
                     @Override
                     public void onSetFailure(String s) {
-                        Log.e(TAG, "onSetFailure: " + s);
+                        LOG.error("onSetFailure: {}", s);
                     }
                 }, sessionDescription);
             }
@@ -279,22 +567,22 @@ public class PeerConnectionClient {
 
             @Override
             public void onCreateFailure(String s) {
-                Log.e(TAG, "onCreateFailure: " + s);
+                LOG.error("onCreateFailure: {}", s);
             }
 
             @Override
             public void onSetFailure(String s) {
-                Log.e(TAG, "onSetFailure: " + s);
+                LOG.error("onSetFailure: {}", s);
             }
         }, sdpConstraints);
     }
 
     public void setRemoteDescription(JSONObject jsep) {
         try {
-            SessionDescription sessionDescription = new SessionDescription(
+            SessionDescription sessionDescription = applyAudioPolicy(new SessionDescription(
                     SessionDescription.Type.fromCanonicalForm(jsep.getString("type")),
                     jsep.getString("sdp")
-            );
+            ));
 
             peerConnection.setRemoteDescription(new SdpObserver() {
                 @Override
@@ -304,32 +592,33 @@ public class PeerConnectionClient {
                 public void onSetSuccess() {
                     if (sessionDescription.type == SessionDescription.Type.OFFER) {
                         createAnswer();
+                    } else {
+                        negotiated = true;
                     }
                 }
 
                 @Override
                 public void onCreateFailure(String s) {
-                    Log.e(TAG, "onCreateFailure: " + s);
+                    LOG.error("onCreateFailure: {}", s);
                 }
 
                 @Override
                 public void onSetFailure(String s) {
-                    Log.e(TAG, "onSetFailure: " + s);
+                    LOG.error("onSetFailure: {}", s);
                 }
             }, sessionDescription);
         } catch (JSONException e) {
-            Log.e(TAG, "Error parsing JSEP", e);
+            LOG.error("Error parsing JSEP", e);
         }
     }
 
     private void createAnswer() {
-        MediaConstraints sdpConstraints = new MediaConstraints();
-        sdpConstraints.mandatory.add(new MediaConstraints.KeyValuePair("OfferToReceiveAudio", "true"));
-        sdpConstraints.mandatory.add(new MediaConstraints.KeyValuePair("OfferToReceiveVideo", "true"));
+        MediaConstraints sdpConstraints = receiveConstraints();
 
         peerConnection.createAnswer(new SdpObserver() {
             @Override
-            public void onCreateSuccess(SessionDescription sessionDescription) {
+            public void onCreateSuccess(SessionDescription created) {
+                SessionDescription sessionDescription = applyAudioPolicy(created);
                 peerConnection.setLocalDescription(new SdpObserver() {
                     @Override
                     public void onCreateSuccess(SessionDescription sessionDescription) {}
@@ -341,32 +630,28 @@ public class PeerConnectionClient {
                             jsep.put("type", sessionDescription.type.canonicalForm());
                             jsep.put("sdp", sessionDescription.description);
 
-                            JSONObject body = new JSONObject();
-                            body.put("request", "accept");
-
-                            JSONObject accept = new JSONObject();
-                            accept.put("janus", "message");
-                            accept.put("session_id", webSocketClient.getSessionId());
-                            accept.put("handle_id", webSocketClient.getHandleId());
-                            accept.put("transaction", webSocketClient.generateTransactionId());
-                            accept.put("body", body);
-                            accept.put("jsep", jsep);
-
-                            webSocketClient.send(accept.toString());
-                            Log.d(TAG, "Sent answer SDP: " + accept.toString());
+                            if (negotiated) {
+                                webSocketClient.renegotiate(jsep);
+                            } else {
+                                webSocketClient.accept(jsep);
+                                negotiated = true;
+                            }
+                            if (AppLog.VERBOSE) {
+                                LOG.verbose("Sent answer SDP: {}", jsep);
+                            }
                         } catch (JSONException e) {
-                            Log.e(TAG, "Error creating answer JSEP", e);
+                            LOG.error("Error creating answer JSEP", e);
                         }
                     }
 
                     @Override
                     public void onCreateFailure(String s) {
-                        Log.e(TAG, "onCreateFailure: " + s);
+                        LOG.error("onCreateFailure: {}", s);
                     }
 
                     @Override
                     public void onSetFailure(String s) {
-                        Log.e(TAG, "onSetFailure: " + s);
+                        LOG.error("onSetFailure: {}", s);
                     }
                 }, sessionDescription);
             }
@@ -376,12 +661,12 @@ public class PeerConnectionClient {
 
             @Override
             public void onCreateFailure(String s) {
-                Log.e(TAG, "onCreateFailure: " + s);
+                LOG.error("onCreateFailure: {}", s);
             }
 
             @Override
             public void onSetFailure(String s) {
-                Log.e(TAG, "onSetFailure: " + s);
+                LOG.error("onSetFailure: {}", s);
             }
         }, sdpConstraints);
     }
@@ -395,37 +680,146 @@ public class PeerConnectionClient {
             );
             peerConnection.addIceCandidate(iceCandidate);
         } catch (JSONException e) {
-            Log.e(TAG, "Error parsing ICE candidate", e);
+            LOG.error("Error parsing ICE candidate", e);
         }
     }
 
-    public void close() {
-        if (peerConnection != null) {
-            for (RtpSender sender : peerConnection.getSenders()) {
-                peerConnection.removeTrack(sender);
-            }
-            peerConnection.close();
-            peerConnection = null;
+    /**
+     * Starts recording this call to {@code file}. Remote tracks that arrive later
+     * are not picked up, so start once the call is connected.
+     */
+    public void startRecording(File file, CallRecorder.Listener recordingListener) throws IOException {
+        if (callRecorder != null) {
+            return;
         }
+        CallRecorder recorder = new CallRecorder(eglBase.getEglBaseContext(), file,
+                RECORDING_WIDTH, RECORDING_HEIGHT, recordingListener);
+        recorder.start();
+        callRecorder = recorder;
+        audioEngine.setRecordSamplesListener(recorder);
+        if (localVideoTrack != null) {
+            localVideoTrack.addSink(recorder.getLocalSink());
+        }
+        VideoTrack remoteVideo = remoteVideoTrack;
+        if (remoteVideo != null) {
+            remoteVideo.addSink(recorder);
+        }
+        AudioTrack remoteAudio = remoteAudioTrack;
+        if (remoteAudio != null) {
+            remoteAudio.addSink(recorder);
+        }
+    }
 
-        if (videoCapturer != null) {
-            try {
-                videoCapturer.stopCapture();
-                videoCapturer.dispose();
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Error stopping video capture", e);
-            }
-            videoCapturer = null;
+    public boolean isRecording() {
+        return callRecorder != null;
+    }
+
+    public void stopRecording() {
+        CallRecorder recorder = callRecorder;
+        if (recorder == null) {
+            return;
+        }
+        callRecorder = null;
+        audioEngine.setRecordSamplesListener(null);
+        if (localVideoTrack != null) {
+            localVideoTrack.removeSink(recorder.getLocalSink());
         }
+        VideoTrack remoteVideo = remoteVideoTrack;
+        if (remoteVideo != null) {
+            remoteVideo.removeSink(recorder);
+        }
+        AudioTrack remoteAudio = remoteAudioTrack;
+        if (remoteAudio != null) {
+            remoteAudio.removeSink(recorder);
+        }
+        recorder.stop();
+    }
 
-        if (surfaceTextureHelper != null) {
-            surfaceTextureHelper.dispose();
-            surfaceTextureHelper = null;
+    /**
+     * Ends the call without blocking the caller. What the UI or a following call
+     * could notice (recording, monitoring, renderers) stops right away; the native
+     * objects are released on {@link MediaExecutor} in dependency order: the
+     * stats monitors first, then the PeerConnection and its encoders, then the
+     * camera, then the tracks and their sources. Only the first call has any effect.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        stopRecording();
+        qualityController.stop();
+        AudioStats audioStats = audioEngine.stopMonitoring();
+        if (audioStats != null) {
+            LOG.info("Last call {}", audioStats);
+            audioCodecPolicy.onCallEnded(audioStats);
+        }
+        if (messenger != null) {
+            messenger.close();
+            messenger = null;
         }
 
-        if (localStream != null) {
-            localStream.dispose();
-            localStream = null;
+        // Unhook the shared renderers now so a call started meanwhile owns them alone.
+        if (localVideoTrack != null) {
+            localVideoTrack.removeSink(localVideoSink);
         }
+        VideoTrack remoteVideo = remoteVideoTrack;
+        if (remoteVideo != null) {
+            remoteVideo.removeSink(remoteVideoSink);
+        }
+
+        PeerConnection connection = peerConnection;
+        VideoCapturer capturer = videoCapturer;
+        SurfaceTextureHelper textureHelper = surfaceTextureHelper;
+        MediaStream stream = localStream;
+        VideoSource video = videoSource;
+        AudioSource audio = audioSource;
+        peerConnection = null;
+        videoCapturer = null;
+        surfaceTextureHelper = null;
+        localStream = null;
+        localVideoTrack = null;
+        localAudioTrack = null;
+        videoSource = null;
+        audioSource = null;
+        remoteVideoTrack = null;
+        remoteAudioTrack = null;
+
+        MediaExecutor.execute(() -> {
+            long startNs = System.nanoTime();
+            // Both wait out a stats poll in progress, so they go before the connection is disposed.
+            LOG.info("Last call glass-to-glass latency: {}; receive half: {}",
+                    latencyMonitor.stop(), latencyMonitor.getReceiveLatency());
+            List<String> handovers = handoverMonitor.stop();
+            if (!handovers.isEmpty()) {
+                LOG.info("Last call handovers: {}", handovers);
+            }
+            if (connection != null) {
+                // Also disposes the senders, receivers and remote tracks.
+                connection.dispose();
+            }
+            if (capturer != null) {
+                try {
+                    capturer.stopCapture();
+                } catch (InterruptedException e) {
+                    LOG.error("Error stopping video capture", e);
+                    Thread.currentThread().interrupt();
+                }
+                capturer.dispose();
+            }
+            if (textureHelper != null) {
+                textureHelper.dispose();
+            }
+            if (stream != null) {
+                // Disposes the local tracks along with the stream.
+                stream.dispose();
+            }
+            if (video != null) {
+                video.dispose();
+            }
+            if (audio != null) {
+                audio.dispose();
+            }
+            LOG.debug("Call released in {} ms", (System.nanoTime() - startNs) / 1_000_000);
+        });
     }
-}
\ No newline at end of file
+}
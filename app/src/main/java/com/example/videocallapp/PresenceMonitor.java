@@ -0,0 +1,98 @@
+package com.example.videocallapp;
+
+import android.os.SystemClock;
+
+import com.example.janus.core.EventLog;
+import com.example.janus.core.PresenceCache;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a {@link PresenceCache} fresh while signed in by re-issuing the
+ * videocall {@code list} request once the last answer is half its TTL old, so
+ * lookups on the call path are answered locally. At most one request is in
+ * flight; a failed one is retried on the next check, and one left unanswered
+ * for a TTL (the transaction was dropped) is given up on.
+ */
+final class PresenceMonitor {
+    private static final String TAG = "PresenceMonitor";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    private static final long TTL_MS = 30_000;
+    private static final long CHECK_INTERVAL_SECONDS = 5;
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final JanusWebSocketClient client;
+    private final PresenceCache cache;
+    // When the request in flight was sent, or IDLE.
+    private final AtomicLong inFlightSince = new AtomicLong(IDLE);
+    private ScheduledExecutorService executor;
+
+    PresenceMonitor(JanusWebSocketClient client) {
+        this.client = client;
+        this.cache = new PresenceCache(TTL_MS, (cameOnline, wentOffline) ->
+                LOG.debug("Online: +{} -{}", cameOnline, wentOffline));
+    }
+
+    PresenceCache.Presence lookup(String username) {
+        return cache.lookup(username, SystemClock.elapsedRealtime());
+    }
+
+    List<String> search(String prefix, int limit) {
+        return cache.search(prefix, limit, SystemClock.elapsedRealtime());
+    }
+
+    void observe(String username, boolean online) {
+        cache.observe(username, online, SystemClock.elapsedRealtime());
+    }
+
+    synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "PresenceMonitor"));
+        executor.scheduleWithFixedDelay(this::refreshIfStale, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /** Refreshes now unless the cache is still fresh; for when a lookup is about to matter. */
+    void prefetch() {
+        refreshIfStale();
+    }
+
+    private void refreshIfStale() {
+        long requestedAt = SystemClock.elapsedRealtime();
+        if (!cache.needsRefresh(requestedAt)) {
+            return;
+        }
+        long since = inFlightSince.get();
+        if ((since != IDLE && requestedAt - since < TTL_MS) || !inFlightSince.compareAndSet(since, requestedAt)) {
+            return;
+        }
+        client.listUsers(new JanusWebSocketClient.UserListCallback() {
+            @Override
+            public void onUserList(List<String> usernames) {
+                // A late answer to a request given up on must not replace a newer list.
+                if (inFlightSince.compareAndSet(requestedAt, IDLE)) {
+                    // Stamped with the request time: the list can only be older than its answer.
+                    cache.update(usernames, requestedAt);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                LOG.debug(error);
+                inFlightSince.compareAndSet(requestedAt, IDLE);
+            }
+        });
+    }
+}
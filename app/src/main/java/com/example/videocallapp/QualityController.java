@@ -0,0 +1,97 @@
+package com.example.videocallapp;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import com.example.janus.core.EventLog;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds {@link QualityGovernor} from {@link PowerManager} and
+ * {@link ThreadCpuSampler} every few seconds, and immediately when the thermal
+ * status changes, and hands each new level to the media engine.
+ */
+final class QualityController {
+    private static final String TAG = "QualityController";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    private static final long SAMPLE_INTERVAL_SECONDS = 5;
+    /** How far ahead the headroom forecast looks; about one step's worth of reaction time. */
+    private static final int HEADROOM_FORECAST_SECONDS = 10;
+
+    interface Target {
+        void applyVideoQuality(QualityGovernor.Level level);
+    }
+
+    private final PowerManager powerManager;
+    private final Target target;
+    private final QualityGovernor governor = new QualityGovernor();
+    private final ThreadCpuSampler cpuSampler = ThreadCpuSampler.forWebRtc();
+    private ScheduledExecutorService executor;
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+    private double lastCpuCores;
+
+    QualityController(Context context, Target target) {
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.target = target;
+    }
+
+    synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "QualityController"));
+        executor.scheduleWithFixedDelay(this::sample, 0, SAMPLE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            thermalListener = status -> {
+                LOG.debug("Thermal status {}", status);
+                // Runs on our executor. Reuses the last CPU reading; a new one over a
+                // partial interval would be noise.
+                evaluate(lastCpuCores);
+            };
+            powerManager.addThermalStatusListener(executor, thermalListener);
+        }
+    }
+
+    synchronized void stop() {
+        if (executor == null) {
+            return;
+        }
+        if (thermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            powerManager.removeThermalStatusListener(thermalListener);
+            thermalListener = null;
+        }
+        executor.shutdownNow();
+        executor = null;
+        LOG.debug("Stopped at {}", governor.getLevel());
+    }
+
+    private void sample() {
+        ThreadCpuSampler.Sample sample = cpuSampler.sample(SystemClock.elapsedRealtime());
+        if (sample == null) {
+            return;
+        }
+        LOG.debug("WebRTC threads: {}", sample);
+        lastCpuCores = sample.cores();
+        evaluate(lastCpuCores);
+    }
+
+    private void evaluate(double cpuCores) {
+        int thermalStatus = QualityGovernor.THERMAL_NONE;
+        float headroom = Float.NaN;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            thermalStatus = powerManager.getCurrentThermalStatus();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            headroom = powerManager.getThermalHeadroom(HEADROOM_FORECAST_SECONDS);
+        }
+        QualityGovernor.Level level = governor.evaluate(thermalStatus, headroom, cpuCores);
+        if (level != null) {
+            target.applyVideoQuality(level);
+        }
+    }
+}
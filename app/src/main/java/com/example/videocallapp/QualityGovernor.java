@@ -0,0 +1,136 @@
+package com.example.videocallapp;
+
+import com.example.janus.core.EventLog;
+
+/**
+ * Picks the outgoing video quality from device heat and the CPU time of the
+ * WebRTC threads, stepping down a fixed ladder before the OS starts throttling
+ * and back up once the device has stayed cool for a while.
+ *
+ * <ul>
+ *   <li>The platform thermal status sets a floor: from LIGHT we are at most on
+ *       the second rung, from MODERATE on the third, from SEVERE on the last.</li>
+ *   <li>A thermal headroom forecast near 1.0 (throttling) or WebRTC threads
+ *       busy for more than {@value #HIGH_CPU_CORES} cores step down one rung,
+ *       then hold for {@value #HOLD_SAMPLES} samples so the effect can show.</li>
+ *   <li>Stepping up needs {@value #STEP_UP_SAMPLES} consecutive calm samples.</li>
+ * </ul>
+ *
+ * Every evaluation is logged with its inputs so a call can be replayed from
+ * logcat. Not thread-safe; {@link QualityController} calls it from one thread.
+ */
+final class QualityGovernor {
+    private static final String TAG = "QualityGovernor";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+
+    // Same values as PowerManager.THERMAL_STATUS_*, which is API 29.
+    static final int THERMAL_NONE = 0;
+    static final int THERMAL_LIGHT = 1;
+    static final int THERMAL_MODERATE = 2;
+    static final int THERMAL_SEVERE = 3;
+
+    /** Forecast headroom at which we step down; 1.0 is where the platform throttles. */
+    static final float HOT_HEADROOM = 0.85f;
+    /** Forecast headroom below which stepping up is allowed. */
+    static final float COOL_HEADROOM = 0.7f;
+    static final double HIGH_CPU_CORES = 1.5;
+    static final double LOW_CPU_CORES = 0.75;
+    static final int HOLD_SAMPLES = 2;
+    static final int STEP_UP_SAMPLES = 6;
+
+    /** One rung of the ladder: what the camera feeds the encoder and what the encoder may send. */
+    static final class Level {
+        final int width;
+        final int height;
+        final int fps;
+        final int maxBitrateBps;
+
+        Level(int width, int height, int fps, int maxBitrateBps) {
+            this.width = width;
+            this.height = height;
+            this.fps = fps;
+            this.maxBitrateBps = maxBitrateBps;
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + "@" + fps + " " + maxBitrateBps / 1000 + "kbps";
+        }
+    }
+
+    static final Level[] LADDER = {
+            new Level(640, 480, 30, 1_200_000),
+            new Level(640, 480, 20, 800_000),
+            new Level(480, 360, 15, 500_000),
+            new Level(320, 240, 15, 250_000),
+    };
+
+    private int index;
+    private int calmSamples;
+    private int holdSamples;
+
+    Level getLevel() {
+        return LADDER[index];
+    }
+
+    /**
+     * Feeds one sample and returns the new level, or null if it stays the same.
+     *
+     * @param headroom thermal headroom forecast, NaN if the device has none
+     * @param cpuCores CPU time of the WebRTC threads over the sample, in cores
+     */
+    Level evaluate(int thermalStatus, float headroom, double cpuCores) {
+        int floor = thermalFloor(thermalStatus);
+        boolean hot = headroom >= HOT_HEADROOM || cpuCores >= HIGH_CPU_CORES;
+        boolean calm = thermalStatus == THERMAL_NONE
+                && (Float.isNaN(headroom) || headroom < COOL_HEADROOM)
+                && cpuCores < LOW_CPU_CORES;
+
+        int target = Math.max(index, floor);
+        String reason;
+        if (target > index) {
+            reason = "thermal floor";
+        } else if (hot && holdSamples == 0 && index < LADDER.length - 1) {
+            target = index + 1;
+            reason = headroom >= HOT_HEADROOM ? "headroom" : "cpu";
+        } else if (calm && index > 0 && ++calmSamples >= STEP_UP_SAMPLES) {
+            target = index - 1;
+            reason = "cool";
+        } else {
+            reason = "hold";
+        }
+        if (!calm) {
+            calmSamples = 0;
+        }
+        if (holdSamples > 0) {
+            holdSamples--;
+        }
+
+        if (LOG.isLoggable(EventLog.Level.DEBUG)) {
+            LOG.debug(String.format("thermal=%d headroom=%.2f cpu=%.2f -> %s %s", thermalStatus, headroom,
+                    cpuCores, reason, LADDER[target]));
+        }
+        if (target == index) {
+            return null;
+        }
+        if (target > index) {
+            holdSamples = HOLD_SAMPLES;
+        }
+        index = target;
+        calmSamples = 0;
+        return LADDER[index];
+    }
+
+    private static int thermalFloor(int thermalStatus) {
+        if (thermalStatus >= THERMAL_SEVERE) {
+            return LADDER.length - 1;
+        }
+        if (thermalStatus == THERMAL_MODERATE) {
+            return 2;
+        }
+        if (thermalStatus == THERMAL_LIGHT) {
+            return 1;
+        }
+        return 0;
+    }
+}
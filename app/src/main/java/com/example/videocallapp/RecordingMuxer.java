@@ -0,0 +1,170 @@
+package com.example.videocallapp;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+
+import com.example.janus.core.EventLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MediaMuxer} behind a single writer thread. Encoders hand over copies of
+ * their output and return immediately; samples that arrive before every track's
+ * format is known are held back until the muxer can start.
+ *
+ * <p>When the disk falls behind, {@link #isBackedUp()} tells the recorder to stop
+ * feeding the encoders. Past a hard cap samples are dropped here too; the video
+ * track then skips to its next key frame, because the frames in between
+ * reference the dropped ones.
+ */
+final class RecordingMuxer {
+    private static final String TAG = "RecordingMuxer";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+    /** Above this much unwritten data the disk is not keeping up and no new frames should be encoded. */
+    private static final long BACKED_UP_BYTES = 8 * 1024 * 1024;
+    /** Above this much, encoded samples are dropped. */
+    private static final long MAX_PENDING_BYTES = 16 * 1024 * 1024;
+
+    interface Listener {
+        void onFinished(File file, boolean success);
+    }
+
+    private static final class Sample {
+        final int track;
+        final ByteBuffer data;
+        final MediaCodec.BufferInfo info;
+
+        Sample(int track, ByteBuffer data, MediaCodec.BufferInfo info) {
+            this.track = track;
+            this.data = data;
+            this.info = info;
+        }
+    }
+
+    private final File file;
+    private final MediaMuxer muxer;
+    private final int[] muxerTracks;
+    private final int videoTrack;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "RecordingMuxer"));
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    // Caller thread only.
+    private boolean awaitingKeyFrame;
+
+    // Writer thread only.
+    private final List<Sample> heldBack = new ArrayList<>();
+    private int tracksAdded;
+    private boolean started;
+    private boolean failed;
+
+    RecordingMuxer(File file, int trackCount, int videoTrack) throws IOException {
+        this.file = file;
+        this.muxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        this.muxerTracks = new int[trackCount];
+        this.videoTrack = videoTrack;
+    }
+
+    /** Whether the disk is behind; the recorder should skip frames rather than encode them. */
+    boolean isBackedUp() {
+        return pendingBytes.get() > BACKED_UP_BYTES;
+    }
+
+    void addTrack(int track, MediaFormat format) {
+        writer.execute(() -> {
+            try {
+                muxerTracks[track] = muxer.addTrack(format);
+                if (++tracksAdded == muxerTracks.length) {
+                    muxer.start();
+                    started = true;
+                    for (Sample sample : heldBack) {
+                        write(sample);
+                    }
+                    heldBack.clear();
+                }
+            } catch (RuntimeException e) {
+                fail("Failed to add track " + format, e);
+            }
+        });
+    }
+
+    /**
+     * Copies {@code data} so the caller can release its codec buffer right away.
+     * Always called from the same thread.
+     */
+    void writeSample(int track, ByteBuffer data, MediaCodec.BufferInfo info) {
+        boolean full = pendingBytes.get() > MAX_PENDING_BYTES;
+        if (track == videoTrack) {
+            if (full) {
+                awaitingKeyFrame = true;
+            } else if (awaitingKeyFrame && (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0) {
+                awaitingKeyFrame = false;
+            }
+            full = awaitingKeyFrame;
+        }
+        if (full) {
+            droppedSamples.incrementAndGet();
+            return;
+        }
+        ByteBuffer copy = ByteBuffer.allocateDirect(info.size);
+        data.position(info.offset);
+        data.limit(info.offset + info.size);
+        copy.put(data);
+        copy.flip();
+        MediaCodec.BufferInfo copyInfo = new MediaCodec.BufferInfo();
+        copyInfo.set(0, info.size, info.presentationTimeUs, info.flags);
+
+        pendingBytes.addAndGet(info.size);
+        Sample sample = new Sample(track, copy, copyInfo);
+        writer.execute(() -> {
+            if (started) {
+                write(sample);
+            } else {
+                heldBack.add(sample);
+            }
+        });
+    }
+
+    /** Finalizes the file after everything queued so far has been written. */
+    void finish(Listener listener) {
+        writer.execute(() -> {
+            boolean success = started && !failed;
+            try {
+                if (started) {
+                    muxer.stop();
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Failed to finalize {}", file, e);
+                success = false;
+            }
+            muxer.release();
+            heldBack.clear();
+            LOG.debug("Recording finished: {} ({} samples dropped)", file, droppedSamples.get());
+            listener.onFinished(file, success);
+        });
+        writer.shutdown();
+    }
+
+    private void write(Sample sample) {
+        pendingBytes.addAndGet(-sample.info.size);
+        if (failed) return;
+        try {
+            muxer.writeSampleData(muxerTracks[sample.track], sample.data, sample.info);
+        } catch (RuntimeException e) {
+            fail("Failed to write sample", e);
+        }
+    }
+
+    private void fail(String message, RuntimeException e) {
+        LOG.error(message, e);
+        failed = true;
+    }
+}
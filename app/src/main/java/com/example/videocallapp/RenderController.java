@@ -0,0 +1,174 @@
+package com.example.videocallapp;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.example.janus.core.EventLog;
+
+import org.webrtc.RendererCommon;
+import org.webrtc.SurfaceViewRenderer;
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the call's {@link SurfaceViewRenderer}s and sits between them and the
+ * video tracks, so each view only costs what it shows.
+ *
+ * <p>Every renderer is wrapped in a {@link Tile} that drops frames above its
+ * role's frame rate and while the view is not on screen, before they reach the
+ * GL thread. The hardware scaler sizes each surface to the view rather than to
+ * the decoded frame, so the final scale happens once in the compositor.
+ */
+public class RenderController {
+    private static final String TAG = "RenderController";
+    private static final EventLog.Category LOG = AppLog.category(TAG);
+
+    public enum Role {
+        /** Mirrored self-view; nobody needs a smooth picture of themselves. */
+        LOCAL_PREVIEW(15f, true, RendererCommon.ScalingType.SCALE_ASPECT_FILL),
+        /** The remote participant being watched. */
+        REMOTE_MAIN(30f, false, RendererCommon.ScalingType.SCALE_ASPECT_FIT),
+        /** Small remote tiles in a grid. */
+        REMOTE_THUMBNAIL(15f, false, RendererCommon.ScalingType.SCALE_ASPECT_FILL);
+
+        final float maxFps;
+        final boolean mirror;
+        final RendererCommon.ScalingType scalingType;
+
+        Role(float maxFps, boolean mirror, RendererCommon.ScalingType scalingType) {
+            this.maxFps = maxFps;
+            this.mirror = mirror;
+            this.scalingType = scalingType;
+        }
+    }
+
+    public static final class Tile implements VideoSink {
+        private final SurfaceViewRenderer view;
+        private final Role role;
+        private final FrameRateLimiter limiter;
+        private final ViewTreeObserver.OnGlobalLayoutListener layoutListener;
+        private final AtomicLong framesRendered = new AtomicLong();
+        private final AtomicLong framesThrottled = new AtomicLong();
+        private final AtomicLong framesHidden = new AtomicLong();
+        private volatile boolean shown;
+
+        private Tile(SurfaceViewRenderer view, Role role) {
+            this.view = view;
+            this.role = role;
+            this.limiter = new FrameRateLimiter(role.maxFps);
+            this.layoutListener = this::updateShown;
+        }
+
+        @Override
+        public void onFrame(VideoFrame frame) {
+            if (!shown) {
+                framesHidden.incrementAndGet();
+                return;
+            }
+            boolean render;
+            synchronized (limiter) {
+                render = limiter.shouldRender(frame.getTimestampNs());
+            }
+            if (!render) {
+                framesThrottled.incrementAndGet();
+                return;
+            }
+            framesRendered.incrementAndGet();
+            view.onFrame(frame);
+        }
+
+        public void clearImage() {
+            view.clearImage();
+        }
+
+        public Role getRole() {
+            return role;
+        }
+
+        public long getFramesRendered() {
+            return framesRendered.get();
+        }
+
+        /** Frames dropped by the role's frame-rate cap. */
+        public long getFramesThrottled() {
+            return framesThrottled.get();
+        }
+
+        /** Frames dropped because the view was hidden, detached or zero-sized. */
+        public long getFramesHidden() {
+            return framesHidden.get();
+        }
+
+        private void updateShown() {
+            boolean nowShown = view.isShown() && view.getWidth() > 0 && view.getHeight() > 0;
+            if (nowShown == shown) {
+                return;
+            }
+            shown = nowShown;
+            if (nowShown) {
+                synchronized (limiter) {
+                    limiter.reset();
+                }
+            } else {
+                view.clearImage();
+            }
+        }
+
+        @Override
+        public String toString() {
+            long rendered = framesRendered.get();
+            long dropped = framesThrottled.get() + framesHidden.get();
+            long total = rendered + dropped;
+            return role + ": rendered " + rendered + ", dropped " + dropped
+                    + " (" + framesThrottled.get() + " over cap, " + framesHidden.get() + " hidden)"
+                    + (total > 0 ? String.format(" %.0f%% saved", 100.0 * dropped / total) : "");
+        }
+    }
+
+    private final List<Tile> tiles = new ArrayList<>();
+
+    /** Initializes {@code view} on the shared EGL context for {@code role}. Call on the UI thread. */
+    public Tile attach(SurfaceViewRenderer view, Role role) {
+        view.init(PeerConnectionClient.getEglBase().getEglBaseContext(), null);
+        view.setMirror(role.mirror);
+        view.setScalingType(role.scalingType);
+        view.setEnableHardwareScaler(true);
+
+        Tile tile = new Tile(view, role);
+        view.getViewTreeObserver().addOnGlobalLayoutListener(tile.layoutListener);
+        view.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+                tile.updateShown();
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+                tile.updateShown();
+            }
+        });
+        tile.updateShown();
+        tiles.add(tile);
+        return tile;
+    }
+
+    public void logStatistics() {
+        for (Tile tile : tiles) {
+            LOG.debug("{}", tile);
+        }
+    }
+
+    /** Releases every renderer. Call on the UI thread. */
+    public void release() {
+        logStatistics();
+        for (Tile tile : tiles) {
+            tile.view.getViewTreeObserver().removeOnGlobalLayoutListener(tile.layoutListener);
+            tile.view.release();
+        }
+        tiles.clear();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.videocallapp;
+
+import com.example.janus.core.EventLog;
+
+import org.webrtc.SdpObserver;
+import org.webrtc.SessionDescription;
+
+/**
+ * {@link SdpObserver} with no-op success callbacks and logged failures;
+ * subclasses override the step they care about.
+ */
+abstract class SimpleSdpObserver implements SdpObserver {
+    private final EventLog.Category log;
+
+    SimpleSdpObserver(String tag) {
+        this.log = AppLog.category(tag);
+    }
+
+    @Override
+    public void onCreateSuccess(SessionDescription sessionDescription) {}
+
+    @Override
+    public void onSetSuccess() {}
+
+    @Override
+    public void onCreateFailure(String s) {
+        log.error("onCreateFailure: {}", s);
+    }
+
+    @Override
+    public void onSetFailure(String s) {
+        log.error("onSetFailure: {}", s);
+    }
+}
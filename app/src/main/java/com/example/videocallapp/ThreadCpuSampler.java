@@ -0,0 +1,137 @@
+package com.example.videocallapp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CPU time of selected threads of this process, read from
+ * {@code /proc/self/task/<tid>/stat}. Threads are picked by name prefix; the
+ * kernel truncates names to 15 characters, so prefixes should be that short.
+ */
+final class ThreadCpuSampler {
+    /** USER_HZ is 100 on every Android kernel. */
+    static final long MS_PER_CLOCK_TICK = 10;
+
+    /** Threads doing per-frame work in a call: capture, codecs, pacing, rendering, audio. */
+    static final String[] WEBRTC_THREADS = {
+            "worker_thread", "signaling_threa", "network_thread", "EncoderQueue", "DecodingQueue",
+            "CaptureThread", "EglRenderer", "AudioRecordJava", "AudioTrackJavaT", "rtp_send_contr",
+            "PacerThread", "AudioEncoder", "IncomingVideoSt",
+    };
+
+    /** CPU time per thread name over one interval. */
+    static final class Sample {
+        final Map<String, Long> cpuMsByThread;
+        final long wallMs;
+
+        Sample(Map<String, Long> cpuMsByThread, long wallMs) {
+            this.cpuMsByThread = cpuMsByThread;
+            this.wallMs = wallMs;
+        }
+
+        /** Average number of cores the sampled threads kept busy. */
+        double cores() {
+            if (wallMs <= 0) return 0;
+            long total = 0;
+            for (long ms : cpuMsByThread.values()) {
+                total += ms;
+            }
+            return (double) total / wallMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.2f cores %s", cores(), cpuMsByThread);
+        }
+    }
+
+    private final File taskDir;
+    private final String[] namePrefixes;
+    private final Map<String, Long> lastTicksByTid = new HashMap<>();
+    private long lastSampleMs = -1;
+
+    ThreadCpuSampler(File taskDir, String... namePrefixes) {
+        this.taskDir = taskDir;
+        this.namePrefixes = namePrefixes;
+    }
+
+    static ThreadCpuSampler forWebRtc() {
+        return new ThreadCpuSampler(new File("/proc/self/task"), WEBRTC_THREADS);
+    }
+
+    /**
+     * Returns the CPU time used since the previous call, or null on the first
+     * call, which only takes the baseline. Threads started in between are
+     * counted from their start.
+     */
+    Sample sample(long nowMs) {
+        Map<String, Long> cpuMsByThread = new TreeMap<>();
+        Map<String, Long> ticksByTid = new HashMap<>();
+        File[] tasks = taskDir.listFiles();
+        if (tasks != null) {
+            for (File task : tasks) {
+                String stat = readLine(new File(task, "stat"));
+                if (stat == null) continue;
+                String name = parseName(stat);
+                if (name == null || !isSampled(name)) continue;
+                long ticks = parseCpuTicks(stat);
+                if (ticks < 0) continue;
+                ticksByTid.put(task.getName(), ticks);
+                Long last = lastTicksByTid.get(task.getName());
+                long deltaMs = (ticks - (last != null ? last : 0)) * MS_PER_CLOCK_TICK;
+                Long sum = cpuMsByThread.get(name);
+                cpuMsByThread.put(name, (sum != null ? sum : 0) + deltaMs);
+            }
+        }
+        boolean first = lastSampleMs < 0;
+        long wallMs = nowMs - lastSampleMs;
+        lastSampleMs = nowMs;
+        lastTicksByTid.clear();
+        lastTicksByTid.putAll(ticksByTid);
+        return first ? null : new Sample(cpuMsByThread, wallMs);
+    }
+
+    private boolean isSampled(String name) {
+        for (String prefix : namePrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The thread name between the parentheses; it may itself contain spaces or parentheses. */
+    static String parseName(String stat) {
+        int open = stat.indexOf('(');
+        int close = stat.lastIndexOf(')');
+        return open >= 0 && close > open ? stat.substring(open + 1, close) : null;
+    }
+
+    /** utime + stime (fields 14 and 15), or -1 if the line is malformed. */
+    static long parseCpuTicks(String stat) {
+        int close = stat.lastIndexOf(')');
+        if (close < 0 || close + 2 > stat.length()) return -1;
+        // Fields after the name start at field 3 (state).
+        String[] fields = stat.substring(close + 2).split(" ");
+        if (fields.length < 13) return -1;
+        try {
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readLine(File file) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return reader.readLine();
+        } catch (IOException e) {
+            // The thread exited between listing and reading.
+            return null;
+        }
+    }
+}
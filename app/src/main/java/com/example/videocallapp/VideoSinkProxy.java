@@ -0,0 +1,29 @@
+package com.example.videocallapp;
+
+import org.webrtc.VideoFrame;
+import org.webrtc.VideoSink;
+
+/**
+ * Stable sink for a video track whose renderer comes and goes with the
+ * activity. Frames arriving while nothing is attached are dropped.
+ */
+final class VideoSinkProxy implements VideoSink {
+    private RenderController.Tile target;
+
+    synchronized void setTarget(RenderController.Tile target) {
+        this.target = target;
+    }
+
+    synchronized void clearImage() {
+        if (target != null) {
+            target.clearImage();
+        }
+    }
+
+    @Override
+    public synchronized void onFrame(VideoFrame frame) {
+        if (target != null) {
+            target.onFrame(frame);
+        }
+    }
+}
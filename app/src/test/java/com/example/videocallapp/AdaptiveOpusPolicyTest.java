@@ -0,0 +1,53 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveOpusPolicyTest {
+    private static AudioStats call(long received, long lost, double sourceLevel) {
+        Map<String, Object> inbound = new HashMap<>();
+        inbound.put("kind", "audio");
+        inbound.put("packetsReceived", received);
+        inbound.put("packetsLost", (int) lost);
+        Map<String, Object> source = new HashMap<>();
+        source.put("kind", "audio");
+        source.put("totalSamplesDuration", 60.0);
+        source.put("totalAudioEnergy", sourceLevel * sourceLevel * 60.0);
+        return new AudioStats.Builder().add("inbound-rtp", inbound).add("media-source", source).build();
+    }
+
+    @Test
+    public void cleanTalkativeCall_dropsFecAndKeepsDefaults() {
+        OpusConfig next = AdaptiveOpusPolicy.next(call(3000, 0, 0.1));
+
+        assertEquals(new OpusConfig(false, false, 32000, 20), next);
+    }
+
+    @Test
+    public void lossyCall_raisesBitrateForFec() {
+        OpusConfig next = AdaptiveOpusPolicy.next(call(2800, 200, 0.1));
+
+        assertEquals(new OpusConfig(true, false, 40000, 20), next);
+    }
+
+    @Test
+    public void congestedSilentCall_lowersBitrateLengthensPacketsAndEnablesDtx() {
+        OpusConfig next = AdaptiveOpusPolicy.next(call(2000, 1000, 0.002));
+
+        assertEquals(new OpusConfig(true, true, 24000, 40), next);
+    }
+
+    @Test
+    public void shortCall_leavesConfigUnchanged() {
+        AdaptiveOpusPolicy policy = new AdaptiveOpusPolicy();
+
+        policy.onCallEnded(call(100, 50, 0.0));
+        policy.onCallEnded(null);
+
+        assertEquals(AdaptiveOpusPolicy.DEFAULT, policy.getConfig());
+    }
+}
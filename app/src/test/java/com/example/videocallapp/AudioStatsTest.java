@@ -0,0 +1,58 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AudioStatsTest {
+    private static Map<String, Object> members(Object... keyValues) {
+        Map<String, Object> members = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            members.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return members;
+    }
+
+    @Test
+    public void audioReports_areCombinedIntoReceiveLatency() {
+        AudioStats stats = new AudioStats.Builder()
+                .add("media-playout", members(
+                        "synthesizedSamplesEvents", 3L,
+                        "synthesizedSamplesDuration", 0.06,
+                        "totalPlayoutDelay", 480.0,
+                        "totalSamplesCount", BigInteger.valueOf(16000)))
+                .add("inbound-rtp", members(
+                        "kind", "audio",
+                        "jitterBufferDelay", 40.0,
+                        "jitterBufferEmittedCount", BigInteger.valueOf(1000),
+                        "concealmentEvents", BigInteger.valueOf(7),
+                        "packetsReceived", 950L,
+                        "packetsLost", 50)) // packetsLost is an Integer in the Java bindings
+                .add("remote-inbound-rtp", members("kind", "audio", "roundTripTime", 0.1))
+                .build();
+
+        assertEquals(3, stats.getPlayoutUnderruns());
+        assertEquals(30.0, stats.getPlayoutDelayMs(), 1e-9);
+        assertEquals(40.0, stats.getJitterBufferDelayMs(), 1e-9);
+        assertEquals(100.0, stats.getRoundTripTimeMs(), 1e-9);
+        assertEquals(120.0, stats.getEstimatedReceiveLatencyMs(), 1e-9);
+        assertEquals(7, stats.getConcealmentEvents());
+        assertEquals(0.05, stats.getPacketLossRate(), 1e-9);
+    }
+
+    @Test
+    public void videoAndUnknownReports_areIgnored() {
+        AudioStats stats = new AudioStats.Builder()
+                .add("inbound-rtp", members("kind", "video", "packetsLost", 10, "packetsReceived", 10L))
+                .add("codec", members("mimeType", "audio/opus"))
+                .build();
+
+        assertEquals(0, stats.getPacketsLost());
+        assertEquals(0.0, stats.getPacketLossRate(), 0);
+        assertEquals(0.0, stats.getEstimatedReceiveLatencyMs(), 0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DataFrameCodecTest {
+    private static final class Recorder implements DataFrameCodec.Handler {
+        final List<String> entries = new ArrayList<>();
+
+        @Override
+        public void onData(long seq, int type, byte[] payload, boolean ackRequested) {
+            entries.add((ackRequested ? "data " : "event ") + seq + " " + type + " "
+                    + new String(payload, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void onAck(long seq) {
+            entries.add("ack " + seq);
+        }
+    }
+
+    @Test
+    public void batch_roundTripsMixedEntries() {
+        DataFrameCodec.BatchWriter writer = new DataFrameCodec.BatchWriter(1200);
+        assertTrue(writer.addData(1, 1, "hi".getBytes(StandardCharsets.UTF_8), true));
+        assertTrue(writer.addAck(300));
+        assertTrue(writer.addData(70000, 2, new byte[0], false));
+
+        ByteBuffer batch = writer.drain();
+        Recorder recorder = new Recorder();
+
+        assertTrue(DataFrameCodec.decode(batch, recorder));
+        assertEquals("data 1 1 hi", recorder.entries.get(0));
+        assertEquals("ack 300", recorder.entries.get(1));
+        assertEquals("event 70000 2 ", recorder.entries.get(2));
+        assertTrue(writer.isEmpty());
+    }
+
+    @Test
+    public void smallMessage_costsFiveBytesOfFraming() {
+        DataFrameCodec.BatchWriter writer = new DataFrameCodec.BatchWriter(1200);
+        writer.addData(5, 1, "ok".getBytes(StandardCharsets.UTF_8), true);
+
+        // version + kind + seq + type + length
+        assertEquals(5 + 2, writer.drain().remaining());
+    }
+
+    @Test
+    public void fullBatch_rejectsEntryWithoutWriting() {
+        DataFrameCodec.BatchWriter writer = new DataFrameCodec.BatchWriter(16);
+        assertTrue(writer.addData(1, 1, new byte[8], true));
+        assertFalse(writer.addData(2, 1, new byte[8], true));
+
+        Recorder recorder = new Recorder();
+        assertTrue(DataFrameCodec.decode(writer.drain(), recorder));
+        assertEquals(1, recorder.entries.size());
+    }
+
+    @Test
+    public void truncatedBatch_isRejected() {
+        DataFrameCodec.BatchWriter writer = new DataFrameCodec.BatchWriter(64);
+        writer.addData(1, 1, new byte[10], true);
+        ByteBuffer batch = writer.drain();
+        batch.limit(batch.limit() - 3);
+
+        assertFalse(DataFrameCodec.decode(batch, new Recorder()));
+    }
+
+    @Test
+    public void varint_roundTripsLargeValues() {
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        DataFrameCodec.putVarint(buffer, Long.MAX_VALUE);
+        assertEquals(DataFrameCodec.varintSize(Long.MAX_VALUE), buffer.position());
+        buffer.flip();
+        assertEquals(Long.MAX_VALUE, DataFrameCodec.getVarint(buffer));
+    }
+}
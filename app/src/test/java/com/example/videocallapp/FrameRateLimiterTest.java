@@ -0,0 +1,46 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameRateLimiterTest {
+    private static final long FRAME_30FPS_NS = TimeUnit.SECONDS.toNanos(1) / 30;
+
+    private static int renderedOutOf(FrameRateLimiter limiter, int frames, long intervalNs) {
+        int rendered = 0;
+        for (int i = 0; i < frames; i++) {
+            if (limiter.shouldRender(i * intervalNs)) {
+                rendered++;
+            }
+        }
+        return rendered;
+    }
+
+    @Test
+    public void uncapped_rendersEveryFrame() {
+        assertEquals(30, renderedOutOf(new FrameRateLimiter(0), 30, FRAME_30FPS_NS));
+    }
+
+    @Test
+    public void halfRateCap_keepsEveryOtherFrame() {
+        assertEquals(15, renderedOutOf(new FrameRateLimiter(15), 30, FRAME_30FPS_NS));
+    }
+
+    @Test
+    public void capAboveSourceRate_keepsEveryFrame() {
+        assertEquals(30, renderedOutOf(new FrameRateLimiter(30), 30, FRAME_30FPS_NS));
+    }
+
+    @Test
+    public void gapInFrames_doesNotCauseBurst() {
+        FrameRateLimiter limiter = new FrameRateLimiter(15);
+        assertTrue(limiter.shouldRender(0));
+        long resumed = TimeUnit.SECONDS.toNanos(5);
+        assertTrue(limiter.shouldRender(resumed));
+        assertFalse(limiter.shouldRender(resumed + FRAME_30FPS_NS));
+        assertTrue(limiter.shouldRender(resumed + 2 * FRAME_30FPS_NS));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class GlassToGlassEstimatorTest {
+    private static Map<String, Object> members(Object... keyValues) {
+        Map<String, Object> members = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            members.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return members;
+    }
+
+    private static GlassToGlassEstimator.Counters counters(double jitterBuffer, long emitted, double decode,
+                                                           long decoded, double encode, long encoded,
+                                                           double sendDelay, long packets, double rtt) {
+        return new GlassToGlassEstimator.Counters()
+                .add("inbound-rtp", members(
+                        "kind", "video",
+                        "jitterBufferDelay", jitterBuffer,
+                        "jitterBufferEmittedCount", BigInteger.valueOf(emitted),
+                        "totalDecodeTime", decode,
+                        "framesDecoded", decoded))
+                .add("inbound-rtp", members("kind", "audio", "jitterBufferDelay", 99.0,
+                        "jitterBufferEmittedCount", BigInteger.valueOf(1)))
+                .add("outbound-rtp", members(
+                        "kind", "video",
+                        "totalEncodeTime", encode,
+                        "framesEncoded", encoded,
+                        "totalPacketSendDelay", sendDelay,
+                        "packetsSent", BigInteger.valueOf(packets)))
+                .add("candidate-pair", members("nominated", false, "state", "succeeded",
+                        "currentRoundTripTime", 9.0))
+                .add("candidate-pair", members("nominated", true, "state", "succeeded",
+                        "currentRoundTripTime", rtt));
+    }
+
+    @Test
+    public void firstReport_onlyTakesBaseline() {
+        GlassToGlassEstimator estimator = new GlassToGlassEstimator();
+
+        assertNull(estimator.onStats(counters(10, 100, 1, 100, 1, 100, 1, 200, 0.1), 0));
+        assertEquals(0, estimator.getReceive().count());
+    }
+
+    @Test
+    public void intervalDeltas_areCombinedWithPeerSendHalf() {
+        GlassToGlassEstimator estimator = new GlassToGlassEstimator();
+        estimator.onStats(counters(10, 100, 1, 100, 1, 100, 1, 200, 0.1), 0);
+        estimator.onCaptureDelay(20_000_000);
+        estimator.onCaptureDelay(40_000_000);
+        estimator.onPeerSendDelay(70, 500);
+
+        // 30 frames: 60 ms jitter buffer and 5 ms decode each; 30 encoded at 10 ms,
+        // 60 packets paced at 2 ms; 80 ms round trip.
+        GlassToGlassEstimator.Sample sample = estimator.onStats(
+                counters(11.8, 130, 1.15, 130, 1.3, 130, 1.12, 260, 0.08), 1000);
+
+        assertEquals(30, sample.captureMs, 1e-9);
+        assertEquals(10, sample.encodeMs, 1e-9);
+        assertEquals(2, sample.pacerMs, 1e-9);
+        assertEquals(40, sample.oneWayMs, 1e-9);
+        assertEquals(60, sample.jitterBufferMs, 1e-9);
+        assertEquals(5, sample.decodeMs, 1e-9);
+        assertEquals(82, sample.sendMs(), 1e-9);
+        assertEquals(105, sample.receiveMs(), 1e-9);
+        assertEquals(175, sample.glassToGlassMs(), 1e-9);
+        assertEquals(30, estimator.getGlassToGlass().count());
+        assertEquals(175, estimator.getGlassToGlass().percentile(0.5));
+        assertEquals(105, estimator.getReceive().percentile(0.5));
+    }
+
+    @Test
+    public void stalePeerReport_leavesOnlyReceiveHalf() {
+        GlassToGlassEstimator estimator = new GlassToGlassEstimator();
+        estimator.onPeerSendDelay(70, 0);
+        estimator.onStats(counters(10, 100, 1, 100, 1, 100, 1, 200, 0.1), 0);
+
+        GlassToGlassEstimator.Sample sample = estimator.onStats(
+                counters(11.8, 130, 1.15, 130, 1, 100, 1, 200, 0.08),
+                GlassToGlassEstimator.PEER_REPORT_MAX_AGE_MS + 1);
+
+        assertEquals(-1, sample.glassToGlassMs(), 0);
+        assertEquals(-1, sample.sendMs(), 0);
+        assertEquals(105, sample.receiveMs(), 1e-9);
+        assertEquals(0, estimator.getGlassToGlass().count());
+        assertEquals(30, estimator.getReceive().count());
+    }
+
+    @Test
+    public void captureDelay_usesWhicheverClockIsPlausible() {
+        long second = 1_000_000_000L;
+        // Monotonic camera timestamps.
+        assertEquals(30_000_000, GlassToGlassEstimator.captureDelayNs(
+                100 * second, 100 * second + 30_000_000, 500 * second));
+        // Boot-time camera timestamps are ahead of the monotonic clock after a suspend.
+        assertEquals(30_000_000, GlassToGlassEstimator.captureDelayNs(
+                500 * second, 100 * second, 500 * second + 30_000_000));
+        assertEquals(-1, GlassToGlassEstimator.captureDelayNs(50 * second, 100 * second, 500 * second));
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.videocallapp;
+
+import com.example.janus.fakeserver.FakeJanusServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link JanusWebSocketClient} against an in-process {@link FakeJanusServer}.
+ */
+public class JanusWebSocketClientTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private FakeJanusServer server;
+    private final List<JanusWebSocketClient> clients = new ArrayList<>();
+
+    private static class RecordingListener implements JanusWebSocketClient.JanusListener {
+        final BlockingQueue<JSONObject> events = new LinkedBlockingQueue<>();
+        final BlockingQueue<String> errors = new LinkedBlockingQueue<>();
+        final CountDownLatch disconnected = new CountDownLatch(1);
+
+        @Override
+        public void onJanusConnected() {}
+
+        @Override
+        public void onJanusDisconnected() {
+            disconnected.countDown();
+        }
+
+        @Override
+        public void onJanusError(String error) {
+            errors.add(error);
+        }
+
+        @Override
+        public void onJanusEvent(JSONObject event) {
+            events.add(event);
+        }
+
+        JSONObject awaitPluginEvent(String eventType) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (System.nanoTime() < deadline) {
+                JSONObject event = events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (event == null) break;
+                JSONObject plugindata = event.optJSONObject("plugindata");
+                JSONObject result = plugindata != null ? plugindata.getJSONObject("data").optJSONObject("result") : null;
+                if (result != null && eventType.equals(result.optString("event"))) {
+                    return event;
+                }
+            }
+            fail("Timed out waiting for plugin event '" + eventType + "'");
+            return null;
+        }
+
+        JSONObject awaitJanus(String janus) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (System.nanoTime() < deadline) {
+                JSONObject event = events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (event == null) break;
+                if (janus.equals(event.optString("janus"))) {
+                    return event;
+                }
+            }
+            fail("Timed out waiting for janus '" + janus + "'");
+            return null;
+        }
+    }
+
+    private void startServer(FakeJanusServer.Builder builder) throws Exception {
+        server = builder.setPort(0).build();
+        server.startAndWait(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private JanusWebSocketClient connect(RecordingListener listener) throws Exception {
+        return connect(listener, null);
+    }
+
+    private JanusWebSocketClient connect(RecordingListener listener, String username) throws Exception {
+        Map<String, String> httpHeaders = new HashMap<>();
+        httpHeaders.put("Sec-WebSocket-Protocol", "janus-protocol");
+        JanusWebSocketClient client = new JanusWebSocketClient(
+                new URI("ws://localhost:" + server.getPort() + "/"), listener, httpHeaders);
+        client.setUsername(username);
+        clients.add(client);
+        client.connectWithTimeout();
+        return client;
+    }
+
+    private JanusWebSocketClient connectAndRegister(String username, RecordingListener listener) throws Exception {
+        JanusWebSocketClient client = connect(listener);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (client.getHandleId() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNotEquals("Plugin never attached", 0, client.getHandleId());
+        client.register(username);
+        listener.awaitPluginEvent("registered");
+        return client;
+    }
+
+    private static JSONObject jsep(String type) {
+        return new JSONObject().put("type", type).put("sdp", "v=0\r\n");
+    }
+
+    private static class RecordingMigration implements JanusWebSocketClient.MigrationCallback {
+        final BlockingQueue<String> outcomes = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onMigrated() {
+            outcomes.add("migrated");
+        }
+
+        @Override
+        public void onError(String error) {
+            outcomes.add(error);
+        }
+
+        String await() throws InterruptedException {
+            String outcome = outcomes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull("Migration never finished", outcome);
+            return outcome;
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (JanusWebSocketClient client : clients) {
+            client.closeBlocking();
+        }
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void connect_registersUsername() throws Exception {
+        startServer(FakeJanusServer.builder());
+        RecordingListener listener = new RecordingListener();
+
+        JanusWebSocketClient client = connect(listener, "alice");
+
+        JSONObject registered = listener.awaitPluginEvent("registered");
+        assertEquals(client.getHandleId(), registered.getLong("sender"));
+        assertEquals(1, server.getRegisteredUserCount());
+    }
+
+    @Test
+    public void callAcceptTrickleHangup_roundTripsBetweenTwoClients() throws Exception {
+        startServer(FakeJanusServer.builder().setLatency(1, 5));
+        RecordingListener aliceListener = new RecordingListener();
+        RecordingListener bobListener = new RecordingListener();
+        JanusWebSocketClient alice = connectAndRegister("alice", aliceListener);
+        JanusWebSocketClient bob = connectAndRegister("bob", bobListener);
+
+        alice.call("bob", jsep("offer"));
+        JSONObject incoming = bobListener.awaitPluginEvent("incomingcall");
+        assertEquals("offer", incoming.getJSONObject("jsep").getString("type"));
+
+        bob.accept(jsep("answer"));
+        JSONObject accepted = aliceListener.awaitPluginEvent("accepted");
+        assertEquals("answer", accepted.getJSONObject("jsep").getString("type"));
+
+        alice.trickle(new JSONObject().put("sdpMid", "0").put("sdpMLineIndex", 0).put("candidate", "candidate:1"));
+        alice.hangup();
+        bobListener.awaitJanus("hangup");
+        assertEquals(1, server.getTrickleCount("alice"));
+    }
+
+    @Test
+    public void setMedia_togglesVideoRelay() throws Exception {
+        startServer(FakeJanusServer.builder());
+        RecordingListener listener = new RecordingListener();
+        JanusWebSocketClient client = connectAndRegister("alice", listener);
+
+        client.setMedia(true, false);
+        listener.awaitPluginEvent("set");
+        assertFalse(server.isVideoRelayed("alice"));
+
+        client.setMedia(true, true);
+        listener.awaitPluginEvent("set");
+        assertTrue(server.isVideoRelayed("alice"));
+    }
+
+    @Test
+    public void listUsers_returnsRegisteredUsers() throws Exception {
+        startServer(FakeJanusServer.builder());
+        JanusWebSocketClient alice = connectAndRegister("alice", new RecordingListener());
+        connectAndRegister("bob", new RecordingListener());
+
+        BlockingQueue<List<String>> lists = new LinkedBlockingQueue<>();
+        alice.listUsers(new JanusWebSocketClient.UserListCallback() {
+            @Override
+            public void onUserList(List<String> usernames) {
+                lists.add(usernames);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+
+        List<String> usernames = lists.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("No list received", usernames);
+        assertEquals(new HashSet<>(Arrays.asList("alice", "bob")), new HashSet<>(usernames));
+    }
+
+    @Test
+    public void call_unknownPeer_reportsPluginError() throws Exception {
+        startServer(FakeJanusServer.builder());
+        RecordingListener listener = new RecordingListener();
+        JanusWebSocketClient client = connectAndRegister("alice", listener);
+
+        client.call("nobody", jsep("offer"));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        JSONObject event;
+        do {
+            event = listener.events.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            assertNotNull("No plugin error received", event);
+        } while (!event.has("plugindata") || !event.getJSONObject("plugindata").getJSONObject("data").has("error"));
+        assertEquals(478, event.getJSONObject("plugindata").getJSONObject("data").getInt("error_code"));
+    }
+
+    @Test
+    public void injectedErrors_surfaceThroughListener() throws Exception {
+        startServer(FakeJanusServer.builder().setErrorRate(1));
+        RecordingListener listener = new RecordingListener();
+
+        connect(listener);
+
+        String error = listener.errors.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(error);
+        assertTrue(error, error.contains("490"));
+    }
+
+    @Test
+    public void concurrentSessions_allRegister() throws Exception {
+        startServer(FakeJanusServer.builder().setLatency(0, 2));
+        int sessionCount = 100;
+        List<RecordingListener> listeners = new ArrayList<>();
+        for (int i = 0; i < sessionCount; i++) {
+            RecordingListener listener = new RecordingListener();
+            listeners.add(listener);
+            connect(listener);
+        }
+        for (int i = 0; i < sessionCount; i++) {
+            JanusWebSocketClient client = clients.get(i);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (client.getHandleId() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            client.register("user" + i);
+        }
+        for (RecordingListener listener : listeners) {
+            listener.awaitPluginEvent("registered");
+        }
+        assertEquals(sessionCount, server.getRegisteredUserCount());
+    }
+
+    @Test
+    public void migrate_keepsTheCallAndRelaysRenegotiation() throws Exception {
+        // No simulated latency: the fake server would drop frames still queued
+        // for the old connection when it closes, which TCP would deliver first.
+        startServer(FakeJanusServer.builder().setSessionTimeout(5000));
+        RecordingListener aliceListener = new RecordingListener();
+        RecordingListener bobListener = new RecordingListener();
+        JanusWebSocketClient alice = connectAndRegister("alice", aliceListener);
+        JanusWebSocketClient bob = connectAndRegister("bob", bobListener);
+        alice.call("bob", jsep("offer"));
+        bobListener.awaitPluginEvent("incomingcall");
+        bob.accept(jsep("answer"));
+        aliceListener.awaitPluginEvent("accepted");
+        long handleId = alice.getHandleId();
+
+        RecordingMigration migration = new RecordingMigration();
+        alice.migrate(migration);
+        // Sent mid-migration: over the old connection or held for the new one.
+        alice.renegotiate(jsep("offer"));
+
+        assertEquals("migrated", migration.await());
+        JSONObject update = bobListener.awaitPluginEvent("update");
+        assertEquals("offer", update.getJSONObject("jsep").getString("type"));
+        aliceListener.awaitPluginEvent("set");
+        assertEquals(handleId, alice.getHandleId());
+        assertEquals(2, server.getRegisteredUserCount());
+        assertEquals(1, aliceListener.disconnected.getCount());
+
+        // And the session is usable on the new connection.
+        alice.setMedia(true, false);
+        aliceListener.awaitPluginEvent("set");
+        assertFalse(server.isVideoRelayed("alice"));
+    }
+
+    @Test
+    public void migrate_claimsBeforeTheOldConnectionCloses() throws Exception {
+        // No session timeout: the session would die with an orphaned connection,
+        // so this only works if the new connection claims it first.
+        startServer(FakeJanusServer.builder());
+        RecordingListener listener = new RecordingListener();
+        JanusWebSocketClient client = connectAndRegister("alice", listener);
+
+        RecordingMigration migration = new RecordingMigration();
+        client.migrate(migration);
+
+        assertEquals("migrated", migration.await());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (server.getConnections().size() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("Old connection still open", 1, server.getConnections().size());
+        assertEquals(1, server.getRegisteredUserCount());
+        assertEquals(1, listener.disconnected.getCount());
+        BlockingQueue<List<String>> lists = new LinkedBlockingQueue<>();
+        client.listUsers(new JanusWebSocketClient.UserListCallback() {
+            @Override
+            public void onUserList(List<String> usernames) {
+                lists.add(usernames);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        assertEquals(Arrays.asList("alice"), lists.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+}
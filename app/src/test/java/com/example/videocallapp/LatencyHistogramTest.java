@@ -0,0 +1,42 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void empty_hasNoPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(-1, histogram.percentile(0.5));
+    }
+
+    @Test
+    public void percentiles_areWeightedByCount() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100, 90);
+        histogram.record(200, 9);
+        histogram.record(400, 1);
+
+        assertEquals(100, histogram.count());
+        assertEquals(100, histogram.percentile(0.5));
+        assertEquals(100, histogram.percentile(0.9));
+        assertEquals(200, histogram.percentile(0.95));
+        assertEquals(200, histogram.percentile(0.99));
+        assertEquals(400, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void outOfRangeValues_areClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5, 1);
+        histogram.record(10_000, 1);
+        histogram.record(50, 0);
+
+        assertEquals(2, histogram.count());
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals(LatencyHistogram.MAX_MS, histogram.percentile(1.0));
+    }
+}
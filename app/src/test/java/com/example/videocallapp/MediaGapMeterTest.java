@@ -0,0 +1,53 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MediaGapMeterTest {
+    @Test
+    public void steadyMedia_readsAsTheSamplingInterval() {
+        MediaGapMeter meter = new MediaGapMeter();
+        for (int i = 0; i <= 10; i++) {
+            meter.onSample(50L * i, 100L * i);
+        }
+
+        assertEquals(100, meter.getLongestGapMs());
+        assertFalse(meter.isStalled());
+    }
+
+    @Test
+    public void stall_isMeasuredFromTheLastSampleWithNewPackets() {
+        MediaGapMeter meter = new MediaGapMeter();
+        meter.onSample(100, 0);
+        meter.onSample(150, 100);
+        meter.onSample(150, 200);
+        meter.onSample(150, 300);
+        meter.onSample(150, 400);
+        assertTrue(meter.isStalled());
+        meter.onSample(170, 500);
+
+        assertEquals(400, meter.getLongestGapMs());
+        assertFalse(meter.isStalled());
+    }
+
+    @Test
+    public void ongoingStall_counts() {
+        MediaGapMeter meter = new MediaGapMeter();
+        meter.onSample(100, 0);
+        meter.onSample(100, 700);
+
+        assertEquals(700, meter.getLongestGapMs());
+        assertTrue(meter.isStalled());
+    }
+
+    @Test
+    public void counterRestart_takesANewBaseline() {
+        MediaGapMeter meter = new MediaGapMeter();
+        meter.onSample(1000, 0);
+        meter.onSample(10, 100);
+        meter.onSample(20, 200);
+
+        assertEquals(100, meter.getLongestGapMs());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OpusSdpMungerTest {
+    private static final String OFFER = "v=0\r\n"
+            + "o=- 1 2 IN IP4 127.0.0.1\r\n"
+            + "s=-\r\n"
+            + "t=0 0\r\n"
+            + "m=audio 9 UDP/TLS/RTP/SAVPF 111 63 9\r\n"
+            + "a=mid:0\r\n"
+            + "a=rtpmap:111 opus/48000/2\r\n"
+            + "a=rtcp-fb:111 transport-cc\r\n"
+            + "a=fmtp:111 minptime=10;useinbandfec=1\r\n"
+            + "a=rtpmap:63 red/48000/2\r\n"
+            + "a=fmtp:63 111/111\r\n"
+            + "a=rtpmap:9 G722/8000\r\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96\r\n"
+            + "a=mid:1\r\n"
+            + "a=rtpmap:96 VP8/90000\r\n"
+            + "a=fmtp:96 x-google-start-bitrate=800\r\n";
+
+    private static final OpusConfig LOSSY = new OpusConfig(true, true, 40000, 40);
+
+    @Test
+    public void opusFmtp_isRewrittenKeepingOtherParameters() {
+        String munged = OpusSdpMunger.apply(OFFER, LOSSY);
+
+        assertTrue(munged, munged.contains(
+                "a=fmtp:111 minptime=10;useinbandfec=1;usedtx=1;maxaveragebitrate=40000\r\n"));
+        assertTrue(munged, munged.contains("a=fmtp:63 111/111\r\n"));
+        assertTrue(munged, munged.contains("a=fmtp:96 x-google-start-bitrate=800\r\n"));
+    }
+
+    @Test
+    public void ptime_isAddedToTheAudioSectionOnly() {
+        String munged = OpusSdpMunger.apply(OFFER, LOSSY);
+
+        int ptime = munged.indexOf("a=ptime:40\r\n");
+        assertTrue(munged, ptime > munged.indexOf("a=fmtp:111"));
+        assertTrue(munged, ptime < munged.indexOf("m=video"));
+        assertEquals(munged.lastIndexOf("a=ptime"), ptime);
+    }
+
+    @Test
+    public void existingPtime_isReplaced() {
+        String withPtime = OFFER.replace("a=rtpmap:9 G722/8000\r\n", "a=rtpmap:9 G722/8000\r\na=ptime:20\r\n");
+
+        String munged = OpusSdpMunger.apply(withPtime, LOSSY);
+
+        assertFalse(munged, munged.contains("a=ptime:20"));
+        assertEquals(munged.indexOf("a=ptime:40"), munged.lastIndexOf("a=ptime:"));
+    }
+
+    @Test
+    public void missingFmtp_isCreatedAfterRtpmap() {
+        String bare = "v=0\nm=audio 9 RTP/AVP 109\na=rtpmap:109 OPUS/48000/2\na=sendrecv\n";
+
+        String munged = OpusSdpMunger.apply(bare, new OpusConfig(false, false, 0, 0));
+
+        assertEquals("v=0\nm=audio 9 RTP/AVP 109\na=rtpmap:109 OPUS/48000/2\n"
+                + "a=fmtp:109 useinbandfec=0;usedtx=0\na=sendrecv\n", munged);
+    }
+
+    @Test
+    public void sdpWithoutOpus_isUnchanged() {
+        String video = "v=0\r\nm=video 9 UDP/TLS/RTP/SAVPF 96\r\na=rtpmap:96 VP8/90000\r\n";
+
+        assertEquals(video, OpusSdpMunger.apply(video, LOSSY));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.videocallapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+    private static final float NO_HEADROOM = Float.NaN;
+
+    @Test
+    public void coolIdleDevice_staysAtTopLevel() {
+        QualityGovernor governor = new QualityGovernor();
+
+        assertNull(governor.evaluate(QualityGovernor.THERMAL_NONE, 0.3f, 0.2));
+        assertSame(QualityGovernor.LADDER[0], governor.getLevel());
+    }
+
+    @Test
+    public void headroomForecast_stepsDownBeforeThrottlingAndHolds() {
+        QualityGovernor governor = new QualityGovernor();
+
+        assertSame(QualityGovernor.LADDER[1], governor.evaluate(QualityGovernor.THERMAL_NONE, 0.9f, 0.5));
+        for (int i = 0; i < QualityGovernor.HOLD_SAMPLES; i++) {
+            assertNull(governor.evaluate(QualityGovernor.THERMAL_NONE, 0.9f, 0.5));
+        }
+        assertSame(QualityGovernor.LADDER[2], governor.evaluate(QualityGovernor.THERMAL_NONE, 0.9f, 0.5));
+    }
+
+    @Test
+    public void busyWebRtcThreads_stepDown() {
+        QualityGovernor governor = new QualityGovernor();
+
+        assertSame(QualityGovernor.LADDER[1], governor.evaluate(QualityGovernor.THERMAL_NONE, NO_HEADROOM, 2.0));
+    }
+
+    @Test
+    public void severeThermalStatus_jumpsToLowestLevel() {
+        QualityGovernor governor = new QualityGovernor();
+
+        QualityGovernor.Level level = governor.evaluate(QualityGovernor.THERMAL_SEVERE, NO_HEADROOM, 0.2);
+
+        assertSame(QualityGovernor.LADDER[QualityGovernor.LADDER.length - 1], level);
+    }
+
+    @Test
+    public void stepsUpOnlyAfterSustainedCalm() {
+        QualityGovernor governor = new QualityGovernor();
+        governor.evaluate(QualityGovernor.THERMAL_MODERATE, NO_HEADROOM, 0.2);
+
+        for (int i = 0; i < QualityGovernor.STEP_UP_SAMPLES - 1; i++) {
+            assertNull(governor.evaluate(QualityGovernor.THERMAL_NONE, 0.5f, 0.2));
+        }
+        // One warm sample restarts the count.
+        assertNull(governor.evaluate(QualityGovernor.THERMAL_NONE, 0.75f, 0.2));
+        for (int i = 0; i < QualityGovernor.STEP_UP_SAMPLES - 1; i++) {
+            assertNull(governor.evaluate(QualityGovernor.THERMAL_NONE, 0.5f, 0.2));
+        }
+
+        assertSame(QualityGovernor.LADDER[1], governor.evaluate(QualityGovernor.THERMAL_NONE, 0.5f, 0.2));
+    }
+}
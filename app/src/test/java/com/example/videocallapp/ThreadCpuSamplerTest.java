@@ -0,0 +1,53 @@
+package com.example.videocallapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ThreadCpuSamplerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void writeStat(File taskDir, int tid, String name, long utime, long stime) throws IOException {
+        File task = new File(taskDir, String.valueOf(tid));
+        task.mkdirs();
+        try (FileWriter writer = new FileWriter(new File(task, "stat"))) {
+            writer.write(tid + " (" + name + ") S 1 1 0 0 -1 4194368 100 0 0 0 " + utime + " " + stime
+                    + " 0 0 20 0 40 0 1000 0 0\n");
+        }
+    }
+
+    @Test
+    public void parse_handlesNamesWithSpacesAndParentheses() {
+        String stat = "42 (Binder (2) x) R 1 1 0 0 -1 0 0 0 0 0 7 5 0 0 20 0";
+
+        assertEquals("Binder (2) x", ThreadCpuSampler.parseName(stat));
+        assertEquals(12, ThreadCpuSampler.parseCpuTicks(stat));
+    }
+
+    @Test
+    public void sample_reportsDeltaPerMatchingThread() throws IOException {
+        File taskDir = folder.newFolder("task");
+        writeStat(taskDir, 10, "EncoderQueue", 100, 20);
+        writeStat(taskDir, 11, "main", 500, 0);
+        ThreadCpuSampler sampler = new ThreadCpuSampler(taskDir, "EncoderQueue", "worker_thread");
+
+        assertNull(sampler.sample(0));
+
+        writeStat(taskDir, 10, "EncoderQueue", 150, 30);
+        writeStat(taskDir, 11, "main", 900, 0);
+        writeStat(taskDir, 12, "worker_thread", 10, 0);
+        ThreadCpuSampler.Sample sample = sampler.sample(1000);
+
+        assertEquals(Long.valueOf(600), sample.cpuMsByThread.get("EncoderQueue"));
+        assertEquals(Long.valueOf(100), sample.cpuMsByThread.get("worker_thread"));
+        assertFalse(sample.cpuMsByThread.containsKey("main"));
+        assertEquals(0.7, sample.cores(), 1e-9);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.janus.benchmarks;
+
+import com.example.janus.core.JanusHandle;
+import com.example.janus.core.JanusLogger;
+import com.example.janus.core.JanusMessage;
+import com.example.janus.core.JanusMessages;
+import com.example.janus.core.JanusSession;
+import com.example.janus.fakeserver.FakeJanusServer;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fake gateway under load. Each of {@code sessions} connections has a
+ * session, a videocall handle and a registered user, all kept open for the
+ * trial. Each op sends one request on every session and waits for every
+ * answer, so the score is the time the server takes to serve one round.
+ *
+ * <ul>
+ *   <li>{@code trickleRound}: one ack per session, the cheapest request</li>
+ *   <li>{@code listRound}: the videocall user list, whose answer grows with the number of users</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class FakeServerBenchmark {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Param({"100", "500"})
+    public int sessions;
+
+    private final List<Client> clients = new ArrayList<>();
+    private FakeJanusServer server;
+    private JSONObject candidate;
+    private JSONObject listBody;
+    private volatile CountDownLatch acks;
+    private volatile CountDownLatch events;
+
+    private final class Client extends WebSocketClient {
+        final JanusSession session;
+        volatile JanusHandle handle;
+
+        Client(URI uri) {
+            super(uri);
+            session = new JanusSession(this::send, new JanusSession.Listener() {
+                @Override
+                public void onSessionCreated(long sessionId) {}
+
+                @Override
+                public void onEvent(JanusMessage message) {
+                    CountDownLatch latch = acks;
+                    if (message.getType() == JanusMessage.Type.ACK && latch != null) {
+                        latch.countDown();
+                    }
+                }
+
+                @Override
+                public void onError(String error) {
+                    throw new IllegalStateException(error);
+                }
+            }, JanusLogger.NONE);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {}
+
+        @Override
+        public void onMessage(String message) {
+            session.onMessage(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {}
+
+        @Override
+        public void onError(Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeJanusServer.builder().setPort(0).build();
+        server.startAndWait(10, TimeUnit.SECONDS);
+        URI uri = new URI("ws://localhost:" + server.getPort() + "/");
+        candidate = new JSONObject()
+                .put("sdpMid", "0")
+                .put("sdpMLineIndex", 0)
+                .put("candidate", "candidate:842163049 1 udp 1677729535 203.0.113.7 46154 typ srflx "
+                        + "raddr 192.168.1.20 rport 46154 generation 0 ufrag Qx3a network-cost 999");
+        listBody = JanusMessages.requestBody("list");
+
+        CountDownLatch attached = new CountDownLatch(sessions);
+        for (int i = 0; i < sessions; i++) {
+            Client client = new Client(uri);
+            if (!client.connectBlocking(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Connection " + i + " did not open");
+            }
+            clients.add(client);
+            client.session.start();
+            client.session.attach(JanusMessages.PLUGIN_VIDEOCALL, new JanusHandle.Listener() {
+                @Override
+                public void onAttached(JanusHandle handle) {
+                    client.handle = handle;
+                    attached.countDown();
+                }
+
+                @Override
+                public void onEvent(JanusMessage message) {
+                    CountDownLatch latch = events;
+                    if (message.getType() == JanusMessage.Type.EVENT && latch != null) {
+                        latch.countDown();
+                    }
+                }
+
+                @Override
+                public void onDetached() {}
+            });
+        }
+        await(attached);
+
+        CountDownLatch registered = new CountDownLatch(sessions);
+        events = registered;
+        for (int i = 0; i < sessions; i++) {
+            clients.get(i).handle.sendMessage(JanusMessages.registerBody("user-" + i), null);
+        }
+        await(registered);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        for (Client client : clients) {
+            client.closeBlocking();
+        }
+        clients.clear();
+        server.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void trickleRound() throws InterruptedException {
+        CountDownLatch round = new CountDownLatch(sessions);
+        acks = round;
+        for (Client client : clients) {
+            client.handle.trickle(candidate);
+        }
+        await(round);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void listRound() throws InterruptedException {
+        CountDownLatch round = new CountDownLatch(sessions);
+        events = round;
+        for (Client client : clients) {
+            client.handle.sendMessage(listBody, null);
+        }
+        await(round);
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        if (!latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(latch.getCount() + " answers missing after " + TIMEOUT_SECONDS + " s");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.janus.benchmarks;
+
+import com.example.janus.core.JanusHandle;
+import com.example.janus.core.JanusLogger;
+import com.example.janus.core.JanusMessage;
+import com.example.janus.core.JanusMessages;
+import com.example.janus.core.JanusSession;
+import com.example.janus.core.SignalingRecorder;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Canned Janus frames shaped like what the gateway sends during a videocall:
+ * mostly acks and trickle traffic, with the occasional event carrying a full SDP.
+ */
+final class JanusTraffic {
+    static final long SESSION_ID = 4521853716523419L;
+    static final long HANDLE_ID = 8176335109232741L;
+
+    private JanusTraffic() {}
+
+    /**
+     * A session with a videocall handle attached as {@link #HANDLE_ID}, so that
+     * replayed plugin events take the per-handle routing path. Outbound frames
+     * and all events end up in the blackhole.
+     */
+    static JanusHandle attachedHandle(Blackhole blackhole) {
+        return attachedHandle(blackhole, null);
+    }
+
+    /** As {@link #attachedHandle(Blackhole)}, recording the exchange into {@code recorder} if set. */
+    static JanusHandle attachedHandle(Blackhole blackhole, SignalingRecorder recorder) {
+        String[] lastSent = new String[1];
+        JanusSession session = session(blackhole, message -> {
+            lastSent[0] = message;
+            blackhole.consume(message);
+        });
+        session.setRecorder(recorder);
+
+        JanusHandle[] attached = new JanusHandle[1];
+        session.start();
+        session.onMessage(success(lastSent[0], SESSION_ID));
+        session.attach(JanusMessages.PLUGIN_VIDEOCALL, handleListener(blackhole, attached));
+        session.onMessage(success(lastSent[0], HANDLE_ID));
+        if (attached[0] == null) {
+            throw new IllegalStateException("videocall handle did not attach");
+        }
+        return attached[0];
+    }
+
+    /** A session whose events all end up in the blackhole. */
+    static JanusSession session(Blackhole blackhole, JanusSession.Transport transport) {
+        return new JanusSession(transport, new JanusSession.Listener() {
+            @Override
+            public void onSessionCreated(long sessionId) {}
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                blackhole.consume(message);
+            }
+
+            @Override
+            public void onError(String error) {
+                blackhole.consume(error);
+            }
+        }, JanusLogger.NONE);
+    }
+
+    /** Keeps the attached handle in {@code attached[0]}; its events end up in the blackhole. */
+    static JanusHandle.Listener handleListener(Blackhole blackhole, JanusHandle[] attached) {
+        return new JanusHandle.Listener() {
+            @Override
+            public void onAttached(JanusHandle handle) {
+                attached[0] = handle;
+            }
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                blackhole.consume(message);
+            }
+
+            @Override
+            public void onDetached() {}
+        };
+    }
+
+    private static String success(String request, long id) {
+        String transaction = new JSONObject(request).getString("transaction");
+        return "{\"janus\":\"success\",\"transaction\":\"" + transaction + "\",\"data\":{\"id\":" + id + "}}";
+    }
+
+    static String sdp() {
+        StringBuilder sdp = new StringBuilder(4096);
+        sdp.append("v=0\r\no=- 4611731400430051336 2 IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n")
+                .append("a=group:BUNDLE 0 1\r\na=extmap-allow-mixed\r\na=msid-semantic: WMS ARDAMS\r\n")
+                .append("m=audio 9 UDP/TLS/RTP/SAVPF 111 63 9 0 8 13 110 126\r\nc=IN IP4 0.0.0.0\r\n")
+                .append("a=rtcp:9 IN IP4 0.0.0.0\r\na=ice-ufrag:Qx3a\r\na=ice-pwd:4lPz8n0V2fKxQy4eGkcD6hJb\r\n")
+                .append("a=ice-options:trickle renomination\r\n")
+                .append("a=fingerprint:sha-256 7B:8B:F0:65:5F:78:E2:51:3B:AC:6F:F3:3F:46:1B:35:DC:B8:5F:64:")
+                .append("1A:24:C2:43:F0:A1:58:D0:A1:2C:19:08\r\n")
+                .append("a=setup:actpass\r\na=mid:0\r\na=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level\r\n")
+                .append("a=sendrecv\r\na=msid:ARDAMS ARDAMSa0\r\na=rtcp-mux\r\n")
+                .append("a=rtpmap:111 opus/48000/2\r\na=rtcp-fb:111 transport-cc\r\n")
+                .append("a=fmtp:111 minptime=10;useinbandfec=1\r\n")
+                .append("a=ssrc:3735928559 cname:lLkbE1Kz3nPFQ5cK\r\n")
+                .append("m=video 9 UDP/TLS/RTP/SAVPF 96 97 102 103 104 105 106 107 108 109 127 125\r\n")
+                .append("c=IN IP4 0.0.0.0\r\na=rtcp:9 IN IP4 0.0.0.0\r\na=mid:1\r\na=sendrecv\r\n")
+                .append("a=msid:ARDAMS ARDAMSv0\r\na=rtcp-mux\r\na=rtcp-rsize\r\n");
+        int[] payloadTypes = {96, 102, 104, 106, 108, 127};
+        String[] codecs = {"VP8", "H264", "H264", "H264", "VP9", "AV1"};
+        for (int i = 0; i < payloadTypes.length; i++) {
+            int pt = payloadTypes[i];
+            sdp.append("a=rtpmap:").append(pt).append(' ').append(codecs[i]).append("/90000\r\n")
+                    .append("a=rtcp-fb:").append(pt).append(" goog-remb\r\n")
+                    .append("a=rtcp-fb:").append(pt).append(" transport-cc\r\n")
+                    .append("a=rtcp-fb:").append(pt).append(" ccm fir\r\n")
+                    .append("a=rtcp-fb:").append(pt).append(" nack\r\n")
+                    .append("a=rtcp-fb:").append(pt).append(" nack pli\r\n")
+                    .append("a=rtpmap:").append(pt + 1).append(" rtx/90000\r\n")
+                    .append("a=fmtp:").append(pt + 1).append(" apt=").append(pt).append("\r\n");
+        }
+        sdp.append("a=ssrc-group:FID 2863311530 1431655765\r\n")
+                .append("a=ssrc:2863311530 cname:lLkbE1Kz3nPFQ5cK\r\n")
+                .append("a=ssrc:1431655765 cname:lLkbE1Kz3nPFQ5cK\r\n");
+        return sdp.toString();
+    }
+
+    static String ack(int n) {
+        return "{\"janus\":\"ack\",\"session_id\":" + SESSION_ID + ",\"transaction\":\"txn-" + n + "\"}";
+    }
+
+    static String pluginEvent(String event, String username, JSONObject jsep) {
+        JSONObject result = new JSONObject().put("event", event).put("username", username);
+        JSONObject data = new JSONObject().put("videocall", "event").put("result", result);
+        JSONObject message = new JSONObject()
+                .put("janus", "event")
+                .put("session_id", SESSION_ID)
+                .put("sender", HANDLE_ID)
+                .put("plugindata", new JSONObject().put("plugin", "janus.plugin.videocall").put("data", data));
+        if (jsep != null) {
+            message.put("jsep", jsep);
+        }
+        return message.toString();
+    }
+
+    static String webrtcup() {
+        return "{\"janus\":\"webrtcup\",\"session_id\":" + SESSION_ID + ",\"sender\":" + HANDLE_ID + "}";
+    }
+
+    static String media(String type) {
+        return "{\"janus\":\"media\",\"session_id\":" + SESSION_ID + ",\"sender\":" + HANDLE_ID
+                + ",\"type\":\"" + type + "\",\"receiving\":true}";
+    }
+
+    /**
+     * One call's worth of inbound traffic: a dozen trickle acks for every
+     * SDP-carrying event, roughly the ratio seen on a real call setup.
+     */
+    static String[] callMix() {
+        JSONObject offer = new JSONObject().put("type", "offer").put("sdp", sdp());
+        JSONObject answer = new JSONObject().put("type", "answer").put("sdp", sdp());
+        String[] frames = new String[24];
+        int i = 0;
+        frames[i++] = pluginEvent("registered", "alice", null);
+        frames[i++] = pluginEvent("incomingcall", "bob", offer);
+        while (i < 14) {
+            frames[i] = ack(i);
+            i++;
+        }
+        frames[i++] = pluginEvent("accepted", "bob", answer);
+        frames[i++] = webrtcup();
+        frames[i++] = media("audio");
+        frames[i++] = media("video");
+        while (i < frames.length) {
+            frames[i] = ack(i);
+            i++;
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.janus.benchmarks;
+
+import com.example.janus.core.EventLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message cost of logging an inbound frame, using the mix from
+ * {@link JanusTraffic#callMix()}: mostly trickle acks, plus plugin events (two of
+ * them carrying an SDP) and media notifications.
+ *
+ * <ul>
+ *   <li>{@code concatenated}: the old {@code "Received: " + message}, built on every frame in every build</li>
+ *   <li>{@code disabled}: a VERBOSE call below every level, what a release build pays without the compile-time switch</li>
+ *   <li>{@code ringOnly}: a DEBUG call kept in the crash ring but not written out</li>
+ *   <li>{@code formatted}: a DEBUG call formatted for the sink, as in debug builds</li>
+ * </ul>
+ *
+ * With {@code -prof gc}, {@code gc.alloc.rate.norm} is the allocation per
+ * message: zero for {@code disabled} and {@code ringOnly}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggingBenchmark {
+    private String[] callMix;
+    private EventLog.Category quiet;
+    private EventLog.Category loud;
+    private int next;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        callMix = JanusTraffic.callMix();
+        EventLog.Sink sink = (level, category, message, error) -> blackhole.consume(message);
+        quiet = new EventLog(sink, EventLog.Level.INFO, EventLog.Level.DEBUG, 256).category("Signaling");
+        loud = new EventLog(sink, EventLog.Level.DEBUG, EventLog.Level.DEBUG, 256).category("Signaling");
+    }
+
+    private String nextMessage() {
+        String message = callMix[next];
+        next = next + 1 == callMix.length ? 0 : next + 1;
+        return message;
+    }
+
+    @Benchmark
+    public String concatenated() {
+        return "Received: " + nextMessage();
+    }
+
+    @Benchmark
+    public void disabled() {
+        quiet.verbose("Received: {}", nextMessage());
+    }
+
+    @Benchmark
+    public void ringOnly() {
+        quiet.debug("Received: {}", nextMessage());
+    }
+
+    @Benchmark
+    public void formatted() {
+        loud.debug("Received: {}", nextMessage());
+    }
+}
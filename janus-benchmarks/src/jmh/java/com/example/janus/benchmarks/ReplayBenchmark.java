@@ -0,0 +1,72 @@
+package com.example.janus.benchmarks;
+
+import com.example.janus.core.JanusHandle;
+import com.example.janus.core.JanusSession;
+import com.example.janus.core.SignalingRecorder;
+import com.example.janus.core.SignalingRecording;
+import com.example.janus.core.SignalingReplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing cost of a whole recorded session, replayed into a fresh
+ * {@link JanusSession} that attaches the recorded handles, so plugin events
+ * take the same per-handle routing path they did live. Pull a trace off a
+ * device with
+ * {@code adb pull /data/data/com.example.videocallapp/cache/signaling.jsrl} and
+ * pass its path as the {@code recording} parameter ({@code -p recording=...} on the
+ * JMH jar); without one a synthetic call built from {@link JanusTraffic} is
+ * recorded through a session.
+ */
+@State(Scope.Thread)
+public class ReplayBenchmark {
+    @Param({""})
+    public String recording;
+
+    private SignalingRecording trace;
+    private SignalingReplayer replayer;
+    private Blackhole blackhole;
+    private JanusHandle.Listener handleListener;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws Exception {
+        File file;
+        if (recording.isEmpty()) {
+            file = File.createTempFile("synthetic", ".jsrl");
+            file.deleteOnExit();
+            try (SignalingRecorder recorder = SignalingRecorder.open(file, 1024 * 1024)) {
+                JanusSession recorded = JanusTraffic.attachedHandle(blackhole, recorder).getSession();
+                for (String frame : JanusTraffic.callMix()) {
+                    recorded.onMessage(frame);
+                }
+            }
+        } else {
+            file = new File(recording);
+        }
+        trace = SignalingRecording.read(file);
+        replayer = new SignalingReplayer(0);
+        this.blackhole = blackhole;
+        handleListener = JanusTraffic.handleListener(blackhole, new JanusHandle[1]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public SignalingReplayer.Result replayTrace() throws InterruptedException {
+        JanusSession session = JanusTraffic.session(blackhole, message -> {
+            throw new IllegalStateException("Replay sent " + message);
+        });
+        return replayer.replay(trace, session, plugin -> handleListener);
+    }
+}
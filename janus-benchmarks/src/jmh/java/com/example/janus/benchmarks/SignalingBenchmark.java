@@ -0,0 +1,100 @@
+package com.example.janus.benchmarks;
+
+import com.example.janus.core.JanusHandle;
+import com.example.janus.core.JanusMessages;
+import com.example.janus.core.JanusSession;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path cost of the signaling layer.
+ *
+ * <ul>
+ *   <li>{@code dispatch*} in throughput mode: messages per second through decode + per-handle routing</li>
+ *   <li>{@code dispatchLatency} in sample mode: the p99 line of the histogram is the dispatch tail</li>
+ *   <li>with {@code -prof gc}, {@code gc.alloc.rate.norm} is the allocation per message</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+public class SignalingBenchmark {
+    private String[] callMix;
+    private String ack;
+    private String incomingCall;
+    private JSONObject candidate;
+    private JSONObject offer;
+    private JSONObject callBody;
+    private JanusHandle handle;
+    private JanusSession session;
+    private int next;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        callMix = JanusTraffic.callMix();
+        ack = JanusTraffic.ack(1);
+        incomingCall = callMix[1];
+        candidate = new JSONObject()
+                .put("sdpMid", "0")
+                .put("sdpMLineIndex", 0)
+                .put("candidate", "candidate:842163049 1 udp 1677729535 203.0.113.7 46154 typ srflx "
+                        + "raddr 192.168.1.20 rport 46154 generation 0 ufrag Qx3a network-cost 999");
+        callBody = JanusMessages.callBody("bob");
+        offer = new JSONObject().put("type", "offer").put("sdp", JanusTraffic.sdp());
+
+        handle = JanusTraffic.attachedHandle(blackhole);
+        session = handle.getSession();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void dispatchCallMix() {
+        session.onMessage(callMix[next]);
+        next = next + 1 == callMix.length ? 0 : next + 1;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void dispatchAck() {
+        session.onMessage(ack);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void dispatchIncomingCallWithSdp() {
+        session.onMessage(incomingCall);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void dispatchLatency() {
+        session.onMessage(callMix[next]);
+        next = next + 1 == callMix.length ? 0 : next + 1;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void encodeTrickle() {
+        handle.trickle(candidate);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void encodeCallWithSdp() {
+        handle.sendMessage(callBody, offer);
+    }
+}
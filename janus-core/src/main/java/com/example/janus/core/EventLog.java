@@ -0,0 +1,288 @@
+package com.example.janus.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leveled logging for hot paths. Messages are SLF4J-style patterns with
+ * {@code {}} placeholders; arguments are only turned into a string when a
+ * message actually reaches the {@link Sink}, so a disabled call costs a level
+ * check and no allocation.
+ *
+ * <p>Every enabled event, including ones below the sink's level or sampled
+ * away, also goes into a fixed-size ring of recent events for crash reports.
+ * The ring keeps the pattern and argument references and formats them only in
+ * {@link #recent()}, so arguments should be immutable (strings, numbers,
+ * enums).
+ */
+public class EventLog {
+    public enum Level { VERBOSE, DEBUG, INFO, WARN, ERROR }
+
+    public interface Sink {
+        void write(Level level, String category, String message, Throwable error);
+    }
+
+    private final Sink sink;
+    private final Level defaultLevel;
+    private final Level ringLevel;
+    private final Map<String, Category> categories = new ConcurrentHashMap<>();
+
+    // Ring slots, guarded by this.
+    private final long[] times;
+    private final Level[] levels;
+    private final String[] names;
+    private final String[] patterns;
+    private final int[] argCounts;
+    private final Object[] args;
+    private final Throwable[] errors;
+    private long written;
+
+    /**
+     * @param defaultLevel the sink's level for new categories
+     * @param ringLevel events at or above this are kept in the ring whatever the sink's level
+     * @param ringCapacity number of recent events kept; 0 disables the ring
+     */
+    public EventLog(Sink sink, Level defaultLevel, Level ringLevel, int ringCapacity) {
+        this.sink = sink;
+        this.defaultLevel = defaultLevel;
+        this.ringLevel = ringCapacity > 0 ? ringLevel : Level.ERROR;
+        times = new long[ringCapacity];
+        levels = new Level[ringCapacity];
+        names = new String[ringCapacity];
+        patterns = new String[ringCapacity];
+        argCounts = new int[ringCapacity];
+        args = new Object[ringCapacity * 3];
+        errors = new Throwable[ringCapacity];
+    }
+
+    /** The category called {@code name}, created at the default level on first use. */
+    public Category category(String name) {
+        Category category = categories.get(name);
+        if (category == null) {
+            Category created = new Category(name);
+            category = categories.putIfAbsent(name, created);
+            if (category == null) {
+                category = created;
+            }
+        }
+        return category;
+    }
+
+    /** The ring's events, oldest first, one formatted line each. */
+    public synchronized List<String> recent() {
+        int capacity = times.length;
+        int count = (int) Math.min(written, capacity);
+        List<String> lines = new ArrayList<>(count);
+        for (long i = written - count; i < written; i++) {
+            int slot = (int) (i % capacity);
+            StringBuilder line = new StringBuilder()
+                    .append(String.format("%tT.%<tL ", times[slot]))
+                    .append(levels[slot].name().charAt(0)).append('/').append(names[slot]).append(": ")
+                    .append(format(patterns[slot], argCounts[slot],
+                            args[slot * 3], args[slot * 3 + 1], args[slot * 3 + 2]));
+            if (errors[slot] != null) {
+                line.append(" (").append(errors[slot]).append(')');
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private synchronized void record(Level level, String name, String pattern, int argCount,
+                                     Object a0, Object a1, Object a2, Throwable error) {
+        int slot = (int) (written++ % times.length);
+        times[slot] = System.currentTimeMillis();
+        levels[slot] = level;
+        names[slot] = name;
+        patterns[slot] = pattern;
+        argCounts[slot] = argCount;
+        args[slot * 3] = a0;
+        args[slot * 3 + 1] = a1;
+        args[slot * 3 + 2] = a2;
+        errors[slot] = error;
+    }
+
+    /** Substitutes up to {@code argCount} arguments for {@code {}} placeholders, left to right. */
+    static String format(String pattern, int argCount, Object a0, Object a1, Object a2) {
+        if (argCount == 0) {
+            return pattern;
+        }
+        StringBuilder out = new StringBuilder(pattern.length() + 32);
+        int start = 0;
+        for (int i = 0; i < argCount; i++) {
+            int at = pattern.indexOf("{}", start);
+            if (at < 0) {
+                break;
+            }
+            out.append(pattern, start, at).append(i == 0 ? a0 : i == 1 ? a1 : a2);
+            start = at + 2;
+        }
+        return out.append(pattern, start, pattern.length()).toString();
+    }
+
+    /**
+     * A named source of events, usually one per class, with its own sink level
+     * and sampling. Thread-safe.
+     */
+    public final class Category {
+        private final String name;
+        private final AtomicLong sampleCounter = new AtomicLong();
+        private volatile Level level;
+        private volatile int sampleEvery = 1;
+        // Lowest level that does any work: the sink's or the ring's.
+        private volatile int threshold;
+
+        private Category(String name) {
+            this.name = name;
+            setLevel(defaultLevel);
+        }
+
+        public Category setLevel(Level level) {
+            this.level = level;
+            threshold = Math.min(level.ordinal(), ringLevel.ordinal());
+            return this;
+        }
+
+        /**
+         * Lets only every {@code n}th VERBOSE or DEBUG event through to the sink;
+         * the ring still gets all of them. WARN and up are never sampled.
+         */
+        public Category setSampleEvery(int n) {
+            sampleEvery = Math.max(1, n);
+            return this;
+        }
+
+        /** Whether an event at {@code level} would be written anywhere. */
+        public boolean isLoggable(Level level) {
+            return level.ordinal() >= threshold;
+        }
+
+        public void verbose(String message) {
+            log(Level.VERBOSE, message, 0, null, null, null, null);
+        }
+
+        public void verbose(String pattern, Object a0) {
+            log(Level.VERBOSE, pattern, 1, a0, null, null, null);
+        }
+
+        public void verbose(String pattern, Object a0, Object a1) {
+            log(Level.VERBOSE, pattern, 2, a0, a1, null, null);
+        }
+
+        public void verbose(String pattern, Object a0, Object a1, Object a2) {
+            log(Level.VERBOSE, pattern, 3, a0, a1, a2, null);
+        }
+
+        public void debug(String message) {
+            log(Level.DEBUG, message, 0, null, null, null, null);
+        }
+
+        public void debug(String pattern, Object a0) {
+            log(Level.DEBUG, pattern, 1, a0, null, null, null);
+        }
+
+        public void debug(String pattern, Object a0, Object a1) {
+            log(Level.DEBUG, pattern, 2, a0, a1, null, null);
+        }
+
+        public void debug(String pattern, Object a0, Object a1, Object a2) {
+            log(Level.DEBUG, pattern, 3, a0, a1, a2, null);
+        }
+
+        public void info(String message) {
+            log(Level.INFO, message, 0, null, null, null, null);
+        }
+
+        public void info(String pattern, Object a0) {
+            log(Level.INFO, pattern, 1, a0, null, null, null);
+        }
+
+        public void info(String pattern, Object a0, Object a1) {
+            log(Level.INFO, pattern, 2, a0, a1, null, null);
+        }
+
+        public void warn(String message) {
+            log(Level.WARN, message, 0, null, null, null, null);
+        }
+
+        public void warn(String pattern, Object a0) {
+            log(Level.WARN, pattern, 1, a0, null, null, null);
+        }
+
+        public void warn(String message, Throwable error) {
+            log(Level.WARN, message, 0, null, null, null, error);
+        }
+
+        public void warn(String pattern, Object a0, Throwable error) {
+            log(Level.WARN, pattern, 1, a0, null, null, error);
+        }
+
+        public void error(String message) {
+            log(Level.ERROR, message, 0, null, null, null, null);
+        }
+
+        public void error(String pattern, Object a0) {
+            log(Level.ERROR, pattern, 1, a0, null, null, null);
+        }
+
+        public void error(String message, Throwable error) {
+            log(Level.ERROR, message, 0, null, null, null, error);
+        }
+
+        public void error(String pattern, Object a0, Throwable error) {
+            log(Level.ERROR, pattern, 1, a0, null, null, error);
+        }
+
+        /** Adapter for the protocol layer's logging hook. */
+        public JanusLogger asJanusLogger() {
+            return new JanusLogger() {
+                @Override
+                public void debug(String message) {
+                    Category.this.debug(message);
+                }
+
+                @Override
+                public void debug(String pattern, Object a0) {
+                    Category.this.debug(pattern, a0);
+                }
+
+                @Override
+                public void debug(String pattern, Object a0, Object a1) {
+                    Category.this.debug(pattern, a0, a1);
+                }
+
+                @Override
+                public void debug(String pattern, Object a0, Object a1, Object a2) {
+                    Category.this.debug(pattern, a0, a1, a2);
+                }
+
+                @Override
+                public void error(String message, Throwable error) {
+                    Category.this.error(message, error);
+                }
+            };
+        }
+
+        private void log(Level level, String pattern, int argCount, Object a0, Object a1, Object a2,
+                         Throwable error) {
+            if (level.ordinal() < threshold) {
+                return;
+            }
+            if (times.length > 0 && level.ordinal() >= ringLevel.ordinal()) {
+                record(level, name, pattern, argCount, a0, a1, a2, error);
+            }
+            if (level.ordinal() < this.level.ordinal()) {
+                return;
+            }
+            int every = sampleEvery;
+            if (every > 1 && level.ordinal() < Level.INFO.ordinal()
+                    && sampleCounter.getAndIncrement() % every != 0) {
+                return;
+            }
+            sink.write(level, name, format(pattern, argCount, a0, a1, a2), error);
+        }
+    }
+}
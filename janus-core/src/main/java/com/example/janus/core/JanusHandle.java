@@ -0,0 +1,62 @@
+package com.example.janus.core;
+
+import org.json.JSONObject;
+
+/**
+ * One plugin handle multiplexed over a {@link JanusSession}. Every inbound frame
+ * whose {@code sender} is this handle is delivered to its own {@link Listener}.
+ */
+public class JanusHandle {
+    public interface Listener {
+        void onAttached(JanusHandle handle);
+
+        void onEvent(JanusMessage message);
+
+        void onDetached();
+    }
+
+    private final JanusSession session;
+    private final long id;
+    private final String plugin;
+    private final Listener listener;
+
+    JanusHandle(JanusSession session, long id, String plugin, Listener listener) {
+        this.session = session;
+        this.id = id;
+        this.plugin = plugin;
+        this.listener = listener;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getPlugin() {
+        return plugin;
+    }
+
+    public JanusSession getSession() {
+        return session;
+    }
+
+    Listener getListener() {
+        return listener;
+    }
+
+    /** Sends a plugin {@code message}; returns its transaction id. */
+    public String sendMessage(JSONObject body, JSONObject jsep) {
+        return session.sendMessage(this, body, jsep, null);
+    }
+
+    public String sendMessage(JSONObject body, JSONObject jsep, TransactionCallback callback) {
+        return session.sendMessage(this, body, jsep, callback);
+    }
+
+    public void trickle(JSONObject candidate) {
+        session.trickle(this, candidate);
+    }
+
+    public void detach() {
+        session.detach(this);
+    }
+}
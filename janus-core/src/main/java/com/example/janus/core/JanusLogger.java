@@ -0,0 +1,34 @@
+package com.example.janus.core;
+
+/**
+ * Minimal logging hook so the protocol layer stays free of {@code android.util.Log}.
+ * Patterns take {@code {}} placeholders, filled in only if the message is logged.
+ */
+public interface JanusLogger {
+    JanusLogger NONE = new JanusLogger() {
+        @Override
+        public void debug(String message) {}
+
+        @Override
+        public void debug(String pattern, Object a0) {}
+
+        @Override
+        public void debug(String pattern, Object a0, Object a1) {}
+
+        @Override
+        public void debug(String pattern, Object a0, Object a1, Object a2) {}
+
+        @Override
+        public void error(String message, Throwable error) {}
+    };
+
+    void debug(String message);
+
+    void debug(String pattern, Object a0);
+
+    void debug(String pattern, Object a0, Object a1);
+
+    void debug(String pattern, Object a0, Object a1, Object a2);
+
+    void error(String message, Throwable error);
+}
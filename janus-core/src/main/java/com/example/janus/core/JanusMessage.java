@@ -0,0 +1,119 @@
+package com.example.janus.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A decoded inbound Janus frame. The envelope fields every dispatch needs are
+ * read once up front; everything else stays in the underlying {@link JSONObject}.
+ */
+public final class JanusMessage {
+    public enum Type {
+        SUCCESS, ERROR, ACK, EVENT, WEBRTCUP, MEDIA, SLOWLINK, HANGUP, DETACHED, TRICKLE, TIMEOUT, UNKNOWN
+    }
+
+    private final JSONObject json;
+    private final Type type;
+    private final String transaction;
+    private final long sessionId;
+    private final long sender;
+
+    private JanusMessage(JSONObject json) {
+        this.json = json;
+        this.type = typeOf(json.optString("janus"));
+        this.transaction = json.optString("transaction", null);
+        this.sessionId = json.optLong("session_id");
+        this.sender = json.optLong("sender");
+    }
+
+    public static JanusMessage parse(String message) throws JSONException {
+        return new JanusMessage(new JSONObject(message));
+    }
+
+    public static JanusMessage wrap(JSONObject json) {
+        return new JanusMessage(json);
+    }
+
+    static Type typeOf(String janus) {
+        switch (janus) {
+            case "success": return Type.SUCCESS;
+            case "error": return Type.ERROR;
+            case "ack": return Type.ACK;
+            case "event": return Type.EVENT;
+            case "webrtcup": return Type.WEBRTCUP;
+            case "media": return Type.MEDIA;
+            case "slowlink": return Type.SLOWLINK;
+            case "hangup": return Type.HANGUP;
+            case "detached": return Type.DETACHED;
+            case "trickle": return Type.TRICKLE;
+            case "timeout": return Type.TIMEOUT;
+            default: return Type.UNKNOWN;
+        }
+    }
+
+    public JSONObject getJson() {
+        return json;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTransaction() {
+        return transaction;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public long getSender() {
+        return sender;
+    }
+
+    /** The {@code data.id} of a {@code success} response to create/attach, or 0. */
+    public long getDataId() {
+        JSONObject data = json.optJSONObject("data");
+        return data != null ? data.optLong("id") : 0;
+    }
+
+    public JSONObject getPluginData() {
+        JSONObject plugindata = json.optJSONObject("plugindata");
+        return plugindata != null ? plugindata.optJSONObject("data") : null;
+    }
+
+    /** The {@code plugindata.data.result} object of a plugin event, or null. */
+    public JSONObject getPluginResult() {
+        JSONObject data = getPluginData();
+        return data != null ? data.optJSONObject("result") : null;
+    }
+
+    /** The {@code result.event} name of a plugin event, or null. */
+    public String getPluginEvent() {
+        JSONObject result = getPluginResult();
+        return result != null ? result.optString("event", null) : null;
+    }
+
+    public JSONObject getJsep() {
+        return json.optJSONObject("jsep");
+    }
+
+    public int getErrorCode() {
+        if (type == Type.ERROR) {
+            JSONObject error = json.optJSONObject("error");
+            return error != null ? error.optInt("code") : 0;
+        }
+        JSONObject data = getPluginData();
+        return data != null ? data.optInt("error_code") : 0;
+    }
+
+    /** The reason of a Janus core error or a plugin error, or null if this is not an error. */
+    public String getErrorReason() {
+        if (type == Type.ERROR) {
+            JSONObject error = json.optJSONObject("error");
+            return error != null ? error.optString("reason", "No reason provided") : "No reason provided";
+        }
+        JSONObject data = getPluginData();
+        return data != null && data.has("error") ? data.optString("error") : null;
+    }
+}
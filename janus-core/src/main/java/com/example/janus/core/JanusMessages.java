@@ -0,0 +1,111 @@
+package com.example.janus.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Encoders for the outbound Janus requests used by the app.
+ */
+public final class JanusMessages {
+    public static final String PLUGIN_VIDEOCALL = "janus.plugin.videocall";
+
+    private JanusMessages() {}
+
+    public static JSONObject create(String transaction) throws JSONException {
+        JSONObject create = new JSONObject();
+        create.put("janus", "create");
+        create.put("transaction", transaction);
+        return create;
+    }
+
+    public static JSONObject attach(long sessionId, String plugin, String transaction) throws JSONException {
+        JSONObject attach = new JSONObject();
+        attach.put("janus", "attach");
+        attach.put("plugin", plugin);
+        attach.put("session_id", sessionId);
+        attach.put("transaction", transaction);
+        return attach;
+    }
+
+    public static JSONObject message(long sessionId, long handleId, String transaction,
+                                     JSONObject body, JSONObject jsep) throws JSONException {
+        JSONObject message = new JSONObject();
+        message.put("janus", "message");
+        message.put("session_id", sessionId);
+        message.put("handle_id", handleId);
+        message.put("transaction", transaction);
+        message.put("body", body);
+        if (jsep != null) {
+            message.put("jsep", jsep);
+        }
+        return message;
+    }
+
+    public static JSONObject trickle(long sessionId, long handleId, String transaction,
+                                     JSONObject candidate) throws JSONException {
+        JSONObject trickle = new JSONObject();
+        trickle.put("janus", "trickle");
+        trickle.put("session_id", sessionId);
+        trickle.put("handle_id", handleId);
+        trickle.put("transaction", transaction);
+        trickle.put("candidate", candidate);
+        return trickle;
+    }
+
+    public static JSONObject detach(long sessionId, long handleId, String transaction) throws JSONException {
+        JSONObject detach = new JSONObject();
+        detach.put("janus", "detach");
+        detach.put("session_id", sessionId);
+        detach.put("handle_id", handleId);
+        detach.put("transaction", transaction);
+        return detach;
+    }
+
+    public static JSONObject keepalive(long sessionId, String transaction) throws JSONException {
+        JSONObject keepalive = new JSONObject();
+        keepalive.put("janus", "keepalive");
+        keepalive.put("session_id", sessionId);
+        keepalive.put("transaction", transaction);
+        return keepalive;
+    }
+
+    public static JSONObject claim(long sessionId, String transaction) throws JSONException {
+        JSONObject claim = new JSONObject();
+        claim.put("janus", "claim");
+        claim.put("session_id", sessionId);
+        claim.put("transaction", transaction);
+        return claim;
+    }
+
+    public static JSONObject registerBody(String username) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "register");
+        body.put("username", username);
+        return body;
+    }
+
+    public static JSONObject callBody(String peerUsername) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "call");
+        body.put("username", peerUsername);
+        return body;
+    }
+
+    /**
+     * Videocall {@code set}: tells the plugin whether to relay our audio and video
+     * to the peer. Turning video back on makes Janus request a keyframe from us.
+     */
+    public static JSONObject setMediaBody(boolean audio, boolean video) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "set");
+        body.put("audio", audio);
+        body.put("video", video);
+        return body;
+    }
+
+    public static JSONObject requestBody(String request) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", request);
+        return body;
+    }
+}
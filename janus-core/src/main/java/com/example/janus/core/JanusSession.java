@@ -0,0 +1,336 @@
+package com.example.janus.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Protocol state for one Janus session: creates the session, attaches any
+ * number of plugin handles over the same transport, and routes inbound frames
+ * to pending transactions and to the handle named by their {@code sender}.
+ *
+ * <p>The session knows nothing about sockets; frames go out through a
+ * {@link Transport} and come back in through {@link #onMessage(String)}.
+ */
+public class JanusSession {
+    public interface Transport {
+        void send(String message);
+    }
+
+    public interface Listener {
+        void onSessionCreated(long sessionId);
+
+        /** Frames not addressed to an attached handle: acks, errors, session-level events. */
+        void onEvent(JanusMessage message);
+
+        void onError(String error);
+    }
+
+    private static final class PendingAttach {
+        final String plugin;
+        final JanusHandle.Listener listener;
+
+        PendingAttach(String plugin, JanusHandle.Listener listener) {
+            this.plugin = plugin;
+            this.listener = listener;
+        }
+    }
+
+    private final Transport transport;
+    private final Listener listener;
+    private final JanusLogger logger;
+    private final TransactionTracker transactions = new TransactionTracker();
+    private final Object handlesLock = new Object();
+    private final List<PendingAttach> pendingAttaches = new ArrayList<>();
+
+    // Copy-on-write: attach/detach are rare, lookups happen for every inbound frame.
+    private volatile LongObjectMap<JanusHandle> handles = new LongObjectMap<>();
+    private volatile long sessionId;
+    private volatile SignalingRecorder recorder;
+
+    public JanusSession(Transport transport, Listener listener, JanusLogger logger) {
+        this.transport = transport;
+        this.listener = listener;
+        this.logger = logger;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public boolean isCreated() {
+        return sessionId != 0;
+    }
+
+    public JanusHandle getHandle(long handleId) {
+        return handles.get(handleId);
+    }
+
+    public int getHandleCount() {
+        return handles.size();
+    }
+
+    public TransactionTracker getTransactions() {
+        return transactions;
+    }
+
+    /** Records every inbound and outbound frame until replaced or set to null. */
+    public void setRecorder(SignalingRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public SignalingRecorder getRecorder() {
+        return recorder;
+    }
+
+    public String nextTransactionId() {
+        return transactions.nextTransactionId();
+    }
+
+    /** Forgets the session after the transport went away; attached handles are told they are detached. */
+    public void reset() {
+        List<JanusHandle> detached;
+        synchronized (handlesLock) {
+            detached = handles.values();
+            handles = new LongObjectMap<>();
+            pendingAttaches.clear();
+            sessionId = 0;
+        }
+        transactions.clear();
+        for (JanusHandle handle : detached) {
+            handle.getListener().onDetached();
+        }
+    }
+
+    public void start() {
+        try {
+            String transaction = transactions.nextTransactionId();
+            trackCreate(transaction);
+            send(JanusMessages.create(transaction).toString());
+            logger.debug("Sent create session request");
+        } catch (JSONException e) {
+            logger.error("Error creating session request", e);
+            listener.onError("Error creating session: " + e.getMessage());
+        }
+    }
+
+    /**
+     * For replaying a recording: expects the answer to a create request sent
+     * as {@code transaction}, as if {@link #start()} had sent it.
+     */
+    void expectCreate(String transaction) {
+        trackCreate(transaction);
+    }
+
+    private void trackCreate(String transaction) {
+        transactions.track(transaction, false, new TransactionCallback() {
+            @Override
+            public void onResponse(JanusMessage response) {
+                onSessionCreated(response.getDataId());
+            }
+
+            @Override
+            public void onError(int code, String reason) {
+                logger.debug("Create session failed ({}): {}", code, reason);
+                reportError(code, reason);
+            }
+        });
+    }
+
+    /**
+     * Takes this session over on a new transport connection, keeping its
+     * handles and whatever they were doing. Send it as the first frame on the
+     * new connection; from the answer on, the gateway sends the session's
+     * events there, including answers to requests still pending from the old
+     * one. The gateway refuses once the session has timed out.
+     */
+    public void claim(TransactionCallback callback) {
+        try {
+            String transaction = transactions.nextTransactionId();
+            transactions.track(transaction, false, callback);
+            send(JanusMessages.claim(sessionId, transaction).toString());
+            logger.debug("Sent claim for session {}", sessionId);
+        } catch (JSONException e) {
+            logger.error("Error creating claim request", e);
+            listener.onError("Error claiming session: " + e.getMessage());
+        }
+    }
+
+    private void onSessionCreated(long id) {
+        List<PendingAttach> queued;
+        synchronized (handlesLock) {
+            sessionId = id;
+            queued = new ArrayList<>(pendingAttaches);
+            pendingAttaches.clear();
+        }
+        logger.debug("Session created: {}", id);
+        listener.onSessionCreated(id);
+        for (PendingAttach attach : queued) {
+            sendAttach(attach.plugin, attach.listener);
+        }
+    }
+
+    /**
+     * Attaches another plugin handle on this session. If the session is still
+     * being created the attach goes out as soon as it exists.
+     */
+    public void attach(String plugin, JanusHandle.Listener handleListener) {
+        synchronized (handlesLock) {
+            if (sessionId == 0) {
+                pendingAttaches.add(new PendingAttach(plugin, handleListener));
+                return;
+            }
+        }
+        sendAttach(plugin, handleListener);
+    }
+
+    /**
+     * For replaying a recording: expects the answer to an attach request sent
+     * as {@code transaction}, as if {@link #attach} had sent it.
+     */
+    void expectAttach(String transaction, String plugin, JanusHandle.Listener handleListener) {
+        trackAttach(transaction, plugin, handleListener);
+    }
+
+    private void sendAttach(String plugin, JanusHandle.Listener handleListener) {
+        try {
+            String transaction = transactions.nextTransactionId();
+            trackAttach(transaction, plugin, handleListener);
+            send(JanusMessages.attach(sessionId, plugin, transaction).toString());
+            logger.debug("Sent attach plugin request for {}", plugin);
+        } catch (JSONException e) {
+            logger.error("Error creating attach request", e);
+            listener.onError("Error attaching plugin: " + e.getMessage());
+        }
+    }
+
+    private void trackAttach(String transaction, String plugin, JanusHandle.Listener handleListener) {
+        transactions.track(transaction, false, new TransactionCallback() {
+            @Override
+            public void onResponse(JanusMessage response) {
+                JanusHandle handle = new JanusHandle(JanusSession.this, response.getDataId(), plugin, handleListener);
+                synchronized (handlesLock) {
+                    LongObjectMap<JanusHandle> updated = handles.copy();
+                    updated.put(handle.getId(), handle);
+                    handles = updated;
+                }
+                logger.debug("Plugin {} attached, handle ID: {}", plugin, handle.getId());
+                handleListener.onAttached(handle);
+            }
+
+            @Override
+            public void onError(int code, String reason) {
+                logger.debug("Attach {} failed ({}): {}", plugin, code, reason);
+                reportError(code, reason);
+            }
+        });
+    }
+
+    void detach(JanusHandle handle) {
+        if (!removeHandle(handle.getId())) return;
+        try {
+            send(JanusMessages.detach(sessionId, handle.getId(), transactions.nextTransactionId()).toString());
+            logger.debug("Sent detach request for handle {}", handle.getId());
+        } catch (JSONException e) {
+            logger.error("Error creating detach request", e);
+            listener.onError("Error detaching plugin: " + e.getMessage());
+        }
+        handle.getListener().onDetached();
+    }
+
+    private boolean removeHandle(long handleId) {
+        synchronized (handlesLock) {
+            if (handles.get(handleId) == null) return false;
+            LongObjectMap<JanusHandle> updated = handles.copy();
+            updated.remove(handleId);
+            handles = updated;
+            return true;
+        }
+    }
+
+    public void onMessage(String message) {
+        SignalingRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            activeRecorder.record(SignalingRecorder.INBOUND, message);
+        }
+        JanusMessage decoded;
+        try {
+            decoded = JanusMessage.parse(message);
+        } catch (JSONException e) {
+            listener.onError("JSON parsing error: " + e.getMessage());
+            return;
+        }
+        dispatch(decoded);
+    }
+
+    public void dispatch(JanusMessage message) {
+        boolean handled = transactions.complete(message);
+        if (message.getType() == JanusMessage.Type.ERROR && !handled) {
+            // An error answering a request went to that request's callback instead.
+            reportError(message.getErrorCode(), message.getErrorReason());
+        }
+
+        long sender = message.getSender();
+        if (sender != 0) {
+            JanusHandle handle = handles.get(sender);
+            if (handle != null) {
+                handle.getListener().onEvent(message);
+                if (message.getType() == JanusMessage.Type.DETACHED && removeHandle(sender)) {
+                    handle.getListener().onDetached();
+                }
+                return;
+            }
+        }
+        listener.onEvent(message);
+    }
+
+    private void reportError(int code, String reason) {
+        String errorMsg = "Janus error (" + code + "): " + reason;
+        logger.error(errorMsg, null);
+        listener.onError(errorMsg);
+    }
+
+    public void keepalive() {
+        try {
+            send(JanusMessages.keepalive(sessionId, transactions.nextTransactionId()).toString());
+        } catch (JSONException e) {
+            logger.error("Error creating keepalive request", e);
+            listener.onError("Error sending keepalive: " + e.getMessage());
+        }
+    }
+
+    String sendMessage(JanusHandle handle, JSONObject body, JSONObject jsep, TransactionCallback callback) {
+        String transaction = transactions.nextTransactionId();
+        try {
+            if (callback != null) {
+                transactions.track(transaction, false, callback);
+            }
+            send(JanusMessages.message(sessionId, handle.getId(), transaction, body, jsep).toString());
+        } catch (JSONException e) {
+            logger.error("Error creating message request", e);
+            listener.onError("Error sending message: " + e.getMessage());
+        }
+        return transaction;
+    }
+
+    void trickle(JanusHandle handle, JSONObject candidate) {
+        try {
+            send(JanusMessages.trickle(sessionId, handle.getId(),
+                    transactions.nextTransactionId(), candidate).toString());
+            logger.debug("Sent trickle candidate");
+        } catch (JSONException e) {
+            logger.error("Error creating trickle request", e);
+            listener.onError("Error sending ICE candidate: " + e.getMessage());
+        }
+    }
+
+    private void send(String message) {
+        SignalingRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            activeRecorder.record(SignalingRecorder.OUTBOUND, message);
+        }
+        transport.send(message);
+    }
+}
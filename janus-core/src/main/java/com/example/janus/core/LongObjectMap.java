@@ -0,0 +1,137 @@
+package com.example.janus.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Open-addressing hash map keyed by primitive {@code long}, used to route
+ * inbound frames by Janus handle id without boxing on every lookup.
+ *
+ * <p>Key 0 is reserved as the empty marker; Janus never hands out 0 as an id.
+ * Not thread-safe.
+ */
+public class LongObjectMap<V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    private static int hash(long key) {
+        int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) return (V) values[i];
+            if (k == 0) return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) throw new IllegalArgumentException("key 0 is reserved");
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == 0) return null;
+            i = (i + 1) & mask;
+        }
+        V previous = (V) values[i];
+
+        // Backward-shift deletion keeps probe chains intact without tombstones.
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                result.add((V) values[i]);
+            }
+        }
+        return result;
+    }
+
+    public LongObjectMap<V> copy() {
+        LongObjectMap<V> copy = new LongObjectMap<>(MIN_CAPACITY);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                @SuppressWarnings("unchecked")
+                V value = (V) oldValues[i];
+                put(oldKeys[i], value);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.janus.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Who is registered with the videocall plugin, as of the last {@code list}
+ * response, for at most {@code ttlMs}. Signaling seen in between (an incoming
+ * call, a call to a name that no longer exists) patches the answer until the
+ * next refresh replaces it, or for at most {@code ttlMs} if none comes.
+ *
+ * <p>Lookups are a hash probe and prefix searches a binary search over a
+ * sorted copy, so both stay cheap on large user lists. Refreshes swap in a new
+ * immutable snapshot; readers never lock.
+ */
+public class PresenceCache {
+    public enum Presence { ONLINE, OFFLINE, UNKNOWN }
+
+    public interface Listener {
+        /** Called from {@link #update} with what changed since the previous snapshot. */
+        void onPresenceChanged(Set<String> cameOnline, Set<String> wentOffline);
+    }
+
+    private static final class Snapshot {
+        final Set<String> online;
+        final String[] sorted;
+        final long fetchedAtMs;
+
+        Snapshot(Set<String> online, long fetchedAtMs) {
+            this.online = online;
+            this.sorted = online.toArray(new String[0]);
+            Arrays.sort(sorted);
+            this.fetchedAtMs = fetchedAtMs;
+        }
+    }
+
+    private static final class Observation {
+        final boolean online;
+        final long observedAtMs;
+
+        Observation(boolean online, long observedAtMs) {
+            this.online = online;
+            this.observedAtMs = observedAtMs;
+        }
+    }
+
+    private final long ttlMs;
+    private final Listener listener;
+    private final Map<String, Observation> observed = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    public PresenceCache(long ttlMs, Listener listener) {
+        this.ttlMs = ttlMs;
+        this.listener = listener;
+    }
+
+    /** Replaces the snapshot with a full {@code list} response fetched at {@code nowMs}. */
+    public void update(Collection<String> online, long nowMs) {
+        Snapshot previous = snapshot;
+        Snapshot next = new Snapshot(Collections.unmodifiableSet(new HashSet<>(online)), nowMs);
+        snapshot = next;
+        observed.clear();
+        if (listener == null || previous == null) {
+            return;
+        }
+        Set<String> cameOnline = new HashSet<>();
+        for (String user : next.online) {
+            if (!previous.online.contains(user)) cameOnline.add(user);
+        }
+        Set<String> wentOffline = new HashSet<>();
+        for (String user : previous.online) {
+            if (!next.online.contains(user)) wentOffline.add(user);
+        }
+        if (!cameOnline.isEmpty() || !wentOffline.isEmpty()) {
+            listener.onPresenceChanged(cameOnline, wentOffline);
+        }
+    }
+
+    /**
+     * Records presence learned from other signaling at {@code nowMs}; overridden
+     * by the next {@link #update}, and forgotten after the TTL.
+     */
+    public void observe(String user, boolean online, long nowMs) {
+        observed.put(user, new Observation(online, nowMs));
+    }
+
+    public Presence lookup(String user, long nowMs) {
+        Boolean seen = observed(user, nowMs);
+        if (seen != null) {
+            return seen ? Presence.ONLINE : Presence.OFFLINE;
+        }
+        Snapshot current = snapshot;
+        if (current == null || nowMs - current.fetchedAtMs > ttlMs) {
+            return Presence.UNKNOWN;
+        }
+        return current.online.contains(user) ? Presence.ONLINE : Presence.OFFLINE;
+    }
+
+    /** Whether a refresh is due: no snapshot yet, or one at least half its TTL old. */
+    public boolean needsRefresh(long nowMs) {
+        Snapshot current = snapshot;
+        return current == null || nowMs - current.fetchedAtMs >= ttlMs / 2;
+    }
+
+    /** Up to {@code limit} online users starting with {@code prefix}, sorted. */
+    public List<String> search(String prefix, int limit, long nowMs) {
+        List<String> matches = new ArrayList<>();
+        Snapshot current = snapshot;
+        if (current != null) {
+            int i = Arrays.binarySearch(current.sorted, prefix);
+            for (i = i < 0 ? -i - 1 : i; i < current.sorted.length && matches.size() < limit; i++) {
+                String user = current.sorted[i];
+                if (!user.startsWith(prefix)) break;
+                if (!Boolean.FALSE.equals(observed(user, nowMs))) matches.add(user);
+            }
+        }
+        for (String user : observed.keySet()) {
+            if (Boolean.TRUE.equals(observed(user, nowMs)) && user.startsWith(prefix) && !matches.contains(user)
+                    && (current == null || !current.online.contains(user))) {
+                matches.add(user);
+            }
+        }
+        Collections.sort(matches);
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    /** What signaling said about {@code user} within the TTL, or null; older entries are dropped. */
+    private Boolean observed(String user, long nowMs) {
+        Observation seen = observed.get(user);
+        if (seen == null) {
+            return null;
+        }
+        if (nowMs - seen.observedAtMs > ttlMs) {
+            observed.remove(user, seen);
+            return null;
+        }
+        return seen.online;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.janus.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only binary log of signaling frames, written straight into a
+ * memory-mapped file of fixed maximum size.
+ *
+ * <p>Layout: a {@value #HEADER_SIZE}-byte header (magic, version, wall-clock
+ * start) followed by records of {@code [direction:1][nanosSinceStart:8][length:4][utf8]}.
+ * A zero direction byte marks the end. Once the file is full further frames are
+ * counted as dropped rather than evicting older ones, so a recording always
+ * starts at the beginning of the session.
+ */
+public class SignalingRecorder implements Closeable {
+    public static final byte INBOUND = 1;
+    public static final byte OUTBOUND = 2;
+
+    static final int MAGIC = 0x4A53524C; // "JSRL"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 1 + 8 + 4;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final long startNanos;
+    private int frameCount;
+    private int droppedCount;
+    private boolean closed;
+
+    private SignalingRecorder(File path, int maxBytes) throws IOException {
+        if (maxBytes < HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("maxBytes too small: " + maxBytes);
+        }
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxBytes);
+        startNanos = System.nanoTime();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putLong(System.currentTimeMillis());
+    }
+
+    public static SignalingRecorder open(File path, int maxBytes) throws IOException {
+        return new SignalingRecorder(path, maxBytes);
+    }
+
+    /**
+     * @return false if the frame did not fit and was dropped
+     */
+    public synchronized boolean record(byte direction, String frame) {
+        if (closed) return false;
+        long timestamp = System.nanoTime() - startNanos;
+        int recordStart = buffer.position();
+        if (buffer.remaining() <= RECORD_HEADER_SIZE) {
+            droppedCount++;
+            return false;
+        }
+
+        buffer.position(recordStart + RECORD_HEADER_SIZE);
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(frame), buffer, true);
+        if (result.isOverflow() || encoder.flush(buffer).isOverflow()) {
+            buffer.position(recordStart);
+            buffer.put(recordStart, (byte) 0);
+            droppedCount++;
+            return false;
+        }
+
+        int length = buffer.position() - recordStart - RECORD_HEADER_SIZE;
+        buffer.put(recordStart, direction);
+        buffer.putLong(recordStart + 1, timestamp);
+        buffer.putInt(recordStart + 9, length);
+        frameCount++;
+        return true;
+    }
+
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    public synchronized int getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized int getBytesWritten() {
+        return buffer.position();
+    }
+
+    /** Flushes the log and trims the file to the bytes actually written. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        int size = buffer.position();
+        buffer.force();
+        try {
+            channel.truncate(size);
+        } finally {
+            file.close();
+        }
+    }
+}
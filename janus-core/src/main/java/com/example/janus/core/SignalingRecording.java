@@ -0,0 +1,94 @@
+package com.example.janus.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A decoded {@link SignalingRecorder} log.
+ */
+public class SignalingRecording {
+    public static final class Frame {
+        private final byte direction;
+        private final long timestampNanos;
+        private final String message;
+
+        Frame(byte direction, long timestampNanos, String message) {
+            this.direction = direction;
+            this.timestampNanos = timestampNanos;
+            this.message = message;
+        }
+
+        public boolean isInbound() {
+            return direction == SignalingRecorder.INBOUND;
+        }
+
+        public byte getDirection() {
+            return direction;
+        }
+
+        /** Monotonic nanoseconds since the recording started. */
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final long startTimeMillis;
+    private final List<Frame> frames;
+
+    private SignalingRecording(long startTimeMillis, List<Frame> frames) {
+        this.startTimeMillis = startTimeMillis;
+        this.frames = Collections.unmodifiableList(frames);
+    }
+
+    public static SignalingRecording read(File path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < SignalingRecorder.HEADER_SIZE
+                    || buffer.getInt() != SignalingRecorder.MAGIC) {
+                throw new IOException("Not a signaling recording: " + path);
+            }
+            short version = buffer.getShort();
+            if (version != SignalingRecorder.VERSION) {
+                throw new IOException("Unsupported recording version " + version + ": " + path);
+            }
+            buffer.getShort();
+            long startTimeMillis = buffer.getLong();
+
+            List<Frame> frames = new ArrayList<>();
+            while (buffer.remaining() >= SignalingRecorder.RECORD_HEADER_SIZE) {
+                byte direction = buffer.get();
+                if (direction == 0) break;
+                long timestamp = buffer.getLong();
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IOException("Truncated record at offset " + (buffer.position() - 13) + ": " + path);
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                frames.add(new Frame(direction, timestamp, new String(bytes, StandardCharsets.UTF_8)));
+            }
+            return new SignalingRecording(startTimeMillis, frames);
+        }
+    }
+
+    /** Wall-clock time the recording started, for lining it up with logcat. */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public List<Frame> getFrames() {
+        return frames;
+    }
+}
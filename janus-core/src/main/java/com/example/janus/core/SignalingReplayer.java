@@ -0,0 +1,146 @@
+package com.example.janus.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds the inbound frames of a {@link SignalingRecording} back into a sink,
+ * typically a {@link JanusSession} or a client's {@code onMessage}, preserving
+ * the recorded spacing scaled by {@code speed}.
+ */
+public class SignalingReplayer {
+    public interface Sink {
+        void onMessage(String message);
+    }
+
+    /** Supplies the listener for each handle the recorded session attached. */
+    public interface HandleListeners {
+        JanusHandle.Listener forPlugin(String plugin);
+    }
+
+    private interface OutboundSink {
+        void onOutbound(String message);
+    }
+
+    public static final class Result {
+        private final int framesReplayed;
+        private final long processingNanos;
+        private final long maxProcessingNanos;
+        private final long wallNanos;
+
+        Result(int framesReplayed, long processingNanos, long maxProcessingNanos, long wallNanos) {
+            this.framesReplayed = framesReplayed;
+            this.processingNanos = processingNanos;
+            this.maxProcessingNanos = maxProcessingNanos;
+            this.wallNanos = wallNanos;
+        }
+
+        public int getFramesReplayed() {
+            return framesReplayed;
+        }
+
+        /** Time spent inside the sink, excluding pacing delays. */
+        public long getProcessingNanos() {
+            return processingNanos;
+        }
+
+        public long getMaxProcessingNanos() {
+            return maxProcessingNanos;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+    }
+
+    private final double speed;
+
+    /**
+     * @param speed 1 replays in real time, 10 ten times faster, 0 as fast as possible
+     */
+    public SignalingReplayer(double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must be >= 0: " + speed);
+        }
+        this.speed = speed;
+    }
+
+    /** Replays the inbound frames only; replies to the recorded requests reach {@code sink} unmatched. */
+    public Result replay(SignalingRecording recording, Sink sink) throws InterruptedException {
+        return replay(recording, sink, null);
+    }
+
+    /**
+     * Replays into a fresh session the way the recorded one saw the traffic.
+     * The recorded create and attach requests are expected under their
+     * recorded transactions as they come up, so the gateway's answers create
+     * the session and attach handles with the recorded ids, and plugin events
+     * then take the per-handle routing path. Nothing is sent on the session's
+     * transport. The recording must start before the session was created.
+     */
+    public Result replay(SignalingRecording recording, JanusSession session, HandleListeners handles)
+            throws InterruptedException {
+        return replay(recording, session::onMessage, message -> expect(session, handles, message));
+    }
+
+    private static void expect(JanusSession session, HandleListeners handles, String message) {
+        JSONObject request;
+        try {
+            request = new JSONObject(message);
+        } catch (JSONException e) {
+            return;
+        }
+        String transaction = request.optString("transaction", null);
+        if (transaction == null) return;
+        switch (request.optString("janus")) {
+            case "create":
+                session.expectCreate(transaction);
+                break;
+            case "attach":
+                String plugin = request.optString("plugin");
+                session.expectAttach(transaction, plugin, handles.forPlugin(plugin));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Result replay(SignalingRecording recording, Sink sink, OutboundSink outbound)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long firstTimestamp = -1;
+        int replayed = 0;
+        long processing = 0;
+        long maxProcessing = 0;
+
+        for (SignalingRecording.Frame frame : recording.getFrames()) {
+            if (!frame.isInbound()) {
+                if (outbound != null) {
+                    outbound.onOutbound(frame.getMessage());
+                }
+                continue;
+            }
+            if (firstTimestamp < 0) {
+                firstTimestamp = frame.getTimestampNanos();
+            }
+            if (speed > 0) {
+                long due = start + (long) ((frame.getTimestampNanos() - firstTimestamp) / speed);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) throw new InterruptedException();
+                }
+            }
+
+            long before = System.nanoTime();
+            sink.onMessage(frame.getMessage());
+            long elapsed = System.nanoTime() - before;
+            processing += elapsed;
+            maxProcessing = Math.max(maxProcessing, elapsed);
+            replayed++;
+        }
+        return new Result(replayed, processing, maxProcessing, System.nanoTime() - start);
+    }
+}
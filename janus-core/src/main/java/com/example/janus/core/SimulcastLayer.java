@@ -0,0 +1,22 @@
+package com.example.janus.core;
+
+/**
+ * Simulcast substream to receive for a remote video, matched to the size the
+ * video is shown at.
+ */
+public enum SimulcastLayer {
+    LOW(0),
+    MEDIUM(1),
+    HIGH(2);
+
+    private final int substream;
+
+    SimulcastLayer(int substream) {
+        this.substream = substream;
+    }
+
+    /** The Janus videoroom {@code substream} index for this layer. */
+    public int getSubstream() {
+        return substream;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.janus.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which videoroom streams to subscribe to. Audio is taken from every
+ * publisher, video only from publishers that are currently visible, and each
+ * visible video at the simulcast layer its view asked for. Produces the
+ * difference between that and what the subscriber handle actually carries, so
+ * cost tracks what is on screen rather than room size.
+ *
+ * <p>Pure bookkeeping: no JSON, no WebRTC; the caller turns a {@link Plan} into
+ * {@code update}/{@code configure} requests. Not thread-safe.
+ */
+public class SubscriptionPlanner {
+    /** A publisher-side stream, identified the way {@code subscribe}/{@code unsubscribe} name it. */
+    public static final class StreamRef {
+        private final long feedId;
+        private final String mid;
+
+        public StreamRef(long feedId, String mid) {
+            this.feedId = feedId;
+            this.mid = mid;
+        }
+
+        public long getFeedId() {
+            return feedId;
+        }
+
+        public String getMid() {
+            return mid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StreamRef)) return false;
+            StreamRef other = (StreamRef) o;
+            return feedId == other.feedId && mid.equals(other.mid);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(feedId) + mid.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return feedId + "/" + mid;
+        }
+    }
+
+    public static final class PublishedStream {
+        private final String mid;
+        private final boolean video;
+
+        public PublishedStream(String mid, boolean video) {
+            this.mid = mid;
+            this.video = video;
+        }
+    }
+
+    /** A stream as reported by the subscriber handle: our {@code mid} carrying a feed's {@code feedMid}. */
+    public static final class SubscribedStream {
+        private final String mid;
+        private final long feedId;
+        private final String feedMid;
+        private final boolean video;
+
+        public SubscribedStream(String mid, long feedId, String feedMid, boolean video) {
+            this.mid = mid;
+            this.feedId = feedId;
+            this.feedMid = feedMid;
+            this.video = video;
+        }
+
+        public String getMid() {
+            return mid;
+        }
+
+        public long getFeedId() {
+            return feedId;
+        }
+
+        public boolean isVideo() {
+            return video;
+        }
+    }
+
+    public static final class Plan {
+        private final List<StreamRef> subscribe;
+        private final List<StreamRef> unsubscribe;
+        private final Map<String, SimulcastLayer> layerChanges;
+
+        Plan(List<StreamRef> subscribe, List<StreamRef> unsubscribe, Map<String, SimulcastLayer> layerChanges) {
+            this.subscribe = Collections.unmodifiableList(subscribe);
+            this.unsubscribe = Collections.unmodifiableList(unsubscribe);
+            this.layerChanges = Collections.unmodifiableMap(layerChanges);
+        }
+
+        public List<StreamRef> getSubscribe() {
+            return subscribe;
+        }
+
+        public List<StreamRef> getUnsubscribe() {
+            return unsubscribe;
+        }
+
+        /** Subscriber mid to the layer it should switch to. */
+        public Map<String, SimulcastLayer> getLayerChanges() {
+            return layerChanges;
+        }
+
+        public boolean hasStreamChanges() {
+            return !subscribe.isEmpty() || !unsubscribe.isEmpty();
+        }
+
+        public boolean isEmpty() {
+            return !hasStreamChanges() && layerChanges.isEmpty();
+        }
+    }
+
+    private final Map<Long, List<PublishedStream>> publishers = new LinkedHashMap<>();
+    private final Map<Long, SimulcastLayer> visible = new HashMap<>();
+    private final Map<StreamRef, SubscribedStream> subscribed = new LinkedHashMap<>();
+    private final Map<String, SubscribedStream> subscribedByMid = new HashMap<>();
+    private final Map<String, SimulcastLayer> appliedLayers = new HashMap<>();
+
+    public void addPublisher(long feedId, List<PublishedStream> streams) {
+        publishers.put(feedId, new ArrayList<>(streams));
+    }
+
+    public void removePublisher(long feedId) {
+        publishers.remove(feedId);
+    }
+
+    public boolean hasPublisher(long feedId) {
+        return publishers.containsKey(feedId);
+    }
+
+    public List<Long> getPublisherIds() {
+        return new ArrayList<>(publishers.keySet());
+    }
+
+    /** Marks a feed as on screen at the given layer, or off screen when {@code layer} is null. */
+    public void setVisible(long feedId, SimulcastLayer layer) {
+        if (layer == null) {
+            visible.remove(feedId);
+        } else {
+            visible.put(feedId, layer);
+        }
+    }
+
+    /** Replaces what the subscriber handle carries with the {@code streams} list of its latest event. */
+    public void onSubscriberStreams(List<SubscribedStream> streams) {
+        subscribed.clear();
+        subscribedByMid.clear();
+        for (SubscribedStream stream : streams) {
+            subscribed.put(new StreamRef(stream.feedId, stream.feedMid), stream);
+            subscribedByMid.put(stream.mid, stream);
+        }
+        appliedLayers.keySet().retainAll(subscribedByMid.keySet());
+    }
+
+    public SubscribedStream getSubscribedStream(String mid) {
+        return subscribedByMid.get(mid);
+    }
+
+    public boolean isSubscribed() {
+        return !subscribed.isEmpty();
+    }
+
+    public Plan plan() {
+        Set<StreamRef> desired = new LinkedHashSet<>();
+        for (Map.Entry<Long, List<PublishedStream>> publisher : publishers.entrySet()) {
+            long feedId = publisher.getKey();
+            boolean onScreen = visible.containsKey(feedId);
+            for (PublishedStream stream : publisher.getValue()) {
+                if (!stream.video || onScreen) {
+                    desired.add(new StreamRef(feedId, stream.mid));
+                }
+            }
+        }
+
+        List<StreamRef> subscribe = new ArrayList<>();
+        for (StreamRef ref : desired) {
+            if (!subscribed.containsKey(ref)) {
+                subscribe.add(ref);
+            }
+        }
+        List<StreamRef> unsubscribe = new ArrayList<>();
+        Map<String, SimulcastLayer> layerChanges = new LinkedHashMap<>();
+        for (Map.Entry<StreamRef, SubscribedStream> entry : subscribed.entrySet()) {
+            SubscribedStream stream = entry.getValue();
+            if (!desired.contains(entry.getKey())) {
+                unsubscribe.add(entry.getKey());
+            } else if (stream.video) {
+                SimulcastLayer layer = visible.get(stream.feedId);
+                if (layer != null && layer != appliedLayers.get(stream.mid)) {
+                    layerChanges.put(stream.mid, layer);
+                }
+            }
+        }
+        return new Plan(subscribe, unsubscribe, layerChanges);
+    }
+
+    public void markLayersApplied(Plan plan) {
+        appliedLayers.putAll(plan.getLayerChanges());
+    }
+
+    public void clear() {
+        publishers.clear();
+        visible.clear();
+        subscribed.clear();
+        subscribedByMid.clear();
+        appliedLayers.clear();
+    }
+}
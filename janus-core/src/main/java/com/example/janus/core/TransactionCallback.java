@@ -0,0 +1,11 @@
+package com.example.janus.core;
+
+/**
+ * Completion of a tracked Janus request. Called on the thread that delivered
+ * the response.
+ */
+public interface TransactionCallback {
+    void onResponse(JanusMessage response);
+
+    void onError(int code, String reason);
+}
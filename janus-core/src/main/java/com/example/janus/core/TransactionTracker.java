@@ -0,0 +1,85 @@
+package com.example.janus.core;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Matches inbound responses to outstanding requests by transaction id.
+ *
+ * <p>Only requests that registered a callback are tracked, so fire-and-forget
+ * traffic such as trickle candidates costs a counter increment and nothing else.
+ */
+public class TransactionTracker {
+    private static final class Pending {
+        final TransactionCallback callback;
+        final boolean completeOnAck;
+
+        Pending(TransactionCallback callback, boolean completeOnAck) {
+            this.callback = callback;
+            this.completeOnAck = completeOnAck;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong counter = new AtomicLong(new Random().nextInt() & 0xffffffffL);
+
+    public String nextTransactionId() {
+        return "txn-" + Long.toHexString(counter.incrementAndGet());
+    }
+
+    /**
+     * @param completeOnAck whether a plain {@code ack} finishes the request; plugin
+     *                      messages are acked first and answered by a later event
+     */
+    public void track(String transaction, boolean completeOnAck, TransactionCallback callback) {
+        pending.put(transaction, new Pending(callback, completeOnAck));
+    }
+
+    /**
+     * Completes the request the message answers, if any.
+     *
+     * @return true if a tracked request consumed the message
+     */
+    public boolean complete(JanusMessage message) {
+        String transaction = message.getTransaction();
+        if (transaction == null || pending.isEmpty()) return false;
+
+        switch (message.getType()) {
+            case ACK: {
+                Pending entry = pending.get(transaction);
+                if (entry == null || !entry.completeOnAck || !pending.remove(transaction, entry)) return false;
+                entry.callback.onResponse(message);
+                return true;
+            }
+            case SUCCESS:
+            case EVENT: {
+                Pending entry = pending.remove(transaction);
+                if (entry == null) return false;
+                String reason = message.getErrorReason();
+                if (reason != null) {
+                    entry.callback.onError(message.getErrorCode(), reason);
+                } else {
+                    entry.callback.onResponse(message);
+                }
+                return true;
+            }
+            case ERROR: {
+                Pending entry = pending.remove(transaction);
+                if (entry == null) return false;
+                entry.callback.onError(message.getErrorCode(), message.getErrorReason());
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public void clear() {
+        pending.clear();
+    }
+}
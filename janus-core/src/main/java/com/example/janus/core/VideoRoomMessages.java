@@ -0,0 +1,144 @@
+package com.example.janus.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request bodies and event parsing for {@code janus.plugin.videoroom} in
+ * multistream mode (one subscriber handle carrying every subscribed stream).
+ */
+public final class VideoRoomMessages {
+    public static final String PLUGIN_VIDEOROOM = "janus.plugin.videoroom";
+
+    private VideoRoomMessages() {}
+
+    public static JSONObject joinPublisher(long room, String display) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "join");
+        body.put("ptype", "publisher");
+        body.put("room", room);
+        body.put("display", display);
+        return body;
+    }
+
+    public static JSONObject publish(boolean audio, boolean video) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "publish");
+        body.put("audio", audio);
+        body.put("video", video);
+        return body;
+    }
+
+    /** Publisher {@code configure}: stops or resumes relaying our audio/video without renegotiating. */
+    public static JSONObject configurePublisher(boolean audio, boolean video) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "configure");
+        body.put("audio", audio);
+        body.put("video", video);
+        return body;
+    }
+
+    public static JSONObject joinSubscriber(long room, long privateId,
+                                            List<SubscriptionPlanner.StreamRef> streams) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "join");
+        body.put("ptype", "subscriber");
+        body.put("room", room);
+        body.put("private_id", privateId);
+        body.put("streams", streamList(streams));
+        return body;
+    }
+
+    public static JSONObject update(SubscriptionPlanner.Plan plan) throws JSONException {
+        JSONObject body = new JSONObject();
+        body.put("request", "update");
+        if (!plan.getSubscribe().isEmpty()) {
+            body.put("subscribe", streamList(plan.getSubscribe()));
+        }
+        if (!plan.getUnsubscribe().isEmpty()) {
+            body.put("unsubscribe", streamList(plan.getUnsubscribe()));
+        }
+        return body;
+    }
+
+    /** Subscriber {@code configure} switching each listed mid to its simulcast layer. */
+    public static JSONObject configureLayers(Map<String, SimulcastLayer> layers) throws JSONException {
+        JSONArray streams = new JSONArray();
+        for (Map.Entry<String, SimulcastLayer> entry : layers.entrySet()) {
+            JSONObject stream = new JSONObject();
+            stream.put("mid", entry.getKey());
+            stream.put("substream", entry.getValue().getSubstream());
+            streams.put(stream);
+        }
+        JSONObject body = new JSONObject();
+        body.put("request", "configure");
+        body.put("streams", streams);
+        return body;
+    }
+
+    private static JSONArray streamList(List<SubscriptionPlanner.StreamRef> refs) throws JSONException {
+        JSONArray streams = new JSONArray();
+        for (SubscriptionPlanner.StreamRef ref : refs) {
+            JSONObject stream = new JSONObject();
+            stream.put("feed", ref.getFeedId());
+            stream.put("mid", ref.getMid());
+            streams.put(stream);
+        }
+        return streams;
+    }
+
+    /**
+     * Adds every entry of a {@code publishers} array to the planner, replacing
+     * the streams of publishers it already has; returns only the feed ids that
+     * were new to it.
+     */
+    public static List<Long> addPublishers(JSONArray publishers, SubscriptionPlanner planner) {
+        List<Long> ids = new ArrayList<>();
+        if (publishers == null) return ids;
+        for (int i = 0; i < publishers.length(); i++) {
+            JSONObject publisher = publishers.optJSONObject(i);
+            if (publisher == null) continue;
+            long feedId = publisher.optLong("id");
+            JSONArray streams = publisher.optJSONArray("streams");
+            List<SubscriptionPlanner.PublishedStream> published = new ArrayList<>();
+            if (streams != null) {
+                for (int j = 0; j < streams.length(); j++) {
+                    JSONObject stream = streams.optJSONObject(j);
+                    if (stream == null || stream.optBoolean("disabled")) continue;
+                    String type = stream.optString("type");
+                    if ("audio".equals(type) || "video".equals(type)) {
+                        published.add(new SubscriptionPlanner.PublishedStream(
+                                stream.optString("mid"), "video".equals(type)));
+                    }
+                }
+            }
+            boolean known = planner.hasPublisher(feedId);
+            planner.addPublisher(feedId, published);
+            if (!known) {
+                ids.add(feedId);
+            }
+        }
+        return ids;
+    }
+
+    /** Parses the {@code streams} array of a subscriber {@code attached}/{@code updated} event. */
+    public static List<SubscriptionPlanner.SubscribedStream> parseSubscriberStreams(JSONArray streams) {
+        List<SubscriptionPlanner.SubscribedStream> result = new ArrayList<>();
+        if (streams == null) return result;
+        for (int i = 0; i < streams.length(); i++) {
+            JSONObject stream = streams.optJSONObject(i);
+            if (stream == null || !stream.optBoolean("active", true) || !stream.has("feed_id")) continue;
+            result.add(new SubscriptionPlanner.SubscribedStream(
+                    stream.optString("mid"),
+                    stream.optLong("feed_id"),
+                    stream.optString("feed_mid"),
+                    "video".equals(stream.optString("type"))));
+        }
+        return result;
+    }
+}
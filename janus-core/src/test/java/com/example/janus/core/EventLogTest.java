@@ -0,0 +1,137 @@
+package com.example.janus.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+    private final List<String> written = new ArrayList<>();
+    private final EventLog.Sink sink = (level, category, message, error) ->
+            written.add(level.name().charAt(0) + "/" + category + ": " + message);
+
+    /** Counts how often it is turned into a string. */
+    private static final class Expensive {
+        int formatted;
+
+        @Override
+        public String toString() {
+            formatted++;
+            return "expensive";
+        }
+    }
+
+    @Test
+    public void format_substitutesPlaceholdersInOrder() {
+        assertEquals("a 1 b null c", EventLog.format("a {} b {} c", 2, 1, null, null));
+        assertEquals("x={} y", EventLog.format("x={} y", 0, 5, null, null));
+        assertEquals("only 1 {}", EventLog.format("only {} {}", 1, 1, 2, null));
+        assertEquals("no placeholders", EventLog.format("no placeholders", 3, 1, 2, 3));
+    }
+
+    @Test
+    public void belowEveryLevel_nothingIsFormattedOrKept() {
+        EventLog log = new EventLog(sink, EventLog.Level.INFO, EventLog.Level.DEBUG, 8);
+        EventLog.Category category = log.category("Signaling");
+        Expensive argument = new Expensive();
+
+        category.verbose("Received: {}", argument);
+
+        assertFalse(category.isLoggable(EventLog.Level.VERBOSE));
+        assertEquals(0, argument.formatted);
+        assertTrue(written.isEmpty());
+        assertTrue(log.recent().isEmpty());
+    }
+
+    @Test
+    public void belowSinkLevel_isKeptInRingUnformatted() {
+        EventLog log = new EventLog(sink, EventLog.Level.INFO, EventLog.Level.DEBUG, 8);
+        EventLog.Category category = log.category("Signaling");
+        Expensive argument = new Expensive();
+
+        category.debug("Sent {}", argument);
+        category.info("Connected");
+
+        assertEquals(0, argument.formatted);
+        assertEquals(Arrays.asList("I/Signaling: Connected"), written);
+        List<String> recent = log.recent();
+        assertEquals(2, recent.size());
+        assertTrue(recent.get(0), recent.get(0).endsWith(" D/Signaling: Sent expensive"));
+        assertTrue(recent.get(1), recent.get(1).endsWith(" I/Signaling: Connected"));
+    }
+
+    @Test
+    public void ring_keepsOnlyTheMostRecentEvents() {
+        EventLog log = new EventLog(sink, EventLog.Level.INFO, EventLog.Level.DEBUG, 3);
+        EventLog.Category category = log.category("Media");
+
+        for (int i = 0; i < 5; i++) {
+            category.debug("event {}", i);
+        }
+        category.error("failed", new IllegalStateException("boom"));
+
+        List<String> recent = log.recent();
+        assertEquals(3, recent.size());
+        assertTrue(recent.get(0), recent.get(0).endsWith("event 3"));
+        assertTrue(recent.get(1), recent.get(1).endsWith("event 4"));
+        assertTrue(recent.get(2), recent.get(2).endsWith(
+                "E/Media: failed (java.lang.IllegalStateException: boom)"));
+    }
+
+    @Test
+    public void sampling_thinsOutVerboseAndDebugOnly() {
+        EventLog log = new EventLog(sink, EventLog.Level.VERBOSE, EventLog.Level.DEBUG, 16);
+        EventLog.Category category = log.category("Stats").setSampleEvery(3);
+
+        for (int i = 0; i < 6; i++) {
+            category.debug("sample {}", i);
+        }
+        category.warn("slow");
+
+        assertEquals(Arrays.asList("D/Stats: sample 0", "D/Stats: sample 3", "W/Stats: slow"), written);
+        assertEquals(7, log.recent().size());
+    }
+
+    @Test
+    public void categories_areSharedByNameAndLeveledSeparately() {
+        EventLog log = new EventLog(sink, EventLog.Level.INFO, EventLog.Level.INFO, 0);
+        assertSame(log.category("A"), log.category("A"));
+
+        log.category("A").setLevel(EventLog.Level.VERBOSE);
+        log.category("A").verbose("{} + {} = {}", 1, 2, 3);
+        log.category("B").debug("hidden");
+
+        assertEquals(Arrays.asList("V/A: 1 + 2 = 3"), written);
+        assertTrue(log.recent().isEmpty());
+    }
+
+    @Test
+    public void errorWithArgument_keepsTheThrowable() {
+        List<Throwable> errors = new ArrayList<>();
+        EventLog log = new EventLog((level, category, message, error) -> {
+            written.add(level.name().charAt(0) + "/" + category + ": " + message);
+            errors.add(error);
+        }, EventLog.Level.INFO, EventLog.Level.INFO, 4);
+        IllegalStateException failure = new IllegalStateException("disk full");
+
+        log.category("Muxer").error("Failed to finalize {}", "call.mp4", failure);
+
+        assertEquals(Arrays.asList("E/Muxer: Failed to finalize call.mp4"), written);
+        assertSame(failure, errors.get(0));
+        assertTrue(log.recent().get(0).endsWith("Failed to finalize call.mp4 (" + failure + ")"));
+    }
+
+    @Test
+    public void janusLoggerAdapter_writesToCategory() {
+        EventLog log = new EventLog(sink, EventLog.Level.DEBUG, EventLog.Level.DEBUG, 4);
+        JanusLogger logger = log.category("Janus").asJanusLogger();
+
+        logger.debug("Session created: {}", 1);
+        logger.error("Error", null);
+
+        assertEquals(Arrays.asList("D/Janus: Session created: 1", "E/Janus: Error"), written);
+    }
+}
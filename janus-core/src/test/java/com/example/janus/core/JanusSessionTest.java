@@ -0,0 +1,308 @@
+package com.example.janus.core;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JanusSessionTest {
+    private final List<JSONObject> sent = new ArrayList<>();
+    private final List<JanusMessage> events = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+    private JanusSession session;
+
+    @Before
+    public void setUp() {
+        session = new JanusSession(message -> sent.add(new JSONObject(message)),
+                new JanusSession.Listener() {
+                    @Override
+                    public void onSessionCreated(long sessionId) {}
+
+                    @Override
+                    public void onEvent(JanusMessage message) {
+                        events.add(message);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        errors.add(error);
+                    }
+                }, JanusLogger.NONE);
+    }
+
+    private JSONObject lastSent() {
+        return sent.get(sent.size() - 1);
+    }
+
+    private void reply(String janus, JSONObject request, long dataId) {
+        JSONObject response = new JSONObject()
+                .put("janus", janus)
+                .put("transaction", request.getString("transaction"))
+                .put("data", new JSONObject().put("id", dataId));
+        session.onMessage(response.toString());
+    }
+
+    private static class RecordingHandleListener implements JanusHandle.Listener {
+        JanusHandle handle;
+        final List<JanusMessage> events = new ArrayList<>();
+        boolean detached;
+
+        @Override
+        public void onAttached(JanusHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void onEvent(JanusMessage message) {
+            events.add(message);
+        }
+
+        @Override
+        public void onDetached() {
+            detached = true;
+        }
+    }
+
+    private static String event(long sender, String event) {
+        return "{\"janus\":\"event\",\"session_id\":11,\"sender\":" + sender + ","
+                + "\"plugindata\":{\"plugin\":\"janus.plugin.videocall\",\"data\":{\"videocall\":\"event\","
+                + "\"result\":{\"event\":\"" + event + "\"}}}}";
+    }
+
+    @Test
+    public void attachBeforeCreate_isQueuedUntilTheSessionExists() {
+        RecordingHandleListener videocall = new RecordingHandleListener();
+
+        session.start();
+        session.attach(JanusMessages.PLUGIN_VIDEOCALL, videocall);
+        assertEquals(1, sent.size());
+        assertEquals("create", lastSent().getString("janus"));
+
+        reply("success", lastSent(), 11);
+        assertEquals(11, session.getSessionId());
+        assertEquals("attach", lastSent().getString("janus"));
+        assertEquals(JanusMessages.PLUGIN_VIDEOCALL, lastSent().getString("plugin"));
+        assertEquals(11, lastSent().getLong("session_id"));
+
+        reply("success", lastSent(), 22);
+        assertNotNull(videocall.handle);
+        assertEquals(22, videocall.handle.getId());
+        assertSame(videocall.handle, session.getHandle(22));
+
+        videocall.handle.sendMessage(JanusMessages.registerBody("alice"), null);
+        JSONObject register = lastSent();
+        assertEquals("message", register.getString("janus"));
+        assertEquals(22, register.getLong("handle_id"));
+        assertEquals("alice", register.getJSONObject("body").getString("username"));
+        assertEquals(0, session.getTransactions().size());
+    }
+
+    @Test
+    public void events_areRoutedToTheHandleNamedBySender() {
+        RecordingHandleListener first = new RecordingHandleListener();
+        RecordingHandleListener second = new RecordingHandleListener();
+        session.start();
+        reply("success", lastSent(), 11);
+        session.attach(JanusMessages.PLUGIN_VIDEOCALL, first);
+        reply("success", lastSent(), 22);
+        session.attach("janus.plugin.videoroom", second);
+        reply("success", lastSent(), 33);
+        events.clear();
+
+        session.onMessage(event(33, "joined"));
+        session.onMessage(event(22, "incomingcall"));
+        session.onMessage(event(44, "unknown"));
+
+        assertEquals(1, first.events.size());
+        assertEquals("incomingcall", first.events.get(0).getPluginEvent());
+        assertEquals(1, second.events.size());
+        assertEquals("joined", second.events.get(0).getPluginEvent());
+        assertEquals(1, events.size());
+        assertEquals(2, session.getHandleCount());
+    }
+
+    @Test
+    public void detach_stopsRoutingAndNotifiesTheHandle() {
+        RecordingHandleListener videocall = new RecordingHandleListener();
+        session.start();
+        reply("success", lastSent(), 11);
+        session.attach(JanusMessages.PLUGIN_VIDEOCALL, videocall);
+        reply("success", lastSent(), 22);
+
+        videocall.handle.detach();
+
+        assertEquals("detach", lastSent().getString("janus"));
+        assertEquals(22, lastSent().getLong("handle_id"));
+        assertTrue(videocall.detached);
+        assertNull(session.getHandle(22));
+        session.onMessage(event(22, "hangup"));
+        assertTrue(videocall.events.isEmpty());
+    }
+
+    @Test
+    public void reset_detachesAllHandles() {
+        RecordingHandleListener videocall = new RecordingHandleListener();
+        session.start();
+        reply("success", lastSent(), 11);
+        session.attach(JanusMessages.PLUGIN_VIDEOCALL, videocall);
+        reply("success", lastSent(), 22);
+
+        session.reset();
+
+        assertTrue(videocall.detached);
+        assertEquals(0, session.getHandleCount());
+        assertFalse(session.isCreated());
+    }
+
+    @Test
+    public void successForUnknownTransaction_doesNotChangeState() {
+        session.start();
+        session.onMessage("{\"janus\":\"success\",\"transaction\":\"other\",\"data\":{\"id\":5}}");
+
+        assertEquals(0, session.getSessionId());
+        assertEquals(1, session.getTransactions().size());
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void errorResponse_isReportedWithCodeAndReason() {
+        session.start();
+        JSONObject create = lastSent();
+        session.onMessage(new JSONObject()
+                .put("janus", "error")
+                .put("transaction", create.getString("transaction"))
+                .put("error", new JSONObject().put("code", 458).put("reason", "No such session"))
+                .toString());
+
+        assertEquals(1, errors.size());
+        assertEquals("Janus error (458): No such session", errors.get(0));
+        assertEquals(0, session.getTransactions().size());
+    }
+
+    @Test
+    public void errorAnsweringTrackedRequest_goesOnlyToItsCallback() {
+        List<String> outcomes = new ArrayList<>();
+        session.getTransactions().track("list", false, new TransactionCallback() {
+            @Override
+            public void onResponse(JanusMessage response) {
+                fail("Unexpected response");
+            }
+
+            @Override
+            public void onError(int code, String reason) {
+                outcomes.add(code + " " + reason);
+            }
+        });
+
+        session.onMessage("{\"janus\":\"error\",\"transaction\":\"list\","
+                + "\"error\":{\"code\":457,\"reason\":\"Missing element\"}}");
+        assertEquals(1, outcomes.size());
+        assertEquals("457 Missing element", outcomes.get(0));
+        assertTrue(errors.isEmpty());
+
+        session.onMessage("{\"janus\":\"error\",\"transaction\":\"list\","
+                + "\"error\":{\"code\":457,\"reason\":\"Missing element\"}}");
+        assertEquals(1, outcomes.size());
+        assertEquals(Collections.singletonList("Janus error (457): Missing element"), errors);
+    }
+
+    @Test
+    public void malformedFrame_isReportedAsParsingError() {
+        session.onMessage("{not json");
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("JSON parsing error"));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void pluginEvent_exposesResultAndJsep() {
+        session.onMessage("{\"janus\":\"event\",\"session_id\":1,\"sender\":2,"
+                + "\"plugindata\":{\"plugin\":\"janus.plugin.videocall\",\"data\":{\"videocall\":\"event\","
+                + "\"result\":{\"event\":\"incomingcall\",\"username\":\"bob\"}}},"
+                + "\"jsep\":{\"type\":\"offer\",\"sdp\":\"v=0\"}}");
+
+        JanusMessage event = events.get(0);
+        assertEquals(JanusMessage.Type.EVENT, event.getType());
+        assertEquals(2, event.getSender());
+        assertEquals("incomingcall", event.getPluginEvent());
+        assertEquals("bob", event.getPluginResult().getString("username"));
+        assertEquals("offer", event.getJsep().getString("type"));
+    }
+
+    @Test
+    public void trackedRequest_completesOnAckOnlyWhenAsked() {
+        TransactionTracker tracker = session.getTransactions();
+        List<String> completed = new ArrayList<>();
+        TransactionCallback callback = new TransactionCallback() {
+            @Override
+            public void onResponse(JanusMessage response) {
+                completed.add(response.getTransaction());
+            }
+
+            @Override
+            public void onError(int code, String reason) {
+                fail("Unexpected error " + code);
+            }
+        };
+        tracker.track("keepalive", true, callback);
+        tracker.track("message", false, callback);
+
+        session.onMessage("{\"janus\":\"ack\",\"transaction\":\"keepalive\"}");
+        session.onMessage("{\"janus\":\"ack\",\"transaction\":\"message\"}");
+        assertEquals(1, completed.size());
+
+        session.onMessage("{\"janus\":\"event\",\"transaction\":\"message\",\"sender\":1}");
+        assertEquals(2, completed.size());
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void claim_keepsRequestsPendingFromTheOldConnection() {
+        session.start();
+        reply("success", lastSent(), 11);
+        List<String> outcomes = new ArrayList<>();
+        session.getTransactions().track("earlier", false, new TransactionCallback() {
+            @Override
+            public void onResponse(JanusMessage response) {
+                outcomes.add("earlier answered");
+            }
+
+            @Override
+            public void onError(int code, String reason) {
+                outcomes.add("earlier " + code);
+            }
+        });
+
+        session.claim(new TransactionCallback() {
+            @Override
+            public void onResponse(JanusMessage response) {
+                outcomes.add("claimed");
+            }
+
+            @Override
+            public void onError(int code, String reason) {
+                outcomes.add("claim " + code);
+            }
+        });
+        JSONObject claim = lastSent();
+        assertEquals("claim", claim.getString("janus"));
+        assertEquals(11, claim.getLong("session_id"));
+        session.onMessage(new JSONObject()
+                .put("janus", "success")
+                .put("transaction", claim.getString("transaction"))
+                .put("session_id", 11)
+                .toString());
+        session.onMessage("{\"janus\":\"event\",\"transaction\":\"earlier\",\"sender\":1}");
+
+        assertEquals(2, outcomes.size());
+        assertEquals("claimed", outcomes.get(0));
+        assertEquals("earlier answered", outcomes.get(1));
+        assertEquals(0, session.getTransactions().size());
+    }
+}
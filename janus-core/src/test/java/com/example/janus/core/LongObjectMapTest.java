@@ -0,0 +1,50 @@
+package com.example.janus.core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongObjectMapTest {
+    @Test
+    public void putGetRemove_matchHashMapUnderRandomOperations() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20000; i++) {
+            long key = 1 + random.nextInt(512);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 1; key <= 512; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void copy_isIndependentOfTheOriginal() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(4521853716523419L, "videocall");
+
+        LongObjectMap<String> copy = map.copy();
+        copy.put(8176335109232741L, "videoroom");
+        copy.remove(4521853716523419L);
+
+        assertEquals("videocall", map.get(4521853716523419L));
+        assertNull(map.get(8176335109232741L));
+        assertEquals(1, copy.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void put_rejectsReservedKey() {
+        new LongObjectMap<String>().put(0, "nope");
+    }
+}
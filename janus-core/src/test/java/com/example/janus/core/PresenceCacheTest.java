@@ -0,0 +1,99 @@
+package com.example.janus.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PresenceCacheTest {
+    private static final long TTL_MS = 30_000;
+
+    @Test
+    public void lookup_isUnknownUntilFirstListAndAfterTtl() {
+        PresenceCache cache = new PresenceCache(TTL_MS, null);
+        assertEquals(PresenceCache.Presence.UNKNOWN, cache.lookup("alice", 0));
+
+        cache.update(Arrays.asList("alice", "bob"), 1000);
+
+        assertEquals(PresenceCache.Presence.ONLINE, cache.lookup("alice", 1000));
+        assertEquals(PresenceCache.Presence.OFFLINE, cache.lookup("carol", 1000));
+        assertEquals(PresenceCache.Presence.UNKNOWN, cache.lookup("alice", 1000 + TTL_MS + 1));
+    }
+
+    @Test
+    public void needsRefresh_afterHalfTheTtl() {
+        PresenceCache cache = new PresenceCache(TTL_MS, null);
+        assertTrue(cache.needsRefresh(0));
+
+        cache.update(Collections.singletonList("alice"), 0);
+
+        assertFalse(cache.needsRefresh(TTL_MS / 2 - 1));
+        assertTrue(cache.needsRefresh(TTL_MS / 2));
+    }
+
+    @Test
+    public void update_reportsOnlyTheDifference() {
+        List<String> changes = new ArrayList<>();
+        PresenceCache cache = new PresenceCache(TTL_MS, (Set<String> cameOnline, Set<String> wentOffline) ->
+                changes.add("+" + cameOnline + " -" + wentOffline));
+
+        cache.update(Arrays.asList("alice", "bob"), 0);
+        cache.update(Arrays.asList("alice", "bob"), 1);
+        cache.update(Arrays.asList("alice", "carol"), 2);
+
+        assertEquals(Collections.singletonList("+[carol] -[bob]"), changes);
+    }
+
+    @Test
+    public void observe_overridesSnapshotUntilNextUpdate() {
+        PresenceCache cache = new PresenceCache(TTL_MS, null);
+        cache.update(Collections.singletonList("alice"), 0);
+
+        cache.observe("alice", false, 0);
+        cache.observe("dave", true, 0);
+
+        assertEquals(PresenceCache.Presence.OFFLINE, cache.lookup("alice", 0));
+        assertEquals(PresenceCache.Presence.ONLINE, cache.lookup("dave", TTL_MS));
+
+        cache.update(Collections.singletonList("alice"), 1);
+
+        assertEquals(PresenceCache.Presence.ONLINE, cache.lookup("alice", 1));
+        assertEquals(PresenceCache.Presence.OFFLINE, cache.lookup("dave", 1));
+    }
+
+    @Test
+    public void observe_expiresAfterTtlWithoutUpdate() {
+        PresenceCache cache = new PresenceCache(TTL_MS, null);
+        cache.update(Collections.singletonList("alice"), 0);
+        cache.observe("alice", false, 0);
+        cache.observe("dave", true, 0);
+
+        assertEquals(PresenceCache.Presence.OFFLINE, cache.lookup("alice", TTL_MS));
+        assertEquals(Collections.singletonList("dave"), cache.search("d", 5, TTL_MS));
+
+        assertEquals(PresenceCache.Presence.UNKNOWN, cache.lookup("alice", TTL_MS + 1));
+        assertTrue(cache.search("d", 5, TTL_MS + 1).isEmpty());
+    }
+
+    @Test
+    public void search_returnsSortedPrefixMatchesUpToLimit() {
+        PresenceCache cache = new PresenceCache(TTL_MS, null);
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            users.add("user" + i);
+        }
+        users.add("alice");
+        cache.update(users, 0);
+        cache.observe("user10", false, 0);
+        cache.observe("user1zz", true, 0);
+
+        assertEquals(Arrays.asList("user1", "user100", "user1000"), cache.search("user1", 3, 0));
+        assertEquals(Collections.singletonList("user1zz"), cache.search("user1z", 5, 0));
+        assertEquals(Collections.singletonList("alice"), cache.search("a", 5, 0));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.janus.core;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SignalingRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordAndRead_roundTripsFramesInOrder() throws Exception {
+        File file = folder.newFile("call.jsrl");
+        String create = "{\"janus\":\"create\"}";
+        String success = "{\"janus\":\"success\",\"reason\":\"h\u00e9llo \u2713\"}";
+        try (SignalingRecorder recorder = SignalingRecorder.open(file, 64 * 1024)) {
+            assertTrue(recorder.record(SignalingRecorder.OUTBOUND, create));
+            assertTrue(recorder.record(SignalingRecorder.INBOUND, success));
+            assertEquals(2, recorder.getFrameCount());
+        }
+
+        SignalingRecording recording = SignalingRecording.read(file);
+        List<SignalingRecording.Frame> frames = recording.getFrames();
+        assertEquals(2, frames.size());
+        assertFalse(frames.get(0).isInbound());
+        assertTrue(frames.get(1).isInbound());
+        assertEquals(success, frames.get(1).getMessage());
+        assertTrue(frames.get(1).getTimestampNanos() >= frames.get(0).getTimestampNanos());
+        assertEquals(SignalingRecorder.HEADER_SIZE + 2 * SignalingRecorder.RECORD_HEADER_SIZE
+                + create.getBytes(StandardCharsets.UTF_8).length + success.getBytes(StandardCharsets.UTF_8).length,
+                file.length());
+    }
+
+    @Test
+    public void fullRecorder_dropsFramesAndKeepsTheHead() throws Exception {
+        File file = folder.newFile("full.jsrl");
+        String frame = "{\"janus\":\"ack\",\"transaction\":\"txn-1\"}";
+        int maxBytes = SignalingRecorder.HEADER_SIZE + 3 * (SignalingRecorder.RECORD_HEADER_SIZE + frame.length()) + 5;
+        try (SignalingRecorder recorder = SignalingRecorder.open(file, maxBytes)) {
+            for (int i = 0; i < 5; i++) {
+                recorder.record(SignalingRecorder.INBOUND, frame);
+            }
+            assertEquals(3, recorder.getFrameCount());
+            assertEquals(2, recorder.getDroppedCount());
+        }
+
+        assertEquals(3, SignalingRecording.read(file).getFrames().size());
+    }
+
+    @Test
+    public void replay_feedsOnlyInboundFramesThroughTheSession() throws Exception {
+        File file = folder.newFile("session.jsrl");
+        SignalingRecorder recorder = SignalingRecorder.open(file, 64 * 1024);
+        JanusSession recorded = new JanusSession(message -> {}, listener(new ArrayList<>()),
+                JanusLogger.NONE);
+        recorded.setRecorder(recorder);
+        recorded.start();
+        recorded.onMessage("{\"janus\":\"webrtcup\",\"sender\":7}");
+        recorded.onMessage("{\"janus\":\"hangup\",\"sender\":7,\"reason\":\"Remote hangup\"}");
+        recorder.close();
+
+        List<JanusMessage> events = new ArrayList<>();
+        JanusSession replayed = new JanusSession(message -> fail("Replay sent " + message),
+                listener(events), JanusLogger.NONE);
+        SignalingReplayer.Result result = new SignalingReplayer(0)
+                .replay(SignalingRecording.read(file), replayed::onMessage);
+
+        assertEquals(2, result.getFramesReplayed());
+        assertEquals(JanusMessage.Type.WEBRTCUP, events.get(0).getType());
+        assertEquals(JanusMessage.Type.HANGUP, events.get(1).getType());
+    }
+
+    @Test
+    public void replayThroughSession_attachesTheRecordedHandles() throws Exception {
+        File file = folder.newFile("attached.jsrl");
+        SignalingRecorder recorder = SignalingRecorder.open(file, 64 * 1024);
+        List<String> sent = new ArrayList<>();
+        JanusSession recorded = new JanusSession(sent::add, listener(new ArrayList<>()), JanusLogger.NONE);
+        recorded.setRecorder(recorder);
+        recorded.start();
+        recorded.onMessage(success(sent.get(0), 11));
+        recorded.attach(JanusMessages.PLUGIN_VIDEOCALL, handleListener(new ArrayList<>(), new ArrayList<>()));
+        recorded.onMessage(success(sent.get(1), 22));
+        recorded.onMessage("{\"janus\":\"webrtcup\",\"session_id\":11,\"sender\":22}");
+        recorder.close();
+
+        List<JanusHandle> attached = new ArrayList<>();
+        List<JanusMessage> handleEvents = new ArrayList<>();
+        JanusSession replayed = new JanusSession(message -> fail("Replay sent " + message),
+                listener(new ArrayList<>()), JanusLogger.NONE);
+        SignalingReplayer.Result result = new SignalingReplayer(0).replay(SignalingRecording.read(file),
+                replayed, plugin -> handleListener(attached, handleEvents));
+
+        assertEquals(3, result.getFramesReplayed());
+        assertEquals(11, replayed.getSessionId());
+        assertEquals(1, attached.size());
+        assertEquals(22, attached.get(0).getId());
+        assertEquals(JanusMessages.PLUGIN_VIDEOCALL, attached.get(0).getPlugin());
+        assertEquals(1, handleEvents.size());
+        assertEquals(JanusMessage.Type.WEBRTCUP, handleEvents.get(0).getType());
+        assertEquals(0, replayed.getTransactions().size());
+    }
+
+    private static String success(String request, long id) {
+        return new JSONObject()
+                .put("janus", "success")
+                .put("transaction", new JSONObject(request).getString("transaction"))
+                .put("data", new JSONObject().put("id", id))
+                .toString();
+    }
+
+    private static JanusHandle.Listener handleListener(List<JanusHandle> attached, List<JanusMessage> events) {
+        return new JanusHandle.Listener() {
+            @Override
+            public void onAttached(JanusHandle handle) {
+                attached.add(handle);
+            }
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                events.add(message);
+            }
+
+            @Override
+            public void onDetached() {}
+        };
+    }
+
+    private static JanusSession.Listener listener(List<JanusMessage> events) {
+        return new JanusSession.Listener() {
+            @Override
+            public void onSessionCreated(long sessionId) {}
+
+            @Override
+            public void onEvent(JanusMessage message) {
+                events.add(message);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        };
+    }
+}
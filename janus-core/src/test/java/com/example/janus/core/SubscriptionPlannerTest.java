@@ -0,0 +1,143 @@
+package com.example.janus.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SubscriptionPlannerTest {
+    private SubscriptionPlanner planner;
+
+    @Before
+    public void setUp() {
+        planner = new SubscriptionPlanner();
+        for (long feed = 1; feed <= 20; feed++) {
+            planner.addPublisher(feed, Arrays.asList(
+                    new SubscriptionPlanner.PublishedStream("0", false),
+                    new SubscriptionPlanner.PublishedStream("1", true)));
+        }
+    }
+
+    /** Pretends Janus applied the plan, assigning subscriber mids in order. */
+    private void apply(SubscriptionPlanner.Plan plan) {
+        List<SubscriptionPlanner.SubscribedStream> streams = new ArrayList<>();
+        int mid = 0;
+        for (long feed = 1; feed <= 20; feed++) {
+            for (String feedMid : new String[]{"0", "1"}) {
+                SubscriptionPlanner.StreamRef ref = new SubscriptionPlanner.StreamRef(feed, feedMid);
+                boolean wasSubscribed = false;
+                for (int i = 0; i < 64 && !wasSubscribed; i++) {
+                    SubscriptionPlanner.SubscribedStream existing = planner.getSubscribedStream(String.valueOf(i));
+                    wasSubscribed = existing != null && existing.getFeedId() == feed
+                            && existing.isVideo() == feedMid.equals("1");
+                }
+                boolean keep = (wasSubscribed && !plan.getUnsubscribe().contains(ref)) || plan.getSubscribe().contains(ref);
+                if (keep) {
+                    streams.add(new SubscriptionPlanner.SubscribedStream(String.valueOf(mid++), feed, feedMid,
+                            feedMid.equals("1")));
+                }
+            }
+        }
+        planner.onSubscriberStreams(streams);
+    }
+
+    private static int videoCount(List<SubscriptionPlanner.StreamRef> refs) {
+        int count = 0;
+        for (SubscriptionPlanner.StreamRef ref : refs) {
+            if (ref.getMid().equals("1")) count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void plan_subscribesAllAudioButOnlyVisibleVideo() {
+        planner.setVisible(3, SimulcastLayer.HIGH);
+        planner.setVisible(7, SimulcastLayer.LOW);
+
+        SubscriptionPlanner.Plan plan = planner.plan();
+
+        assertEquals(22, plan.getSubscribe().size());
+        assertEquals(2, videoCount(plan.getSubscribe()));
+        assertTrue(plan.getSubscribe().contains(new SubscriptionPlanner.StreamRef(3, "1")));
+        assertTrue(plan.getSubscribe().contains(new SubscriptionPlanner.StreamRef(7, "1")));
+        assertTrue(plan.getUnsubscribe().isEmpty());
+    }
+
+    @Test
+    public void scrollingAway_unsubscribesVideoAndKeepsAudio() {
+        planner.setVisible(3, SimulcastLayer.HIGH);
+        apply(planner.plan());
+
+        planner.setVisible(3, null);
+        planner.setVisible(4, SimulcastLayer.LOW);
+        SubscriptionPlanner.Plan plan = planner.plan();
+
+        assertEquals(Arrays.asList(new SubscriptionPlanner.StreamRef(4, "1")), plan.getSubscribe());
+        assertEquals(Arrays.asList(new SubscriptionPlanner.StreamRef(3, "1")), plan.getUnsubscribe());
+    }
+
+    @Test
+    public void layers_areRequestedOnceAndAgainOnlyWhenTheViewChangesSize() {
+        planner.setVisible(3, SimulcastLayer.LOW);
+        apply(planner.plan());
+
+        SubscriptionPlanner.Plan plan = planner.plan();
+        assertFalse(plan.hasStreamChanges());
+        assertEquals(1, plan.getLayerChanges().size());
+        assertEquals(SimulcastLayer.LOW, plan.getLayerChanges().values().iterator().next());
+        planner.markLayersApplied(plan);
+        assertTrue(planner.plan().isEmpty());
+
+        planner.setVisible(3, SimulcastLayer.HIGH);
+        plan = planner.plan();
+        assertEquals(SimulcastLayer.HIGH, plan.getLayerChanges().values().iterator().next());
+    }
+
+    @Test
+    public void removedPublisher_isUnsubscribedEntirely() {
+        planner.setVisible(5, SimulcastLayer.MEDIUM);
+        apply(planner.plan());
+
+        planner.removePublisher(5);
+        SubscriptionPlanner.Plan plan = planner.plan();
+
+        assertTrue(plan.getSubscribe().isEmpty());
+        assertEquals(2, plan.getUnsubscribe().size());
+    }
+
+    @Test
+    public void messages_parsePublishersAndSubscriberStreams() {
+        SubscriptionPlanner fresh = new SubscriptionPlanner();
+        JSONArray publishers = new JSONArray().put(new JSONObject()
+                .put("id", 99)
+                .put("display", "carol")
+                .put("streams", new JSONArray()
+                        .put(new JSONObject().put("type", "audio").put("mid", "0"))
+                        .put(new JSONObject().put("type", "video").put("mid", "1"))
+                        .put(new JSONObject().put("type", "data").put("mid", "2"))));
+
+        assertEquals(Arrays.asList(99L), VideoRoomMessages.addPublishers(publishers, fresh));
+        assertTrue(VideoRoomMessages.addPublishers(publishers, fresh).isEmpty());
+        assertEquals(1, fresh.plan().getSubscribe().size());
+
+        fresh.onSubscriberStreams(VideoRoomMessages.parseSubscriberStreams(new JSONArray()
+                .put(new JSONObject().put("type", "audio").put("mid", "0").put("feed_id", 99).put("feed_mid", "0"))
+                .put(new JSONObject().put("type", "video").put("mid", "1").put("active", false))));
+        assertTrue(fresh.plan().isEmpty());
+        assertEquals(99, fresh.getSubscribedStream("0").getFeedId());
+
+        JSONObject update = VideoRoomMessages.update(new SubscriptionPlanner.Plan(
+                Arrays.asList(new SubscriptionPlanner.StreamRef(99, "1")),
+                new ArrayList<SubscriptionPlanner.StreamRef>(),
+                new java.util.HashMap<String, SimulcastLayer>()));
+        assertEquals("update", update.getString("request"));
+        assertEquals(99, update.getJSONArray("subscribe").getJSONObject(0).getLong("feed"));
+        assertFalse(update.has("unsubscribe"));
+    }
+}
@@ -0,0 +1,688 @@
+package com.example.janus.fakeserver;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
+import org.java_websocket.server.WebSocketServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for a Janus gateway that speaks just enough of the
+ * WebSocket API and the {@code janus.plugin.videocall} plugin to drive
+ * {@code JanusWebSocketClient} without the production server.
+ *
+ * <p>Outbound frames can be delayed, dropped or replaced by errors so tests can
+ * exercise slow and lossy signaling deterministically (all randomness comes
+ * from a single seeded {@link Random}).
+ */
+public class FakeJanusServer extends WebSocketServer {
+    public static final String PLUGIN_VIDEOCALL = "janus.plugin.videocall";
+
+    private static final int ERROR_NO_SUCH_SESSION = 458;
+    private static final int ERROR_NO_SUCH_HANDLE = 459;
+    private static final int ERROR_UNKNOWN_REQUEST = 453;
+    private static final int ERROR_PLUGIN_NOT_FOUND = 460;
+    private static final int ERROR_INJECTED = 490;
+    private static final int VIDEOCALL_ERROR_INVALID_REQUEST = 472;
+    private static final int VIDEOCALL_ERROR_USERNAME_TAKEN = 476;
+    private static final int VIDEOCALL_ERROR_NO_SUCH_USERNAME = 478;
+    private static final int VIDEOCALL_ERROR_ALREADY_IN_CALL = 480;
+    private static final int VIDEOCALL_ERROR_NO_CALL = 481;
+
+    private final long minLatencyMs;
+    private final long maxLatencyMs;
+    private final double lossRate;
+    private final double errorRate;
+    private final long sessionTimeoutMs;
+    private final Random random;
+    private final ScheduledExecutorService scheduler;
+    private final CountDownLatch startedLatch = new CountDownLatch(1);
+    // Set once shutdown begins; closing connections then neither orphan sessions nor schedule frames.
+    private volatile boolean stopping;
+
+    private final Map<Long, Session> sessions = new HashMap<>();
+    private final Map<Long, Handle> handles = new HashMap<>();
+    private final Map<String, Handle> usersByName = new HashMap<>();
+    private final Map<WebSocket, Long> lastDeliveryByConnection = new HashMap<>();
+    private long nextId = 1;
+
+    private final AtomicLong requestsReceived = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong errorsInjected = new AtomicLong();
+
+    private static class Session {
+        final long id;
+        // Null while orphaned: its connection closed and nobody has claimed it yet.
+        WebSocket connection;
+        final Map<Long, Handle> handles = new HashMap<>();
+
+        Session(long id, WebSocket connection) {
+            this.id = id;
+            this.connection = connection;
+        }
+    }
+
+    private static class Handle {
+        final long id;
+        final Session session;
+        String username;
+        Handle peer;
+        int trickleCount;
+        boolean audioActive = true;
+        boolean videoActive = true;
+
+        Handle(long id, Session session) {
+            this.id = id;
+            this.session = session;
+        }
+    }
+
+    public static class Builder {
+        private int port;
+        private long minLatencyMs;
+        private long maxLatencyMs;
+        private double lossRate;
+        private double errorRate;
+        private long sessionTimeoutMs;
+        private long seed = 42;
+
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder setLatency(long minMs, long maxMs) {
+            if (minMs < 0 || maxMs < minMs) {
+                throw new IllegalArgumentException("Invalid latency range: " + minMs + ".." + maxMs);
+            }
+            this.minLatencyMs = minMs;
+            this.maxLatencyMs = maxMs;
+            return this;
+        }
+
+        public Builder setLossRate(double lossRate) {
+            this.lossRate = checkRate(lossRate);
+            return this;
+        }
+
+        public Builder setErrorRate(double errorRate) {
+            this.errorRate = checkRate(errorRate);
+            return this;
+        }
+
+        /**
+         * Keeps a session for {@code timeoutMs} after its connection closes so
+         * another connection can {@code claim} it, like the gateway's session
+         * timeout. The default of 0 destroys sessions with their connection.
+         */
+        public Builder setSessionTimeout(long timeoutMs) {
+            if (timeoutMs < 0) {
+                throw new IllegalArgumentException("Invalid session timeout: " + timeoutMs);
+            }
+            this.sessionTimeoutMs = timeoutMs;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public FakeJanusServer build() {
+            return new FakeJanusServer(this);
+        }
+
+        private static double checkRate(double rate) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("Rate must be within [0, 1]: " + rate);
+            }
+            return rate;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private FakeJanusServer(Builder builder) {
+        super(new InetSocketAddress(builder.port), Collections.<Draft>singletonList(createDraft()));
+        this.minLatencyMs = builder.minLatencyMs;
+        this.maxLatencyMs = builder.maxLatencyMs;
+        this.lossRate = builder.lossRate;
+        this.errorRate = builder.errorRate;
+        this.sessionTimeoutMs = builder.sessionTimeoutMs;
+        this.random = new Random(builder.seed);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "FakeJanusServer-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        setReuseAddr(true);
+    }
+
+    private static Draft createDraft() {
+        return new Draft_6455(Collections.<IExtension>emptyList(),
+                Arrays.<IProtocol>asList(new Protocol("janus-protocol"), new Protocol("")));
+    }
+
+    /**
+     * Starts the server and blocks until it is accepting connections, so that
+     * {@link #getPort()} reports the bound port even when built with port 0.
+     */
+    public void startAndWait(long timeout, TimeUnit unit) throws InterruptedException {
+        start();
+        if (!startedLatch.await(timeout, unit)) {
+            throw new IllegalStateException("FakeJanusServer did not start within " + timeout + " " + unit);
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        stop(1000);
+        scheduler.shutdownNow();
+    }
+
+    public long getRequestsReceived() {
+        return requestsReceived.get();
+    }
+
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    public long getErrorsInjected() {
+        return errorsInjected.get();
+    }
+
+    public synchronized int getRegisteredUserCount() {
+        return usersByName.size();
+    }
+
+    public synchronized int getTrickleCount(String username) {
+        Handle handle = usersByName.get(username);
+        return handle != null ? handle.trickleCount : 0;
+    }
+
+    /** Whether the plugin would relay {@code username}'s video, as last changed by a {@code set} request. */
+    public synchronized boolean isVideoRelayed(String username) {
+        Handle handle = usersByName.get(username);
+        return handle != null && handle.videoActive;
+    }
+
+    @Override
+    public void onStart() {
+        startedLatch.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+    }
+
+    @Override
+    public synchronized void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            Session session = it.next();
+            if (session.connection != conn) {
+                continue;
+            }
+            if (stopping) {
+                it.remove();
+                continue;
+            }
+            if (sessionTimeoutMs > 0) {
+                session.connection = null;
+                scheduler.schedule(() -> expire(session), sessionTimeoutMs, TimeUnit.MILLISECONDS);
+                continue;
+            }
+            for (Handle handle : session.handles.values()) {
+                detach(handle, "Connection closed");
+            }
+            it.remove();
+        }
+        lastDeliveryByConnection.remove(conn);
+    }
+
+    private synchronized void expire(Session session) {
+        if (session.connection != null || sessions.get(session.id) != session) {
+            return;
+        }
+        for (Handle handle : session.handles.values()) {
+            detach(handle, "Session timed out");
+        }
+        sessions.remove(session.id);
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        System.err.println("FakeJanusServer error: " + ex);
+    }
+
+    @Override
+    public synchronized void onMessage(WebSocket conn, String message) {
+        requestsReceived.incrementAndGet();
+        JSONObject request;
+        try {
+            request = new JSONObject(message);
+        } catch (JSONException e) {
+            sendError(conn, null, null, ERROR_UNKNOWN_REQUEST, "Invalid JSON: " + e.getMessage());
+            return;
+        }
+
+        String janus = request.optString("janus");
+        String transaction = request.optString("transaction", null);
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            errorsInjected.incrementAndGet();
+            sendError(conn, request, transaction, ERROR_INJECTED, "Injected error for '" + janus + "'");
+            return;
+        }
+
+        switch (janus) {
+            case "create":
+                handleCreate(conn, transaction);
+                break;
+            case "attach":
+                handleAttach(conn, request, transaction);
+                break;
+            case "message":
+                handleMessage(conn, request, transaction);
+                break;
+            case "trickle":
+                handleTrickle(conn, request, transaction);
+                break;
+            case "claim":
+                handleClaim(conn, request, transaction);
+                break;
+            case "keepalive":
+                handleKeepalive(conn, request, transaction);
+                break;
+            case "detach":
+                handleDetach(conn, request, transaction);
+                break;
+            case "destroy":
+                handleDestroy(conn, request, transaction);
+                break;
+            default:
+                sendError(conn, request, transaction, ERROR_UNKNOWN_REQUEST, "Unknown request '" + janus + "'");
+        }
+    }
+
+    private void handleCreate(WebSocket conn, String transaction) {
+        Session session = new Session(nextId++, conn);
+        sessions.put(session.id, session);
+
+        JSONObject success = janus("success", transaction);
+        success.put("data", new JSONObject().put("id", session.id));
+        deliver(conn, success);
+    }
+
+    private void handleAttach(WebSocket conn, JSONObject request, String transaction) {
+        Session session = findSession(conn, request, transaction);
+        if (session == null) return;
+
+        String plugin = request.optString("plugin");
+        if (!PLUGIN_VIDEOCALL.equals(plugin)) {
+            sendError(conn, request, transaction, ERROR_PLUGIN_NOT_FOUND, "No such plugin '" + plugin + "'");
+            return;
+        }
+
+        Handle handle = new Handle(nextId++, session);
+        session.handles.put(handle.id, handle);
+        handles.put(handle.id, handle);
+
+        JSONObject success = janus("success", transaction);
+        success.put("session_id", session.id);
+        success.put("data", new JSONObject().put("id", handle.id));
+        deliver(conn, success);
+    }
+
+    private void handleClaim(WebSocket conn, JSONObject request, String transaction) {
+        Session session = sessions.get(request.optLong("session_id"));
+        if (session == null) {
+            sendError(conn, request, transaction, ERROR_NO_SUCH_SESSION,
+                    "No such session " + request.optLong("session_id"));
+            return;
+        }
+        session.connection = conn;
+        deliver(conn, janus("success", transaction).put("session_id", session.id));
+    }
+
+    private void handleKeepalive(WebSocket conn, JSONObject request, String transaction) {
+        Session session = findSession(conn, request, transaction);
+        if (session == null) return;
+        deliver(conn, janus("ack", transaction).put("session_id", session.id));
+    }
+
+    private void handleTrickle(WebSocket conn, JSONObject request, String transaction) {
+        Handle handle = findHandle(conn, request, transaction);
+        if (handle == null) return;
+        handle.trickleCount++;
+        deliver(conn, janus("ack", transaction).put("session_id", handle.session.id));
+    }
+
+    private void handleDetach(WebSocket conn, JSONObject request, String transaction) {
+        Handle handle = findHandle(conn, request, transaction);
+        if (handle == null) return;
+        detach(handle, "Detached");
+        handle.session.handles.remove(handle.id);
+        deliver(conn, janus("success", transaction).put("session_id", handle.session.id));
+    }
+
+    private void handleDestroy(WebSocket conn, JSONObject request, String transaction) {
+        Session session = findSession(conn, request, transaction);
+        if (session == null) return;
+        for (Handle handle : session.handles.values()) {
+            detach(handle, "Session destroyed");
+        }
+        sessions.remove(session.id);
+        deliver(conn, janus("success", transaction).put("session_id", session.id));
+    }
+
+    private void handleMessage(WebSocket conn, JSONObject request, String transaction) {
+        Handle handle = findHandle(conn, request, transaction);
+        if (handle == null) return;
+
+        JSONObject body = request.optJSONObject("body");
+        JSONObject jsep = request.optJSONObject("jsep");
+        deliver(conn, janus("ack", transaction).put("session_id", handle.session.id));
+
+        String videocallRequest = body != null ? body.optString("request") : "";
+        switch (videocallRequest) {
+            case "register":
+                handleRegister(handle, body, transaction);
+                break;
+            case "call":
+                handleCall(handle, body, jsep, transaction);
+                break;
+            case "accept":
+                handleAccept(handle, jsep, transaction);
+                break;
+            case "hangup":
+                handleHangup(handle, transaction);
+                break;
+            case "set":
+                handleSet(handle, body, jsep, transaction);
+                break;
+            case "list":
+                handleList(handle, transaction);
+                break;
+            default:
+                sendPluginError(handle, transaction, VIDEOCALL_ERROR_INVALID_REQUEST,
+                        "Unknown request '" + videocallRequest + "'");
+        }
+    }
+
+    private void handleRegister(Handle handle, JSONObject body, String transaction) {
+        String username = body.optString("username");
+        if (username.isEmpty()) {
+            sendPluginError(handle, transaction, VIDEOCALL_ERROR_INVALID_REQUEST, "Missing element (username)");
+            return;
+        }
+        if (handle.username != null || usersByName.containsKey(username)) {
+            sendPluginError(handle, transaction, VIDEOCALL_ERROR_USERNAME_TAKEN,
+                    "Username '" + username + "' already taken");
+            return;
+        }
+        handle.username = username;
+        usersByName.put(username, handle);
+        sendPluginEvent(handle, transaction, result("registered").put("username", username), null);
+    }
+
+    private void handleCall(Handle handle, JSONObject body, JSONObject jsep, String transaction) {
+        String peerName = body.optString("username");
+        Handle peer = usersByName.get(peerName);
+        if (peer == null) {
+            sendPluginError(handle, transaction, VIDEOCALL_ERROR_NO_SUCH_USERNAME,
+                    "Username '" + peerName + "' doesn't exist");
+            return;
+        }
+        if (handle.peer != null || peer.peer != null) {
+            sendPluginError(handle, transaction, VIDEOCALL_ERROR_ALREADY_IN_CALL, "User is busy");
+            return;
+        }
+        if (jsep == null) {
+            sendPluginError(handle, transaction, VIDEOCALL_ERROR_INVALID_REQUEST, "Missing SDP");
+            return;
+        }
+        handle.peer = peer;
+        peer.peer = handle;
+        sendPluginEvent(handle, transaction, result("calling"), null);
+        sendPluginEvent(peer, null, result("incomingcall").put("username", handle.username), jsep);
+    }
+
+    private void handleAccept(Handle handle, JSONObject jsep, String transaction) {
+        Handle peer = handle.peer;
+        if (peer == null) {
+            sendPluginError(handle, transaction, VIDEOCALL_ERROR_NO_CALL, "No incoming call to accept");
+            return;
+        }
+        if (jsep == null) {
+            sendPluginError(handle, transaction, VIDEOCALL_ERROR_INVALID_REQUEST, "Missing SDP");
+            return;
+        }
+        sendPluginEvent(handle, transaction, result("accepted"), null);
+        sendPluginEvent(peer, null, result("accepted").put("username", handle.username), jsep);
+        sendWebrtcUp(handle);
+        sendWebrtcUp(peer);
+    }
+
+    private void handleSet(Handle handle, JSONObject body, JSONObject jsep, String transaction) {
+        if (body.has("audio")) {
+            handle.audioActive = body.optBoolean("audio");
+        }
+        if (body.has("video")) {
+            handle.videoActive = body.optBoolean("video");
+        }
+        sendPluginEvent(handle, transaction, result("set"), null);
+        if (jsep != null && handle.peer != null) {
+            // Renegotiation, e.g. an ICE restart: the plugin relays the SDP as-is.
+            sendPluginEvent(handle.peer, null, result("update"), jsep);
+        }
+    }
+
+    private void handleList(Handle handle, String transaction) {
+        JSONArray list = new JSONArray();
+        for (String username : usersByName.keySet()) {
+            list.put(username);
+        }
+        sendPluginEvent(handle, transaction, new JSONObject().put("list", list), null);
+    }
+
+    private void handleHangup(Handle handle, String transaction) {
+        if (handle.peer == null) {
+            sendPluginEvent(handle, transaction,
+                    result("hangup").put("username", handle.username).put("reason", "No call"), null);
+            return;
+        }
+        hangup(handle, "We did the hangup", transaction);
+    }
+
+    private void hangup(Handle handle, String reason, String transaction) {
+        Handle peer = handle.peer;
+        handle.peer = null;
+        sendPluginEvent(handle, transaction,
+                result("hangup").put("username", handle.username).put("reason", reason), null);
+        sendJanusHangup(handle, reason);
+        if (peer != null) {
+            peer.peer = null;
+            sendPluginEvent(peer, null,
+                    result("hangup").put("username", handle.username).put("reason", "Remote hangup"), null);
+            sendJanusHangup(peer, "Remote hangup");
+        }
+    }
+
+    private void detach(Handle handle, String reason) {
+        if (handle.peer != null) {
+            Handle peer = handle.peer;
+            handle.peer = null;
+            peer.peer = null;
+            sendPluginEvent(peer, null,
+                    result("hangup").put("username", handle.username).put("reason", reason), null);
+            sendJanusHangup(peer, reason);
+        }
+        if (handle.username != null) {
+            usersByName.remove(handle.username);
+        }
+        handles.remove(handle.id);
+    }
+
+    private Session findSession(WebSocket conn, JSONObject request, String transaction) {
+        Session session = sessions.get(request.optLong("session_id"));
+        if (session == null || session.connection != conn) {
+            sendError(conn, request, transaction, ERROR_NO_SUCH_SESSION,
+                    "No such session " + request.optLong("session_id"));
+            return null;
+        }
+        return session;
+    }
+
+    private Handle findHandle(WebSocket conn, JSONObject request, String transaction) {
+        Session session = findSession(conn, request, transaction);
+        if (session == null) return null;
+        Handle handle = session.handles.get(request.optLong("handle_id"));
+        if (handle == null) {
+            sendError(conn, request, transaction, ERROR_NO_SUCH_HANDLE,
+                    "No such handle " + request.optLong("handle_id") + " in session " + session.id);
+            return null;
+        }
+        return handle;
+    }
+
+    private static JSONObject janus(String type, String transaction) {
+        JSONObject json = new JSONObject();
+        json.put("janus", type);
+        if (transaction != null) {
+            json.put("transaction", transaction);
+        }
+        return json;
+    }
+
+    private static JSONObject result(String event) {
+        return new JSONObject().put("event", event);
+    }
+
+    private void sendPluginEvent(Handle handle, String transaction, JSONObject result, JSONObject jsep) {
+        JSONObject data = new JSONObject();
+        data.put("videocall", "event");
+        data.put("result", result);
+        sendPluginData(handle, transaction, data, jsep);
+    }
+
+    private void sendPluginError(Handle handle, String transaction, int code, String reason) {
+        JSONObject data = new JSONObject();
+        data.put("videocall", "event");
+        data.put("error_code", code);
+        data.put("error", reason);
+        sendPluginData(handle, transaction, data, null);
+    }
+
+    private void sendPluginData(Handle handle, String transaction, JSONObject data, JSONObject jsep) {
+        JSONObject event = janus("event", transaction);
+        event.put("session_id", handle.session.id);
+        event.put("sender", handle.id);
+        event.put("plugindata", new JSONObject().put("plugin", PLUGIN_VIDEOCALL).put("data", data));
+        if (jsep != null) {
+            event.put("jsep", jsep);
+        }
+        deliver(handle.session.connection, event);
+    }
+
+    private void sendWebrtcUp(Handle handle) {
+        JSONObject webrtcup = janus("webrtcup", null);
+        webrtcup.put("session_id", handle.session.id);
+        webrtcup.put("sender", handle.id);
+        deliver(handle.session.connection, webrtcup);
+    }
+
+    private void sendJanusHangup(Handle handle, String reason) {
+        JSONObject hangup = janus("hangup", null);
+        hangup.put("session_id", handle.session.id);
+        hangup.put("sender", handle.id);
+        hangup.put("reason", reason);
+        deliver(handle.session.connection, hangup);
+    }
+
+    private void sendError(WebSocket conn, JSONObject request, String transaction, int code, String reason) {
+        JSONObject error = janus("error", transaction);
+        if (request != null && request.has("session_id")) {
+            error.put("session_id", request.optLong("session_id"));
+        }
+        error.put("error", new JSONObject().put("code", code).put("reason", reason));
+        deliver(conn, error);
+    }
+
+    /**
+     * Queues a frame for delivery after the configured latency. Delivery times
+     * never go backwards for a connection, so frames stay in order the same way
+     * they would on a real WebSocket.
+     */
+    private void deliver(WebSocket conn, JSONObject frame) {
+        if (conn == null || stopping) {
+            return;
+        }
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            framesDropped.incrementAndGet();
+            return;
+        }
+
+        String payload = frame.toString();
+        long delay = minLatencyMs;
+        if (maxLatencyMs > minLatencyMs) {
+            delay += (long) (random.nextDouble() * (maxLatencyMs - minLatencyMs));
+        }
+        if (maxLatencyMs == 0) {
+            send(conn, payload);
+            return;
+        }
+
+        long now = System.nanoTime();
+        Long previous = lastDeliveryByConnection.get(conn);
+        long deliverAt = Math.max(now + TimeUnit.MILLISECONDS.toNanos(delay), previous != null ? previous : 0);
+        lastDeliveryByConnection.put(conn, deliverAt);
+        scheduler.schedule(() -> send(conn, payload), deliverAt - now, TimeUnit.NANOSECONDS);
+    }
+
+    private void send(WebSocket conn, String payload) {
+        if (conn.isOpen()) {
+            conn.send(payload);
+            framesSent.incrementAndGet();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8188;
+        FakeJanusServer server = FakeJanusServer.builder()
+                .setPort(port)
+                .setLatency(Long.getLong("fakejanus.minLatencyMs", 0), Long.getLong("fakejanus.maxLatencyMs", 0))
+                .setLossRate(Double.parseDouble(System.getProperty("fakejanus.lossRate", "0")))
+                .setErrorRate(Double.parseDouble(System.getProperty("fakejanus.errorRate", "0")))
+                .setSessionTimeout(Long.getLong("fakejanus.sessionTimeoutMs", 0))
+                .build();
+        server.startAndWait(10, TimeUnit.SECONDS);
+        System.out.println("FakeJanusServer listening on ws://localhost:" + server.getPort() + "/");
+    }
+}